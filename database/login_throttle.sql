@@ -0,0 +1,12 @@
+-- Login token buckets shared across instances, see authenticate.PostgresThrottleStore.
+-- Only used when LOGIN_THROTTLE_SHARED=true.
+CREATE TABLE IF NOT EXISTS login_throttle (
+	throttle_key VARCHAR(320)     PRIMARY KEY,
+	tokens       DOUBLE PRECISION NOT NULL,
+	refilled_at  TIMESTAMPTZ      NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS login_throttle_refilled_at_idx ON login_throttle (refilled_at);
+
+-- Buckets untouched for an hour are full again and can be dropped, e.g. from a scheduled job:
+-- DELETE FROM login_throttle WHERE refilled_at < now() - interval '1 hour';
@@ -0,0 +1,18 @@
+-- Denylist of revoked JWTs, see utils.TokenRevocation.
+-- jti is either a token's jti claim or "user:<user_id>" for "revoke every token issued to this user before not_before".
+-- Rows are only needed until the token would have expired anyway.
+CREATE TABLE IF NOT EXISTS revoked_token (
+	jti        VARCHAR(64) PRIMARY KEY,
+	user_id    BIGINT      NOT NULL,
+	revoked_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+	expires_at TIMESTAMPTZ NOT NULL,
+	not_before BIGINT -- "user:" rows: epoch second of the revoke on the clock that stamps iat
+);
+
+ALTER TABLE revoked_token ADD COLUMN IF NOT EXISTS not_before BIGINT;
+
+-- Incremental refresh reads rows revoked since the last refresh
+CREATE INDEX IF NOT EXISTS revoked_token_revoked_at_idx ON revoked_token (revoked_at);
+
+-- Expired rows can be purged at any time, e.g. from a scheduled job:
+-- DELETE FROM revoked_token WHERE expires_at < now();
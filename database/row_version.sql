@@ -0,0 +1,41 @@
+-- Version columns behind the ETags of GET /user and GET /certifications, see utils.ETags.
+-- row_version counts changes to a user's profile, cert_version changes to any of their user_certs.
+-- Both are kept by triggers in the writing transaction, so every write path moves them.
+ALTER TABLE app_user ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 1;
+ALTER TABLE app_user ADD COLUMN IF NOT EXISTS cert_version BIGINT NOT NULL DEFAULT 1;
+
+-- Only the profile columns count, a cert_version bump leaves row_version alone
+CREATE OR REPLACE FUNCTION app_user_row_version() RETURNS trigger AS $$
+BEGIN
+	IF ROW(NEW.first_name, NEW.last_name, NEW.username, NEW.industry, NEW.user_role, NEW.bio)
+			IS DISTINCT FROM ROW(OLD.first_name, OLD.last_name, OLD.username, OLD.industry, OLD.user_role, OLD.bio) THEN
+		NEW.row_version := OLD.row_version + 1;
+	END IF;
+	RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS app_user_row_version ON app_user;
+CREATE TRIGGER app_user_row_version BEFORE UPDATE ON app_user
+	FOR EACH ROW EXECUTE FUNCTION app_user_row_version();
+
+-- Once per statement, so a batch insert bumps each user once
+CREATE OR REPLACE FUNCTION user_cert_cert_version() RETURNS trigger AS $$
+BEGIN
+	UPDATE app_user SET cert_version = cert_version + 1
+	WHERE user_id IN (SELECT DISTINCT user_id FROM changed);
+	RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS user_cert_cert_version_insert ON user_cert;
+CREATE TRIGGER user_cert_cert_version_insert AFTER INSERT ON user_cert
+	REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION user_cert_cert_version();
+
+DROP TRIGGER IF EXISTS user_cert_cert_version_update ON user_cert;
+CREATE TRIGGER user_cert_cert_version_update AFTER UPDATE ON user_cert
+	REFERENCING NEW TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION user_cert_cert_version();
+
+DROP TRIGGER IF EXISTS user_cert_cert_version_delete ON user_cert;
+CREATE TRIGGER user_cert_cert_version_delete AFTER DELETE ON user_cert
+	REFERENCING OLD TABLE AS changed FOR EACH STATEMENT EXECUTE FUNCTION user_cert_cert_version();
@@ -0,0 +1,11 @@
+-- Indexes for GET /certifications, see certification.CertificationQuery.
+-- One per sort: rows of a user in (sort column, user_cert_id) order, so each page is a
+-- short range scan from the cursor. Descending sorts scan the same index backwards.
+-- CONCURRENTLY doesn't block writes, but can't run inside a transaction block.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_cert_user_id_idx ON user_cert (user_id, user_cert_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_cert_user_earned_on_idx ON user_cert (user_id, earned_on, user_cert_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_cert_user_expires_on_idx ON user_cert (user_id, expires_on, user_cert_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_cert_user_title_idx ON user_cert (user_id, title, user_cert_id);
+
+-- cert_level filter with the default sort
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_cert_user_level_idx ON user_cert (user_id, cert_level, user_cert_id);
@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import certification.GetCertificationHandler;
+import user.DashboardHandler;
+import user.UserInfoHandler;
+import utils.DatabaseHelper;
+import utils.EnvHelper;
+import utils.JwtHelper;
+
+/**
+ * Dashboard screen against a real database: GET /user followed by GET /certifications,
+ * against GET /me. Runs in one JVM, so it leaves out the second Lambda invocation and
+ * network hop the two-call path also pays; the difference is a lower bound.
+ * Token caching is off, as it would be in two separate Lambdas.
+ *
+ * Needs DB_URL, DB_USER, DB_PASSWORD and JWT_KEY in the environment, and BENCH_USER_ID
+ * naming an existing user (default 1), ideally one with many certifications:
+ *
+ * java -jar studyBuddy-benchmark/target/benchmarks.jar DashboardBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-DJWT_CACHE_SIZE=0" })
+public class DashboardBenchmark {
+
+	private final UserInfoHandler userInfo = new UserInfoHandler();
+	private final GetCertificationHandler certifications = new GetCertificationHandler();
+	private final DashboardHandler dashboard = new DashboardHandler();
+	private Map<String, Object> event;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		if (EnvHelper.get("DB_URL") == null || EnvHelper.get("JWT_KEY") == null) {
+			throw new IllegalStateException("DashboardBenchmark needs DB_URL, DB_USER, DB_PASSWORD and JWT_KEY");
+		}
+		int userId = EnvHelper.getInt("BENCH_USER_ID", 1);
+		event = new HashMap<>();
+		event.put("headers", Map.of("Authorization", JwtHelper.generateToken(userId, "benchmark")));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		DatabaseHelper.close();
+	}
+
+	// What the frontend does today: two requests, two token checks, two connections and queries
+	@Benchmark
+	public void userThenCertifications(Blackhole bh) {
+		bh.consume(userInfo.handleRequest(event, null));
+		bh.consume(certifications.handleRequest(event, null));
+	}
+
+	@Benchmark
+	public String me() {
+		return dashboard.handleRequest(event, null);
+	}
+}
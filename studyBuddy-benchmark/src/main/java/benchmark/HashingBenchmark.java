@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.LegacySha256Hasher;
+import utils.Pbkdf2PasswordHasher;
+
+/**
+ * Password hashes per second on one core, per PBKDF2 cost. Multiply by PASSWORD_HASH_THREADS
+ * for the login/register capacity of one instance.
+ *
+ * java -jar studyBuddy-benchmark/target/benchmarks.jar HashingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class HashingBenchmark {
+
+	@Param({ "100000", "310000", "600000" })
+	public int iterations;
+
+	private Pbkdf2PasswordHasher pbkdf2;
+	private LegacySha256Hasher legacy;
+	private String pbkdf2Hash;
+
+	@Setup
+	public void setup() {
+		pbkdf2 = new Pbkdf2PasswordHasher(iterations);
+		legacy = new LegacySha256Hasher();
+		pbkdf2Hash = pbkdf2.hash("daPassword");
+	}
+
+	@Benchmark
+	public String pbkdf2Hash() {
+		return pbkdf2.hash("daPassword");
+	}
+
+	@Benchmark
+	public boolean pbkdf2Verify() {
+		return pbkdf2.verify("daPassword", pbkdf2Hash);
+	}
+
+	// The original unsalted SHA-256, for reference
+	@Benchmark
+	public String legacySha256() {
+		return legacy.hash("daPassword");
+	}
+}
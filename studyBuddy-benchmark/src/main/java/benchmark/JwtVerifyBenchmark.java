@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import utils.FastJwtVerifier;
+import utils.JwtHelper;
+import utils.JwtKeyRing;
+import utils.JwtValidationException;
+
+/**
+ * Token verification throughput: jjwt (old per-call parser and prebuilt parser)
+ * against the HS256 fast path. Run with "-prof gc" to see bytes allocated per verify.
+ *
+ * java -jar studyBuddy-benchmark/target/benchmarks.jar JwtVerifyBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-DJWT_KEY=" + JwtVerifyBenchmark.SECRET, "-DJWT_KEY_ID=k1", "-DJWT_CACHE_SIZE=0", "-DJWT_REVOCATION=false" })
+public class JwtVerifyBenchmark {
+
+	static final String SECRET = "12345678901234567890123456789012";
+
+	private SecretKey key;
+	private JwtParser parser;
+	private FastJwtVerifier fastVerifier;
+	private String token;
+
+	@Setup
+	public void setup() {
+		key = Keys.hmacShaKeyFor(SECRET.getBytes());
+		parser = Jwts.parser().verifyWith(key).build();
+		fastVerifier = new FastJwtVerifier(JwtKeyRing.of("k1", key));
+		token = JwtHelper.generateToken(3, "Joemama");
+	}
+
+	// What JwtHelper used to do on every request
+	@Benchmark
+	public Claims jjwtParserPerCall() {
+		return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+	}
+
+	@Benchmark
+	public Claims jjwtPrebuiltParser() {
+		return parser.parseSignedClaims(token).getPayload();
+	}
+
+	@Benchmark
+	public Claims fastPath() throws JwtValidationException {
+		return fastVerifier.verify(token, System.currentTimeMillis());
+	}
+
+	// Full JwtHelper.parseToken path (cache disabled via JWT_CACHE_SIZE=0, no database for revocation)
+	@Benchmark
+	public Claims jwtHelper() throws JwtValidationException {
+		return JwtHelper.parseToken(token);
+	}
+}
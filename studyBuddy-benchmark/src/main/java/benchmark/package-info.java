@@ -0,0 +1 @@
+package benchmark;
\ No newline at end of file
@@ -5,96 +5,174 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import org.json.JSONObject;
 
 import java.sql.*;
-import java.util.HashMap;
 import java.util.Map;
 
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.DatabaseHelper;
+import utils.EnvHelper;
 import utils.HashingHelper;
 import utils.JwtHelper;
-import utils.JwtValidationException;
+import utils.PasswordHashingException;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
 
 /**
  * Login handler. Checks if user information is correct and returns HTTP status code and response.
+ * Attempts are throttled per username and source IP before any database work (429 + Retry-After).
  */
-public class LoginHandler implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+public class LoginHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, PipelineHandler {
 
-	private static final String DB_URL = System.getenv("DB_URL");
-	private static final String DB_USER = System.getenv("DB_USER");
-	private static final String DB_PASSWORD = System.getenv("DB_PASSWORD");
+	private static final LoginThrottle THROTTLE = LoginThrottle.fromEnv();
+	private static final PostgresThrottleStore SHARED_STORE =
+			Boolean.parseBoolean(EnvHelper.get("LOGIN_THROTTLE_SHARED", "false")) ? new PostgresThrottleStore() : null;
+
+	// Shared with LoginStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("LoginHandler")
+			.decodeBody(LoginRequest::decode)
+			.validate(LoginHandler::validate)
+			.lookup(LoginHandler::login)
+			.handle(LoginHandler::upgradeHash)
+			.build();
 
 	@Override
 	public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
-		Map<String, Object> response = new HashMap<>();
-
-		try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-			// Accept both API Gateway (body as string) and direct JSON (fields at top level)
-			JSONObject body;
-			Object bodyObj = event.get("body");
-			if (bodyObj instanceof String) {
-				// API Gateway: body is a JSON string
-				body = new JSONObject((String) bodyObj);
-			} else if (bodyObj instanceof Map) {
-				// Local/direct: body is already a map
-				body = new JSONObject((Map<?, ?>) bodyObj);
-			} else if (bodyObj == null) {
-				// No "body" key, treat event itself as the body (for local direct JSON)
-				body = new JSONObject(event);
-			} else {
-				throw new IllegalArgumentException("Invalid event format");
+		return PIPELINE.execute(event).toMap();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	/**
+	 * Login throttle counters, including attempts shed with 429
+	 * @return counters
+	 */
+	public static Map<String, Object> getThrottleStats() {
+		return THROTTLE.getStats();
+	}
+
+	private static void validate(RequestContext ctx) throws ApiException {
+		LoginRequest request = ctx.getRequest();
+		String username = RequestContext.require(request.getUsername(), "username");
+		RequestContext.require(request.getPassword(), "password");
+
+		// Decided in memory, credential stuffing never reaches the database
+		long retryAfter = THROTTLE.tryAcquire(username, ctx.getSourceIp(), System.currentTimeMillis());
+		if (retryAfter > 0) {
+			throw tooManyRequests(username, retryAfter);
+		}
+	}
+
+	/**
+	 * Reads the stored hash on a short-lived connection and verifies the password without holding it.
+	 * Returns null only when the hash needs an upgrade, so the pipeline takes a connection for the UPDATE.
+	 */
+	private static ApiResponse login(RequestContext ctx) throws SQLException, ApiException, PasswordHashingException {
+		LoginRequest request = ctx.getRequest();
+		String username = request.getUsername();
+		String password = request.getPassword();
+
+		int userId;
+		String storedHash;
+		try (Connection conn = DatabaseHelper.getConnection()) {
+			if (SHARED_STORE != null) {
+				long retryAfter = THROTTLE.tryAcquireShared(SHARED_STORE, conn, username, ctx.getSourceIp());
+				if (retryAfter > 0) {
+					throw tooManyRequests(username, retryAfter);
+				}
 			}
 
-			String username = body.getString("username");
-			String password = body.getString("password");
 			String query = "SELECT user_id, hashed_password FROM app_user WHERE username = ?";
-			
 			try (PreparedStatement stmt = conn.prepareStatement(query)) {
 				stmt.setString(1, username);
-				ResultSet rs = stmt.executeQuery();
-				if (rs.next()) {
-					String storedHash = rs.getString("hashed_password");
-					int userId = rs.getInt("user_id");
-
-					if (HashingHelper.verifyPassword(password, storedHash)) {
-						// Generate JWT
-                        String jwt = JwtHelper.generateToken(userId, username);
-
-                        response.put("statusCode", 200);
-                        response.put("body", new JSONObject()
-                                .put("message", "Login successful")
-                                .put("token", jwt)
-                                .toString());
+				try (ResultSet rs = stmt.executeQuery()) {
+					if (!rs.next()) {
+						THROTTLE.recordFailure(username, ctx.getSourceIp(), System.currentTimeMillis());
 
 						// Log
-						System.out.println("Login successful for user: " + username);
-					} else {
-                        response.put("statusCode", 401);
-                        response.put("body", "{\"message\":\"Invalid credentials\"}");
+						System.out.println("User not found: " + username);
 
-						// Log
-						System.out.println("Invalid password for user: " + username);
+						return ApiResponse.of(404, new JSONObject().put("message", "User not found"));
 					}
-				} else {
-                    response.put("statusCode", 404);
-                    response.put("body", "{\"message\":\"User not found\"}");
-
-					// Log
-					System.out.println("User not found: " + username);
+					userId = rs.getInt("user_id");
+					storedHash = rs.getString("hashed_password");
 				}
 			}
-		}  /*catch (JwtValidationException e) { // FUTURE
-            response.put("statusCode", e.getStatusCode());
-            response.put("body", new JSONObject()
-                    .put("error", e.getMessage())
-                    .toString());
-
-        }*/ catch (Exception e) {
-            response.put("statusCode", 500);
-            response.put("body", new JSONObject()
-                    .put("error", "Internal server error")
-                    .put("details", e.getMessage())
-                    .toString());
-        }
-
-        return response;
+		}
+
+		// Hashing is slow, never do it while holding a pooled connection
+		if (!HashingHelper.verifyPassword(password, storedHash)) {
+			THROTTLE.recordFailure(username, ctx.getSourceIp(), System.currentTimeMillis());
+
+			// Log
+			System.out.println("Invalid password for user: " + username);
+
+			return ApiResponse.of(401, new JSONObject().put("message", "Invalid credentials"));
+		}
+		THROTTLE.recordSuccess(username, ctx.getSourceIp());
+
+		if (HashingHelper.needsRehash(storedHash)) {
+			try {
+				ctx.setAttribute("new_hash", HashingHelper.hashPassword(password));
+				ctx.setAttribute("stored_hash", storedHash);
+				ctx.setAttribute("user_id", userId);
+				return null;
+			} catch (PasswordHashingException e) {
+				System.err.println("Failed to upgrade password hash for user_id: " + userId + ": " + e.getMessage());
+			}
+		}
+		return loginSuccessful(userId, username);
+	}
+
+	private static ApiResponse loginSuccessful(int userId, String username) {
+		// Generate JWT
+		String jwt = JwtHelper.generateToken(userId, username);
+
+		// Log
+		System.out.println("Login successful for user: " + username);
+
+		return ApiResponse.of(200, new JSONObject()
+				.put("message", "Login successful")
+				.put("token", jwt));
+	}
+
+	private static ApiException tooManyRequests(String username, long retryAfterMillis) {
+		long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+
+		// Log
+		System.out.println("Login throttled for user: " + username + ", shed so far: " + THROTTLE.getStats().get("shed_total"));
+
+		return new ApiException(429, "Too many login attempts, try again later")
+				.withHeader("Retry-After", String.valueOf(retryAfterSeconds));
+	}
+
+	/**
+	 * Replace a legacy or weaker hash with the one computed in login, then finish the login.
+	 * Only updates if the row still holds the hash that was verified, and never fails the login.
+	 * @param ctx request context holding user_id, stored_hash and new_hash
+	 * @param conn connection
+	 * @return login response
+	 */
+	private static ApiResponse upgradeHash(RequestContext ctx, Connection conn) {
+		LoginRequest request = ctx.getRequest();
+		int userId = ctx.getAttribute("user_id");
+
+		String sql = "UPDATE app_user SET hashed_password = ? WHERE user_id = ? AND hashed_password = ?";
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, ctx.getAttribute("new_hash"));
+			stmt.setInt(2, userId);
+			stmt.setString(3, ctx.getAttribute("stored_hash"));
+			if (stmt.executeUpdate() == 1) {
+				// Log
+				System.out.println("Upgraded password hash for user_id: " + userId);
+			}
+		} catch (SQLException e) {
+			System.err.println("Failed to upgrade password hash for user_id: " + userId + ": " + e.getMessage());
+		}
+		return loginSuccessful(userId, request.getUsername());
 	}
 
 }
@@ -0,0 +1,42 @@
+package authenticate;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import utils.JsonReader;
+
+/**
+ * Body of POST /login.
+ */
+public class LoginRequest {
+
+	private String username;
+	private String password;
+
+	// Decode from the body JSON, other fields are skipped
+	public static LoginRequest decode(JsonParser parser) throws IOException {
+		LoginRequest request = new LoginRequest();
+		JsonReader.readObject(parser, (name, value) -> {
+			switch (name) {
+			case "username":
+				request.username = JsonReader.text(value);
+				break;
+			case "password":
+				request.password = JsonReader.text(value);
+				break;
+			default:
+				value.skipChildren();
+			}
+		});
+		return request;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+}
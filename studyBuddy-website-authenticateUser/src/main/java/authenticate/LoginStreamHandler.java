@@ -0,0 +1,20 @@
+package authenticate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+/**
+ * Stream entry point for POST /login. Same pipeline as LoginHandler, but the raw event is
+ * decoded in one pass straight into the typed request, with no Map or JSONObject in between.
+ */
+public class LoginStreamHandler implements RequestStreamHandler {
+
+	@Override
+	public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+		LoginHandler.PIPELINE.execute(input, output);
+	}
+}
@@ -0,0 +1,253 @@
+package authenticate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.EnvHelper;
+
+/**
+ * In-memory brute-force throttle for login attempts, keyed by username and by source IP.
+ * Each key has a token bucket (a burst, then a steady rate per minute), and every failed
+ * attempt blocks the username from that source IP for a delay that doubles per consecutive
+ * failure, so guessing from one address can't lock the owner out everywhere else. The
+ * username bucket stays as a high ceiling against stuffing spread over many addresses.
+ * Buckets live in lock-striped LRU maps so concurrent logins for different keys rarely contend
+ * and memory stays bounded no matter how many usernames an attacker tries.
+ */
+public class LoginThrottle {
+
+	private static final int STRIPES = 64;
+
+	private final Limit userLimit;
+	private final Limit ipLimit;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final AtomicLong allowed = new AtomicLong();
+	private final AtomicLong shedByUser = new AtomicLong();
+	private final AtomicLong shedByIp = new AtomicLong();
+	private final AtomicLong shedByDelay = new AtomicLong();
+	private final AtomicLong shedShared = new AtomicLong();
+
+	/**
+	 * @param userLimit bucket for each username
+	 * @param ipLimit bucket for each source IP
+	 * @param baseDelayMillis block of a username from a source IP after the first failure, doubled per further failure
+	 * @param maxDelayMillis longest block
+	 * @param maxKeys buckets kept in memory, least recently used are dropped first
+	 */
+	public LoginThrottle(Limit userLimit, Limit ipLimit, long baseDelayMillis, long maxDelayMillis, int maxKeys) {
+		this.userLimit = userLimit;
+		this.ipLimit = ipLimit;
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(Math.max(1, maxKeys / STRIPES));
+		}
+	}
+
+	// Throttle configured from the environment
+	public static LoginThrottle fromEnv() {
+		return new LoginThrottle(
+				new Limit(EnvHelper.getInt("LOGIN_USER_BURST", 50), EnvHelper.getInt("LOGIN_USER_PER_MINUTE", 50)),
+				new Limit(EnvHelper.getInt("LOGIN_IP_BURST", 20), EnvHelper.getInt("LOGIN_IP_PER_MINUTE", 20)),
+				EnvHelper.getLong("LOGIN_FAILURE_DELAY_MS", 1000),
+				EnvHelper.getLong("LOGIN_MAX_DELAY_MS", 300_000),
+				EnvHelper.getInt("LOGIN_THROTTLE_MAX_KEYS", 100_000));
+	}
+
+	/**
+	 * Take a token for an attempt.
+	 * @param username username being logged into
+	 * @param ip source IP, or null if unknown
+	 * @param nowMillis current time
+	 * @return 0 if the attempt may proceed, otherwise milliseconds until the caller should retry
+	 */
+	public long tryAcquire(String username, String ip, long nowMillis) {
+		String userKey = userKey(username);
+
+		// The failure delay first, it doesn't consume tokens
+		long blocked = peekBlocked(delayKey(username, ip), nowMillis);
+		if (blocked > 0) {
+			shedByDelay.incrementAndGet();
+			return blocked;
+		}
+		if (ip != null) {
+			long wait = take("ip:" + ip, ipLimit, nowMillis);
+			if (wait > 0) {
+				shedByIp.incrementAndGet();
+				return wait;
+			}
+		}
+		long wait = take(userKey, userLimit, nowMillis);
+		if (wait > 0) {
+			shedByUser.incrementAndGet();
+			return wait;
+		}
+		allowed.incrementAndGet();
+		return 0;
+	}
+
+	/**
+	 * Take a token from the buckets shared by every instance, after tryAcquire allowed the attempt.
+	 * @param store shared bucket store
+	 * @param conn connection
+	 * @param username username being logged into
+	 * @param ip source IP, or null if unknown
+	 * @return 0 if the attempt may proceed, otherwise milliseconds until the caller should retry
+	 */
+	public long tryAcquireShared(PostgresThrottleStore store, Connection conn, String username, String ip) throws SQLException {
+		long wait = ip == null ? 0 : store.tryAcquire(conn, "ip:" + ip, ipLimit);
+		if (wait == 0) {
+			wait = store.tryAcquire(conn, userKey(username), userLimit);
+		}
+		if (wait > 0) {
+			shedShared.incrementAndGet();
+		}
+		return wait;
+	}
+
+	/**
+	 * Wrong password or unknown user, block the username from this source for a growing delay.
+	 * @param username username being logged into
+	 * @param ip source IP, or null if unknown, which blocks the username from every unknown source
+	 * @param nowMillis current time
+	 */
+	public void recordFailure(String username, String ip, long nowMillis) {
+		String key = delayKey(username, ip);
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe) {
+			Bucket bucket = stripe.bucket(key, userLimit, nowMillis);
+			bucket.failures = Math.min(bucket.failures + 1, 30);
+			long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(bucket.failures - 1, 20));
+			bucket.blockedUntil = nowMillis + delay;
+		}
+	}
+
+	// Successful login, forget earlier failures from this source
+	public void recordSuccess(String username, String ip) {
+		String key = delayKey(username, ip);
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe) {
+			Bucket bucket = stripe.buckets.get(key);
+			if (bucket != null) {
+				bucket.failures = 0;
+				bucket.blockedUntil = 0;
+			}
+		}
+	}
+
+	/**
+	 * Throttle counters
+	 * @return allowed attempts and attempts shed per reason
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("allowed", allowed.get());
+		stats.put("shed_user", shedByUser.get());
+		stats.put("shed_ip", shedByIp.get());
+		stats.put("shed_delay", shedByDelay.get());
+		stats.put("shed_shared", shedShared.get());
+		stats.put("shed_total", shedByUser.get() + shedByIp.get() + shedByDelay.get() + shedShared.get());
+		return stats;
+	}
+
+	private long peekBlocked(String key, long nowMillis) {
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe) {
+			Bucket bucket = stripe.buckets.get(key);
+			return bucket == null ? 0 : Math.max(0, bucket.blockedUntil - nowMillis);
+		}
+	}
+
+	private long take(String key, Limit limit, long nowMillis) {
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe) {
+			Bucket bucket = stripe.bucket(key, limit, nowMillis);
+			bucket.refill(limit, nowMillis);
+			if (bucket.tokens >= 1) {
+				bucket.tokens -= 1;
+				return 0;
+			}
+			return (long) Math.ceil((1 - bucket.tokens) / limit.perMillis());
+		}
+	}
+
+	private Stripe stripeFor(String key) {
+		int h = key.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+
+	private static String userKey(String username) {
+		return "user:" + username.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static String delayKey(String username, String ip) {
+		return "delay:" + (ip == null ? "" : ip) + ":" + username.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Token bucket size and refill rate.
+	 */
+	public static final class Limit {
+		final int burst;
+		final int perMinute;
+
+		public Limit(int burst, int perMinute) {
+			this.burst = Math.max(1, burst);
+			this.perMinute = Math.max(1, perMinute);
+		}
+
+		double perMillis() {
+			return perMinute / 60_000.0;
+		}
+	}
+
+	private static final class Bucket {
+		double tokens;
+		long refilledAt;
+		int failures;
+		long blockedUntil;
+
+		Bucket(Limit limit, long nowMillis) {
+			this.tokens = limit.burst;
+			this.refilledAt = nowMillis;
+		}
+
+		void refill(Limit limit, long nowMillis) {
+			if (nowMillis > refilledAt) {
+				tokens = Math.min(limit.burst, tokens + (nowMillis - refilledAt) * limit.perMillis());
+				refilledAt = nowMillis;
+			}
+		}
+	}
+
+	private static final class Stripe {
+		final Map<String, Bucket> buckets;
+
+		Stripe(int maxEntries) {
+			this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+					return size() > maxEntries;
+				}
+			};
+		}
+
+		Bucket bucket(String key, Limit limit, long nowMillis) {
+			Bucket bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new Bucket(limit, nowMillis);
+				buckets.put(key, bucket);
+			}
+			return bucket;
+		}
+	}
+}
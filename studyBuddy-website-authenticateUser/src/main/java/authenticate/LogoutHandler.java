@@ -0,0 +1,55 @@
+package authenticate;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.json.JSONObject;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+import utils.TokenRevocation;
+
+/**
+ * Logout handler. Revokes the token presented in the Authorization header.
+ */
+public class LogoutHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, PipelineHandler {
+
+	private static final RequestPipeline PIPELINE = RequestPipeline.builder("LogoutHandler")
+			.requireAuth()
+			.validate(LogoutHandler::validate)
+			.handle(LogoutHandler::logout)
+			.build();
+
+	@Override
+	public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+		return PIPELINE.execute(event).toMap();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	private static void validate(RequestContext ctx) throws ApiException {
+		if (ctx.getClaims().getId() == null) {
+			// Issued before tokens carried a jti, it can only expire
+			throw new ApiException(400, "Token cannot be revoked");
+		}
+	}
+
+	private static ApiResponse logout(RequestContext ctx, Connection conn) throws SQLException {
+		TokenRevocation.revoke(conn, ctx.getClaims());
+
+		// Log
+		System.out.println("Logout for user_id: " + ctx.getUserId());
+
+		return ApiResponse.of(200, new JSONObject().put("message", "Logout successful"));
+	}
+
+}
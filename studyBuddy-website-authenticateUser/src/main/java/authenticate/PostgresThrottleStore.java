@@ -0,0 +1,45 @@
+package authenticate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Token buckets shared by every instance, kept in the login_throttle table.
+ * Each take is one atomic upsert, so concurrent instances can't both spend the last token.
+ * Used behind the in-memory LoginThrottle, which sheds most abusive traffic without a query.
+ */
+public class PostgresThrottleStore {
+
+	private static final String TAKE_SQL =
+			"INSERT INTO login_throttle (throttle_key, tokens, refilled_at) VALUES (?, ?, now()) " +
+			"ON CONFLICT (throttle_key) DO UPDATE SET " +
+			"tokens = LEAST(?, login_throttle.tokens + EXTRACT(EPOCH FROM now() - login_throttle.refilled_at) * ?) - 1, " +
+			"refilled_at = now() " +
+			"WHERE LEAST(?, login_throttle.tokens + EXTRACT(EPOCH FROM now() - login_throttle.refilled_at) * ?) >= 1 " +
+			"RETURNING tokens";
+
+	/**
+	 * Take a token from a shared bucket.
+	 * @param conn connection
+	 * @param key bucket key, e.g. "user:joemama"
+	 * @param limit bucket size and rate
+	 * @return 0 if a token was taken, otherwise milliseconds until one is likely available
+	 */
+	public long tryAcquire(Connection conn, String key, LoginThrottle.Limit limit) throws SQLException {
+		double perSecond = limit.perMinute / 60.0;
+		try (PreparedStatement stmt = conn.prepareStatement(TAKE_SQL)) {
+			stmt.setString(1, key);
+			stmt.setDouble(2, limit.burst - 1);
+			stmt.setDouble(3, limit.burst);
+			stmt.setDouble(4, perSecond);
+			stmt.setDouble(5, limit.burst);
+			stmt.setDouble(6, perSecond);
+			try (ResultSet rs = stmt.executeQuery()) {
+				// No row means the WHERE rejected the update, the bucket is empty
+				return rs.next() ? 0 : (long) Math.ceil(1000 / perSecond);
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package authenticate;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.json.JSONObject;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import utils.AdminAuth;
+import utils.ApiResponse;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+import utils.TokenRevocation;
+
+/**
+ * Admin handler. Revokes every token issued to a user so far, e.g. after a password reset
+ * or a compromised account. Requires the X-Admin-Key header.
+ */
+public class RevokeUserTokensHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, PipelineHandler {
+
+	private static final RequestPipeline PIPELINE = RequestPipeline.builder("RevokeUserTokensHandler")
+			.parseBody()
+			.validate(RevokeUserTokensHandler::validate)
+			.handle(RevokeUserTokensHandler::revoke)
+			.build();
+
+	@Override
+	public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+		return PIPELINE.execute(event).toMap();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	private static void validate(RequestContext ctx) throws Exception {
+		AdminAuth.check(ctx);
+		ctx.setAttribute("user_id", ctx.requireLong("user_id"));
+	}
+
+	private static ApiResponse revoke(RequestContext ctx, Connection conn) throws SQLException {
+		long userId = ctx.getAttribute("user_id");
+		TokenRevocation.revokeAllForUser(conn, userId);
+
+		// Log
+		System.out.println("Revoked all tokens for user_id: " + userId);
+
+		return ApiResponse.of(200, new JSONObject()
+				.put("message", "Tokens revoked")
+				.put("user_id", userId));
+	}
+
+}
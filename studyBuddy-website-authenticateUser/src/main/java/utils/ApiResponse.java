@@ -0,0 +1,151 @@
+package utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Status, headers and JSON body of a route response, convertible to either shape the
+ * handlers return: a Map (LoginHandler, RegisterUserHandler) or a JSON string (the others),
+ * or written straight to a stream by ResponseWriter. Both shapes carry the same status
+ * and headers, with Content-Type defaulting to application/json.
+ *
+ * A body can also be streamed: its BodyWriter runs once, while the pipeline still holds
+ * the connection, and writes the JSON directly to wherever the response goes.
+ */
+public class ApiResponse {
+
+	// Writes a streamed body
+	public interface BodyWriter {
+		void write(JsonGenerator json) throws Exception;
+	}
+
+	private final int statusCode;
+	private final Map<String, String> headers = new LinkedHashMap<>();
+	private String body;
+	private BodyWriter bodyWriter;
+
+	public ApiResponse(int statusCode, String body) {
+		this.statusCode = statusCode;
+		this.body = body;
+	}
+
+	// Response with a JSON object body
+	public static ApiResponse of(int statusCode, JSONObject body) {
+		return new ApiResponse(statusCode, body.toString());
+	}
+
+	// {"error": message}
+	public static ApiResponse error(int statusCode, String message) {
+		return of(statusCode, new JSONObject().put("error", message));
+	}
+
+	/**
+	 * Response whose body is written when the response is sent, without building it first.
+	 * @param statusCode status
+	 * @param bodyWriter writes the body JSON, may use the handler's connection
+	 * @return response
+	 */
+	public static ApiResponse stream(int statusCode, BodyWriter bodyWriter) {
+		ApiResponse response = new ApiResponse(statusCode, null);
+		response.bodyWriter = bodyWriter;
+		return response;
+	}
+
+	public ApiResponse withHeader(String name, String value) {
+		headers.put(name, value);
+		return this;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	// Headers set on this response, see ResponseWriter.forEachHeader for the ones sent
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	// Body JSON, rendered if it was streamed and not sent yet
+	public String getBody() {
+		if (bodyWriter != null) {
+			try {
+				render();
+			} catch (Exception e) {
+				throw new IllegalStateException("Failed to render response body", e);
+			}
+		}
+		return body;
+	}
+
+	// True if the body is written when sent, its length isn't known up front
+	public boolean isStreamed() {
+		return bodyWriter != null;
+	}
+
+	// Streamed body not sent yet, null if the body is a string
+	BodyWriter getBodyWriter() {
+		return bodyWriter;
+	}
+
+	/**
+	 * Render a streamed body into a string, for the Map and String shapes.
+	 * Called by the pipeline while the connection is still open.
+	 */
+	void render() throws Exception {
+		if (bodyWriter == null) {
+			return;
+		}
+		StringWriter out = new StringWriter();
+		try (JsonGenerator json = JsonReader.FACTORY.createGenerator(out)) {
+			bodyWriter.write(json);
+		}
+		body = out.toString();
+		bodyWriter = null;
+	}
+
+	// {statusCode, headers, body} map for handlers returning Map
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new HashMap<>();
+		Map<String, String> sent = new HashMap<>();
+		try {
+			ResponseWriter.forEachHeader(this, sent::put);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // put doesn't throw
+		}
+		map.put("statusCode", statusCode);
+		map.put("headers", sent);
+		map.put("body", getBody());
+		return map;
+	}
+
+	/**
+	 * Write the API Gateway proxy response, for RequestStreamHandler entry points.
+	 * @param output Lambda output stream
+	 */
+	public void writeTo(OutputStream output) throws IOException {
+		try {
+			ResponseWriter.writeEnvelope(this, output);
+		} catch (IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Failed to write response body", e);
+		}
+	}
+
+	// {"statusCode": ..., "headers": {...}, "body": "..."} string for handlers returning String
+	public String toJsonString() {
+		try {
+			return ResponseWriter.toEnvelopeString(this);
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to render response", e);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package utils;
+
+import java.security.Security;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Utility class holding the shared database connection pool.
+ * The pool is created on first use and kept in static state, so warm Lambda
+ * invocations (and every handler running in the same JVM) reuse open connections
+ * instead of doing a new TCP + TLS + auth handshake per request.
+ */
+public class DatabaseHelper {
+
+	// Rows per round trip for queries read through a cursor (autocommit off), so large results stream
+	public static final int FETCH_SIZE = EnvHelper.getInt("DB_FETCH_SIZE", 100);
+
+	private static volatile HikariDataSource dataSource;
+
+	static {
+		// RDS failover moves the endpoint's DNS record, don't let the JVM cache it forever
+		Security.setProperty("networkaddress.cache.ttl", EnvHelper.get("DB_DNS_CACHE_TTL", "5"));
+	}
+
+	/**
+	 * Borrow a connection from the pool. Closing it returns it to the pool.
+	 * Idle connections are validated before being handed out, and broken ones
+	 * (e.g. after a failover) are evicted and replaced transparently.
+	 * @return pooled connection
+	 * @throws SQLException if no connection could be obtained
+	 */
+	public static Connection getConnection() throws SQLException {
+		return getDataSource().getConnection();
+	}
+
+	/**
+	 * Open a connection outside the pool, for a session that must stay the same (LISTEN).
+	 * The caller closes it.
+	 * @return new connection
+	 * @throws SQLException if it could not be opened
+	 */
+	public static Connection openUnpooled() throws SQLException {
+		String url = EnvHelper.get("DB_URL");
+		if (url == null) {
+			throw new IllegalStateException("DB_URL environment variable is not set");
+		}
+		Properties props = new Properties();
+		if (EnvHelper.get("DB_USER") != null) {
+			props.setProperty("user", EnvHelper.get("DB_USER"));
+		}
+		if (EnvHelper.get("DB_PASSWORD") != null) {
+			props.setProperty("password", EnvHelper.get("DB_PASSWORD"));
+		}
+		props.setProperty("tcpKeepAlive", "true");
+		props.setProperty("connectTimeout", EnvHelper.get("DB_CONNECT_TIMEOUT_S", "5"));
+		props.setProperty("socketTimeout", EnvHelper.get("DB_SOCKET_TIMEOUT_S", "30"));
+		return DriverManager.getConnection(url, props);
+	}
+
+	/**
+	 * Lazily create the pool.
+	 * @return shared pooled DataSource
+	 */
+	public static DataSource getDataSource() {
+		HikariDataSource ds = dataSource;
+		if (ds == null) {
+			synchronized (DatabaseHelper.class) {
+				ds = dataSource;
+				if (ds == null) {
+					ds = createDataSource();
+					dataSource = ds;
+				}
+			}
+		}
+		return ds;
+	}
+
+	/**
+	 * Current pool statistics, empty if the pool has not been created yet.
+	 * @return active, idle, total and waiting connection counts
+	 */
+	public static Map<String, Object> getPoolStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		HikariDataSource ds = dataSource;
+		if (ds == null || ds.getHikariPoolMXBean() == null) {
+			return stats;
+		}
+		HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+		stats.put("active", pool.getActiveConnections());
+		stats.put("idle", pool.getIdleConnections());
+		stats.put("total", pool.getTotalConnections());
+		stats.put("waiting", pool.getThreadsAwaitingConnection());
+		stats.put("max", ds.getMaximumPoolSize());
+		return stats;
+	}
+
+	// Close the pool, used when a long-running server shuts down
+	public static void close() {
+		synchronized (DatabaseHelper.class) {
+			if (dataSource != null) {
+				dataSource.close();
+				dataSource = null;
+			}
+		}
+	}
+
+	private static HikariDataSource createDataSource() {
+		String url = EnvHelper.get("DB_URL");
+		if (url == null) {
+			throw new IllegalStateException("DB_URL environment variable is not set");
+		}
+
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("studybuddy");
+		config.setJdbcUrl(url);
+		config.setUsername(EnvHelper.get("DB_USER"));
+		config.setPassword(EnvHelper.get("DB_PASSWORD"));
+
+		// A Lambda environment serves one request at a time, a server serves many
+		int defaultSize = EnvHelper.isLambda() ? 2 : 10;
+		config.setMaximumPoolSize(EnvHelper.getInt("DB_POOL_SIZE", defaultSize));
+		config.setMinimumIdle(EnvHelper.getInt("DB_POOL_MIN_IDLE", 1));
+		config.setConnectionTimeout(EnvHelper.getLong("DB_CONNECTION_TIMEOUT_MS", 5_000));
+		config.setValidationTimeout(2_000);
+		config.setIdleTimeout(EnvHelper.getLong("DB_IDLE_TIMEOUT_MS", 300_000));
+		config.setMaxLifetime(EnvHelper.getLong("DB_MAX_LIFETIME_MS", 900_000));
+		config.setKeepaliveTime(EnvHelper.getLong("DB_KEEPALIVE_MS", 120_000));
+
+		// Don't fail at creation, connections are opened on first borrow
+		config.setInitializationFailTimeout(-1);
+
+		// Idle connections are checked with Connection.isValid() (a cheap protocol-level ping)
+		// rather than a test query. Socket timeouts make a dead primary fail fast.
+		config.addDataSourceProperty("tcpKeepAlive", "true");
+		config.addDataSourceProperty("connectTimeout", EnvHelper.get("DB_CONNECT_TIMEOUT_S", "5"));
+		config.addDataSourceProperty("socketTimeout", EnvHelper.get("DB_SOCKET_TIMEOUT_S", "30"));
+
+		HikariDataSource ds = new HikariDataSource(config);
+
+		// Log
+		System.out.println("Created database connection pool (max size: " + ds.getMaximumPoolSize() + ")");
+
+		return ds;
+	}
+}
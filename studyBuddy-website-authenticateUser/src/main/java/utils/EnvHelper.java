@@ -0,0 +1,56 @@
+package utils;
+
+/**
+ * Utility class for reading configuration values.
+ * Reads environment variables first and falls back to system properties.
+ */
+public class EnvHelper {
+
+	// Read a setting, returns null if it is not set
+	public static String get(String key) {
+		String value = System.getenv(key); // For Lambda
+		if (value == null || value.isEmpty()) {
+			value = System.getProperty(key); // For JUnit and local runs
+		}
+		return (value == null || value.isEmpty()) ? null : value;
+	}
+
+	// Read a setting, returning defaultValue if it is not set
+	public static String get(String key, String defaultValue) {
+		String value = get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	// Read an integer setting, returning defaultValue if it is not set or not a number
+	public static int getInt(String key, int defaultValue) {
+		String value = get(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			System.err.println("Ignoring invalid integer for " + key + ": " + value);
+			return defaultValue;
+		}
+	}
+
+	// Read a long setting, returning defaultValue if it is not set or not a number
+	public static long getLong(String key, long defaultValue) {
+		String value = get(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			System.err.println("Ignoring invalid number for " + key + ": " + value);
+			return defaultValue;
+		}
+	}
+
+	// True when running inside an AWS Lambda execution environment
+	public static boolean isLambda() {
+		return System.getenv("AWS_LAMBDA_FUNCTION_NAME") != null;
+	}
+}
@@ -0,0 +1,167 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Single-pass decoder for raw API Gateway proxy events (REST and HTTP API).
+ * Keeps only headers, query string and path parameters, source IP and the body, and skips
+ * everything else (requestContext details, multiValue copies, stage variables).
+ */
+public class EventDecoder {
+
+	private final Map<String, String> headers = new HashMap<>();
+	private final Map<String, String> query = new HashMap<>();
+	private final Map<String, String> pathParameters = new HashMap<>();
+	private String sourceIp;
+	private String bodyText;
+	private byte[] bodyBytes;
+	private boolean base64;
+	private final byte[] event;
+
+	private EventDecoder(byte[] event) {
+		this.event = event;
+	}
+
+	/**
+	 * Decode an event.
+	 * @param input raw event JSON
+	 * @return decoded event
+	 * @throws IOException if the event isn't JSON or its base64 body doesn't decode
+	 */
+	public static EventDecoder decode(InputStream input) throws IOException {
+		EventDecoder decoded = new EventDecoder(input.readAllBytes());
+		try (JsonParser parser = JsonReader.FACTORY.createParser(decoded.event)) {
+			JsonReader.readObject(parser, decoded::readField);
+		}
+		if (decoded.base64 && decoded.bodyText != null) {
+			try {
+				decoded.bodyBytes = Base64.getDecoder().decode(decoded.bodyText);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid base64 body", e);
+			}
+			decoded.bodyText = null;
+		}
+		return decoded;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public Map<String, String> getQuery() {
+		return query;
+	}
+
+	// Values of {name} segments of the route, e.g. "id" of /certifications/{id}/hours
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	public String getSourceIp() {
+		return sourceIp;
+	}
+
+	/**
+	 * Parser over the request body. Direct invocations put the fields at the top level
+	 * instead of in "body", so then the whole event is the body.
+	 * @return parser, to be closed by the caller
+	 */
+	public JsonParser openBody() throws IOException {
+		if (bodyText != null) {
+			return JsonReader.FACTORY.createParser(bodyText);
+		}
+		return JsonReader.FACTORY.createParser(bodyBytes != null ? bodyBytes : event);
+	}
+
+	// The request body as text, see openBody()
+	public String getBodyText() {
+		if (bodyText != null) {
+			return bodyText;
+		}
+		return new String(bodyBytes != null ? bodyBytes : event, StandardCharsets.UTF_8);
+	}
+
+	private void readField(String name, JsonParser parser) throws IOException {
+		switch (name) {
+		case "headers":
+			readStrings(parser, headers);
+			break;
+		case "queryStringParameters":
+			readStrings(parser, query);
+			break;
+		case "pathParameters":
+			readStrings(parser, pathParameters);
+			break;
+		case "requestContext":
+			readRequestContext(parser);
+			break;
+		case "body":
+			readBody(parser);
+			break;
+		case "isBase64Encoded":
+			base64 = parser.currentToken() == JsonToken.VALUE_TRUE;
+			break;
+		default:
+			parser.skipChildren();
+		}
+	}
+
+	// Body is normally a JSON string; a local test event may have it as an object
+	private void readBody(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_STRING) {
+			bodyText = parser.getText();
+		} else if (token == JsonToken.START_OBJECT) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (JsonGenerator generator = JsonReader.FACTORY.createGenerator(out)) {
+				generator.copyCurrentStructure(parser);
+			}
+			bodyBytes = out.toByteArray();
+		} else {
+			parser.skipChildren();
+		}
+	}
+
+	private void readRequestContext(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		JsonReader.readObject(parser, (section, p) -> {
+			if (("http".equals(section) || "identity".equals(section)) && p.currentToken() == JsonToken.START_OBJECT) {
+				JsonReader.readObject(p, (field, value) -> {
+					if ("sourceIp".equals(field)) {
+						sourceIp = JsonReader.text(value);
+					} else {
+						value.skipChildren();
+					}
+				});
+			} else {
+				p.skipChildren();
+			}
+		});
+	}
+
+	private static void readStrings(JsonParser parser, Map<String, String> target) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			parser.skipChildren(); // null
+			return;
+		}
+		JsonReader.readObject(parser, (name, value) -> {
+			String text = JsonReader.text(value);
+			if (text != null) {
+				target.put(name, text);
+			}
+		});
+	}
+}
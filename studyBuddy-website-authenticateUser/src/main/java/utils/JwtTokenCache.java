@@ -0,0 +1,136 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Bounded LRU cache of already verified tokens.
+ * Keyed by the SHA-256 digest of the token so raw bearer tokens are never kept in memory.
+ * An entry is only served before the token's exp, after that it is dropped.
+ */
+public class JwtTokenCache {
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final int maxEntries;
+	private final LinkedHashMap<ByteBuffer, Entry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public JwtTokenCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+				if (size() > JwtTokenCache.this.maxEntries) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Look up a previously verified token.
+	 * @param key digest from {@link #key(String)}
+	 * @param nowMillis current time
+	 * @return cached claims, or null on a miss or if the token has expired
+	 */
+	public Claims get(ByteBuffer key, long nowMillis) {
+		if (maxEntries <= 0) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && nowMillis >= entry.expiresAtMillis) {
+				entries.remove(key);
+				expirations.incrementAndGet();
+				entry = null;
+			}
+		}
+
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.claims;
+	}
+
+	/**
+	 * Cache verified claims until the token's exp. Tokens without exp are not cached.
+	 * @param key digest from {@link #key(String)}
+	 * @param claims verified claims
+	 */
+	public void put(ByteBuffer key, Claims claims) {
+		if (maxEntries <= 0 || claims.getExpiration() == null) {
+			return;
+		}
+		Entry entry = new Entry(claims, claims.getExpiration().getTime());
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Cache counters.
+	 * @return hits, misses, expirations, evictions, size and hit ratio
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long h = hits.get();
+		long m = misses.get();
+		stats.put("hits", h);
+		stats.put("misses", m);
+		stats.put("expirations", expirations.get());
+		stats.put("evictions", evictions.get());
+		synchronized (entries) {
+			stats.put("size", entries.size());
+		}
+		stats.put("hit_ratio", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+		return stats;
+	}
+
+	// Digest used as the cache key
+	public static ByteBuffer key(String token) {
+		return ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static final class Entry {
+		final Claims claims;
+		final long expiresAtMillis;
+
+		Entry(Claims claims, long expiresAtMillis) {
+			this.claims = claims;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+	}
+}
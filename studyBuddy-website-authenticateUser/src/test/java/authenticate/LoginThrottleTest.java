@@ -0,0 +1,51 @@
+package authenticate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that LoginThrottle sheds attempts past the burst and after failures.
+ */
+public class LoginThrottleTest {
+
+	private final LoginThrottle throttle = new LoginThrottle(
+			new LoginThrottle.Limit(3, 60), new LoginThrottle.Limit(5, 60), 1000, 60_000, 1000);
+
+	@Test
+	void testBurstThenRefill() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, throttle.tryAcquire("Joemama", null, 0));
+		}
+		long retryAfter = throttle.tryAcquire("joemama ", null, 0); // Same user, normalized
+		assertTrue(retryAfter > 0 && retryAfter <= 1000);
+		assertEquals(0, throttle.tryAcquire("Joemama", null, 1000)); // 60/min refills one per second
+		assertEquals(1L, throttle.getStats().get("shed_user"));
+	}
+
+	@Test
+	void testFailuresDelayProgressively() {
+		throttle.recordFailure("Joemama", "203.0.113.7", 0);
+		assertEquals(1000, throttle.tryAcquire("Joemama", "203.0.113.7", 0));
+		throttle.recordFailure("Joemama", "203.0.113.7", 1000);
+		assertEquals(2000, throttle.tryAcquire("Joemama", "203.0.113.7", 1000));
+		assertEquals(0, throttle.tryAcquire("someoneElse", "203.0.113.7", 1000));
+
+		// Failures from one address don't lock the owner out from theirs
+		assertEquals(0, throttle.tryAcquire("Joemama", "198.51.100.1", 1000));
+
+		throttle.recordSuccess("Joemama", "203.0.113.7");
+		assertEquals(0, throttle.tryAcquire("Joemama", "203.0.113.7", 1000));
+		assertEquals(2L, throttle.getStats().get("shed_delay"));
+	}
+
+	@Test
+	void testIpSharedAcrossUsernames() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, throttle.tryAcquire("user" + i, "203.0.113.7", 0));
+		}
+		assertTrue(throttle.tryAcquire("user9", "203.0.113.7", 0) > 0);
+		assertEquals(0, throttle.tryAcquire("user9", "198.51.100.1", 0));
+		assertEquals(1L, throttle.getStats().get("shed_ip"));
+	}
+}
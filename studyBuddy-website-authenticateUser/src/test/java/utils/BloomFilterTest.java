@@ -0,0 +1,31 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that BloomFilter never misses an added value and stays near its false positive rate.
+ */
+public class BloomFilterTest {
+
+	@Test
+	void testNoFalseNegativesAndLowFalsePositives() {
+		BloomFilter filter = new BloomFilter(10_000, 0.001);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("revoked-" + i);
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("revoked-" + i));
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("valid-" + i)) {
+				falsePositives++;
+			}
+		}
+		// 0.1% target, allow some slack
+		assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+	}
+}
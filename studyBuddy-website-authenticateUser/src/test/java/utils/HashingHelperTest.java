@@ -0,0 +1,49 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that PBKDF2 and legacy SHA-256 hashes verify, and that weaker hashes are flagged for rehash.
+ */
+public class HashingHelperTest {
+
+	@Test
+	void testPbkdf2RoundTrip() {
+		Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(1000);
+		String hash = hasher.hash("daPassword");
+
+		assertTrue(hash.startsWith("pbkdf2-sha256$1000$"));
+		assertNotEquals(hash, hasher.hash("daPassword")); // Salted
+		assertTrue(hasher.verify("daPassword", hash));
+		assertFalse(hasher.verify("wrongPassword", hash));
+		assertFalse(hasher.needsRehash(hash));
+		assertTrue(new Pbkdf2PasswordHasher(2000).needsRehash(hash));
+		assertTrue(new Pbkdf2PasswordHasher(2000).verify("daPassword", hash)); // Stored cost is used
+	}
+
+	@Test
+	void testLegacyHashVerifiesAndNeedsRehash() throws Exception {
+		// SHA-256 of "daPassword" as the original HashingHelper stored it
+		String legacy = new LegacySha256Hasher().hash("daPassword");
+
+		assertTrue(HashingHelper.verifyPassword("daPassword", legacy));
+		assertFalse(HashingHelper.verifyPassword("wrongPassword", legacy));
+		assertTrue(HashingHelper.needsRehash(legacy));
+
+		String upgraded = HashingHelper.hashPassword("daPassword");
+		assertTrue(HashingHelper.verifyPassword("daPassword", upgraded));
+		assertFalse(HashingHelper.needsRehash(upgraded));
+	}
+
+	@Test
+	void testHashAllKeepsOrder() throws Exception {
+		String[] hashes = HashingHelper.hashAll(java.util.List.of("one", "two", "three"));
+
+		assertEquals(3, hashes.length);
+		assertTrue(HashingHelper.verifyPassword("one", hashes[0]));
+		assertTrue(HashingHelper.verifyPassword("three", hashes[2]));
+		assertFalse(HashingHelper.verifyPassword("one", hashes[1]));
+	}
+}
@@ -0,0 +1,73 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Unit test ensuring that rotated keys keep verifying and that the ring reloads from file.
+ */
+public class JwtKeyRingTest {
+
+	private static final String OLD_SECRET = "old-old-old-old-old-old-old-old-";
+	private static final String NEW_SECRET = "new-new-new-new-new-new-new-new-";
+
+	@TempDir
+	Path dir;
+
+	private JwtKeyRing loadFile(Path file) {
+		System.setProperty("JWT_KEYS_FILE", file.toString());
+		try {
+			return JwtKeyRing.load();
+		} finally {
+			System.clearProperty("JWT_KEYS_FILE");
+		}
+	}
+
+	private static String token(String kid, SecretKey key) {
+		return Jwts.builder().header().keyId(kid).and()
+				.subject("3")
+				.expiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(key)
+				.compact();
+	}
+
+	@Test
+	void testRotationKeepsPreviousKeyVerifying() throws Exception {
+		Path file = dir.resolve("jwt-keys.properties");
+		Files.writeString(file, "current=v1\nkey.v1=" + OLD_SECRET + "\n");
+		JwtKeyRing ring = loadFile(file);
+		String oldToken = token("v1", ring.getCurrentKey());
+
+		// Rotate: v2 becomes current, v1 stays for verification
+		Files.writeString(file, "current=v2\nkey.v2=" + NEW_SECRET + "\nkey.v1=" + OLD_SECRET + "\n");
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1_000));
+		JwtKeyRing rotated = ring.reloadIfChanged();
+
+		assertNotSame(ring, rotated);
+		assertEquals("v2", rotated.getCurrentKid());
+		assertNotNull(new FastJwtVerifier(rotated).verify(oldToken, System.currentTimeMillis()));
+		assertNotNull(new FastJwtVerifier(rotated).verify(token("v2", rotated.getCurrentKey()), System.currentTimeMillis()));
+		assertSame(rotated, rotated.reloadIfChanged()); // Unchanged file
+	}
+
+	@Test
+	void testUnknownKidFallsBack() throws Exception {
+		Path file = dir.resolve("jwt-keys.properties");
+		Files.writeString(file, "current=v2\nkey.v2=" + NEW_SECRET + "\n");
+		JwtKeyRing ring = loadFile(file);
+
+		// Left to jjwt, whose key locator finds no key for the kid
+		assertNull(new FastJwtVerifier(ring).verify(token("v9", ring.getCurrentKey()), System.currentTimeMillis()));
+	}
+}
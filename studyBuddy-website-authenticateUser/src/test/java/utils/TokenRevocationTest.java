@@ -0,0 +1,32 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that a revoke-all is compared with iat in whole seconds.
+ */
+public class TokenRevocationTest {
+
+	@BeforeAll
+	static void configure() {
+		// Other tests in this JVM verify tokens without a database
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	@Test
+	void testIssuedBefore() {
+		long revokedAt = 1_700_000_000_500L;
+		long notBefore = revokedAt / 1000;
+
+		assertTrue(TokenRevocation.issuedBefore(new Date(revokedAt - 1000), notBefore));
+		// iat only has seconds, a login later in the same second must not be rejected
+		assertFalse(TokenRevocation.issuedBefore(new Date(revokedAt + 200), notBefore));
+		assertFalse(TokenRevocation.issuedBefore(new Date(revokedAt + 1000), notBefore));
+		assertTrue(TokenRevocation.issuedBefore(null, notBefore));
+	}
+}
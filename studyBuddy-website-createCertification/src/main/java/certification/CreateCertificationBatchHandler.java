@@ -0,0 +1,192 @@
+package certification;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.InvalidationBus;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.postgresql.util.PSQLException;
+
+import java.sql.*;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates many user_certs in one request, e.g. when onboarding a user who already holds some.
+ * Every item is validated before a connection is taken; if any is invalid nothing is created and
+ * the 400 lists each bad item. Otherwise all rows go in with one INSERT over unnest'ed arrays,
+ * and the new user_cert_ids come back in input order. If the database rejects a value (too long,
+ * a constraint), nothing is created either and the 400 names the items it rejected.
+ */
+public class CreateCertificationBatchHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	static final int MAX_ITEMS = 100;
+
+	static final String INSERT_SQL = "INSERT INTO user_cert (user_id, title, uid, description, cert_level, earned_on, expires_on, ce_hours_required, ce_hours_completed) "
+			+ "SELECT ?, t.title, t.uid, t.description, t.cert_level, t.earned_on, t.expires_on, t.ce_hours_required, t.ce_hours_completed "
+			+ "FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::date[], ?::date[], ?::int[], ?::int[]) WITH ORDINALITY "
+			+ "AS t(title, uid, description, cert_level, earned_on, expires_on, ce_hours_required, ce_hours_completed, n) "
+			+ "ORDER BY t.n RETURNING user_cert_id";
+
+	// Shared with CreateCertificationBatchStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("CreateCertificationBatchHandler")
+			.decodeBody(CreateCertificationBatchRequest::decode)
+			.requireAuth()
+			.validate(CreateCertificationBatchHandler::validate)
+			.handle(CreateCertificationBatchHandler::create)
+			.build();
+
+	@Override
+	public String handleRequest(Map<String, Object> event, Context context) {
+		return PIPELINE.execute(event).toJsonString();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	// Same rules as POST /certifications for every item, all errors reported at once
+	private static void validate(RequestContext ctx) throws ApiException {
+		CreateCertificationBatchRequest request = ctx.getRequest();
+		List<CreateCertificationRequest> items = request.getItems();
+		if (items == null || items.isEmpty() || items.size() > MAX_ITEMS) {
+			throw new ApiException(400, "Provide 1 to " + MAX_ITEMS + " user_certifications");
+		}
+
+		Date[][] dates = new Date[items.size()][];
+		JSONArray errors = new JSONArray();
+		for (int i = 0; i < items.size(); i++) {
+			try {
+				if (items.get(i) == null) {
+					throw new ApiException(400, "Not an object");
+				}
+				dates[i] = CreateCertificationHandler.check(items.get(i));
+			} catch (ApiException e) {
+				errors.put(new JSONObject().put("index", i).put("error", e.getMessage()));
+			}
+		}
+		if (!errors.isEmpty()) {
+			throw new ApiException(400, "Invalid user_certifications, nothing was created").withDetail("errors", errors);
+		}
+		ctx.setAttribute("dates", dates);
+	}
+
+	private static ApiResponse create(RequestContext ctx, Connection conn) throws SQLException, ApiException {
+		CreateCertificationBatchRequest request = ctx.getRequest();
+		List<CreateCertificationRequest> items = request.getItems();
+		Date[][] dates = ctx.getAttribute("dates");
+		long user_id = ctx.getUserId();
+
+		long[] ids;
+		try {
+			ids = insert(conn, user_id, items, dates);
+		} catch (SQLException e) {
+			if (!isDataError(e)) {
+				throw e;
+			}
+			JSONArray errors = locate(conn, user_id, items, dates);
+			if (errors.isEmpty()) {
+				errors.put(new JSONObject().put("error", message(e)));
+			}
+
+			// Log
+			System.out.println("Rejected certifications for user " + user_id + ": " + message(e));
+
+			throw new ApiException(400, "Invalid user_certifications, nothing was created").withDetail("errors", errors);
+		}
+		InvalidationBus.publish(conn, InvalidationBus.Entity.CERTIFICATIONS, user_id);
+
+		// Log
+		System.out.println("Created " + ids.length + " certifications for user " + user_id);
+
+		return ApiResponse.of(200, new JSONObject()
+				.put("message", "User_certs created successfully")
+				.put("user_cert_ids", new JSONArray(ids)));
+	}
+
+	// One INSERT for every item, returns the new ids in input order
+	private static long[] insert(Connection conn, long userId, List<CreateCertificationRequest> items, Date[][] dates) throws SQLException {
+		int n = items.size();
+		String[][] text = new String[6][n];
+		Integer[][] hours = new Integer[2][n];
+		for (int i = 0; i < n; i++) {
+			CreateCertificationRequest item = items.get(i);
+			text[0][i] = item.getTitle();
+			text[1][i] = item.getUid();
+			text[2][i] = item.getDescription();
+			text[3][i] = item.getCertLevel();
+			text[4][i] = dates[i][0] == null ? null : dates[i][0].toString();
+			text[5][i] = dates[i][1] == null ? null : dates[i][1].toString();
+			hours[0][i] = CreateCertificationHandler.hoursOrZero(item.getCeHoursRequired());
+			hours[1][i] = CreateCertificationHandler.hoursOrZero(item.getCeHoursCompleted());
+		}
+
+		long[] ids = new long[n];
+		try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+			stmt.setLong(1, userId);
+			for (int c = 0; c < text.length; c++) {
+				stmt.setArray(c + 2, conn.createArrayOf("text", text[c]));
+			}
+			stmt.setArray(8, conn.createArrayOf("integer", hours[0]));
+			stmt.setArray(9, conn.createArrayOf("integer", hours[1]));
+			try (ResultSet rs = stmt.executeQuery()) {
+				int count = 0;
+				while (rs.next()) {
+					ids[count++] = rs.getLong(1);
+				}
+			}
+		}
+		// Rows are inserted in ordinality order and each draws its id from the sequence then
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	// After a failed INSERT, retry the items one by one to find which the database rejects; nothing is kept
+	private static JSONArray locate(Connection conn, long userId, List<CreateCertificationRequest> items, Date[][] dates) throws SQLException {
+		JSONArray errors = new JSONArray();
+		conn.setAutoCommit(false);
+		try (PreparedStatement stmt = conn.prepareStatement(CreateCertificationHandler.INSERT_SQL)) {
+			for (int i = 0; i < items.size(); i++) {
+				Savepoint savepoint = conn.setSavepoint();
+				try {
+					CreateCertificationHandler.bind(stmt, userId, items.get(i), dates[i]);
+					stmt.executeUpdate();
+					conn.releaseSavepoint(savepoint);
+				} catch (SQLException e) {
+					if (!isDataError(e)) {
+						throw e;
+					}
+					conn.rollback(savepoint);
+					errors.put(new JSONObject().put("index", i).put("error", message(e)));
+				}
+			}
+		} finally {
+			conn.rollback();
+			conn.setAutoCommit(true);
+		}
+		return errors;
+	}
+
+	// Class 22 (data exception) or 23 (integrity constraint violation), the request's fault
+	private static boolean isDataError(SQLException e) {
+		String state = e.getSQLState();
+		return state != null && (state.startsWith("22") || state.startsWith("23"));
+	}
+
+	private static String message(SQLException e) {
+		if (e instanceof PSQLException && ((PSQLException) e).getServerErrorMessage() != null) {
+			return ((PSQLException) e).getServerErrorMessage().getMessage();
+		}
+		return e.getMessage();
+	}
+}
@@ -0,0 +1,58 @@
+package certification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import utils.JsonReader;
+
+/**
+ * Body of POST /certifications/batch: an array of POST /certifications bodies, either as the
+ * whole body or as {"user_certifications": [...]}.
+ */
+public class CreateCertificationBatchRequest {
+
+	private List<CreateCertificationRequest> items;
+
+	// Decode from the body JSON, other fields are skipped
+	public static CreateCertificationBatchRequest decode(JsonParser parser) throws IOException {
+		CreateCertificationBatchRequest request = new CreateCertificationBatchRequest();
+		JsonToken token = parser.currentToken() == null ? parser.nextToken() : parser.currentToken();
+		if (token == JsonToken.START_ARRAY) {
+			request.readItems(parser);
+		} else {
+			JsonReader.readObject(parser, (name, value) -> {
+				if ("user_certifications".equals(name)) {
+					request.readItems(value);
+				} else {
+					value.skipChildren();
+				}
+			});
+		}
+		return request;
+	}
+
+	private void readItems(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return;
+		}
+		items = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.currentToken() == JsonToken.START_OBJECT) {
+				items.add(CreateCertificationRequest.decode(parser));
+			} else {
+				parser.skipChildren();
+				items.add(null);
+			}
+		}
+	}
+
+	// Certifications in input order, null entries for items that aren't objects; null if no array was sent
+	public List<CreateCertificationRequest> getItems() {
+		return items;
+	}
+}
@@ -3,151 +3,131 @@ package certification;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 
-import io.jsonwebtoken.Claims;
-import utils.JwtHelper;
-import utils.JwtValidationException;
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.InvalidationBus;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
 
 import org.json.JSONObject;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.sql.Date;
 import java.util.Map;
 
 /**
  * Certification creator handler. Creates user_certs and returns proper HTTP status code and response.
  */
-public class CreateCertificationHandler implements RequestHandler<Map<String, Object>, String> {
+public class CreateCertificationHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	static final String INSERT_SQL = "INSERT INTO user_cert (user_id, title, uid, description, cert_level, earned_on, expires_on, ce_hours_required, ce_hours_completed) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	// Shared with CreateCertificationStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("CreateCertificationHandler")
+			.decodeBody(CreateCertificationRequest::decode)
+			.requireAuth()
+			.validate(CreateCertificationHandler::validate)
+			.handle(CreateCertificationHandler::create)
+			.build();
 
 	@Override
 	public String handleRequest(Map<String, Object> event, Context context) {
-		JSONObject response = new JSONObject();
-
-		try (Connection conn = DriverManager.getConnection(
-				System.getenv("DB_URL"),
-				System.getenv("DB_USER"),
-				System.getenv("DB_PASSWORD"))) {
-
-			// Accept both API Gateway (body as string) and direct JSON (fields at top level)
-			JSONObject body;
-			Object bodyObj = event.get("body");
-			if (bodyObj instanceof String) {
-				// API Gateway: body is a JSON string
-				body = new JSONObject((String) bodyObj);
-			} else if (bodyObj instanceof Map) {
-				// Local/direct: body is already a map
-				body = new JSONObject((Map<?, ?>) bodyObj);
-			} else if (bodyObj == null) {
-				// No "body" key, treat event itself as the body (for local direct JSON)
-				body = new JSONObject(event);
-			} else {
-				throw new IllegalArgumentException("Invalid event format");
-			}
-
-			// Extract JWT token from headers
-			@SuppressWarnings("unchecked")
-			Map<String, String> headers = (Map<String, String>) event.get("headers");
-			if (headers == null) {
-				return errorResponse(400, "Missing headers").toString();
-			}
-
-			String token = headers.get("Authorization");
-			if (token == null) {
-				token = headers.get("authorization");
-			}
-			if (token == null) {
-				return errorResponse(400, "Missing JWT token in Authorization header").toString();
-			}
-
-			Claims claims = JwtHelper.parseToken(token);
-			long user_id = Long.parseLong(claims.getSubject());
-			
-			String title = body.getString("title");
-			String uid = body.getString("uid");
-			String description = body.optString("description", null);
-			String cert_level = body.getString("cert_level");
-			
-			// Turn dates into correct format
-			Date earned_on = null;
-			if (body.has("earned_on") && !body.isNull("earned_on")) {
-				earned_on = Date.valueOf(LocalDate.parse(body.getString("earned_on")));
-			}
-			Date expires_on = null;
-			if (body.has("expires_on") && !body.isNull("expires_on")) {
-				expires_on = Date.valueOf(LocalDate.parse(body.getString("expires_on")));
-			}
-
-			int ce_hours_required = body.optInt("ce_hours_required", 0);
-			int ce_hours_completed = body.optInt("ce_hours_completed", 0);
-
-			// Insert into user_certification table
-			String sql = "INSERT INTO user_cert (user_id, title, uid, description, cert_level, earned_on, expires_on, ce_hours_required, ce_hours_completed) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING user_cert_id";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setLong(1, user_id);
-				stmt.setString(2, title);
-				stmt.setString(3, uid);
-				stmt.setString(4, description);
-				stmt.setString(5, cert_level);
-				if (earned_on != null) {
-					stmt.setDate(6, earned_on);
-				} else {
-					stmt.setNull(6, java.sql.Types.DATE);
-				}
-				if (expires_on != null) {
-					stmt.setDate(7, expires_on);
-				} else {
-					stmt.setNull(7, java.sql.Types.DATE);
-				}
-				stmt.setInt(8, ce_hours_required);
-				stmt.setInt(9, ce_hours_completed);
-
-				ResultSet rs = stmt.executeQuery();
-				rs.next();
-				long newId = rs.getLong("user_cert_id");
-
-				response.put("statusCode", 200);
-				response.put("body", new JSONObject()
-						.put("message", "User_cert created successfully")
-						.put("user_cert_id", newId)
-						.toString());
-
-				// Log
-				System.out.println("Created certification (ID: " + newId + ")");
-			}
-
-		} catch (JwtValidationException e) {
-			response = new JSONObject();
-			response.put("statusCode", e.getStatusCode());
-			response.put("body", new JSONObject()
-					.put("error", e.getMessage())
-					.toString());
+		return PIPELINE.execute(event).toJsonString();
+	}
 
-			// Log
-			System.out.println("JWT error: " + e.getMessage());
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
 
-			return response.toString();
+	private static void validate(RequestContext ctx) throws ApiException {
+		ctx.setAttribute("dates", check(ctx.getRequest()));
+	}
+
+	/**
+	 * title, uid and cert_level are NOT NULL, dates must parse, hours sent must fit the INTEGER columns.
+	 * @param request certification to create
+	 * @return earned_on and expires_on, either may be null
+	 * @throws ApiException 400 naming the first bad field
+	 */
+	static Date[] check(CreateCertificationRequest request) throws ApiException {
+		RequestContext.require(request.getTitle(), "title");
+		RequestContext.require(request.getUid(), "uid");
+		RequestContext.require(request.getCertLevel(), "cert_level");
+		if (request.hasCeHoursRequired()) {
+			hours(request.getCeHoursRequired(), "ce_hours_required");
+		}
+		if (request.hasCeHoursCompleted()) {
+			hours(request.getCeHoursCompleted(), "ce_hours_completed");
+		}
 
-		} catch (Exception e) {
-			response.put("statusCode", 500);
-			response.put("body", new JSONObject()
-					.put("error", "Internal server error")
-					.put("details", e.getMessage())
-					.toString());
+		// Turn dates into correct format
+		return new Date[] {
+				RequestContext.parseDate(request.getEarnedOn(), "earned_on"),
+				RequestContext.parseDate(request.getExpiresOn(), "expires_on")
+		};
+	}
 
-			// Log
-			System.err.println("Error in CreateCertificationHandler: " + e.getMessage());
-			e.printStackTrace();
+	// Hours as sent, which must fit the INTEGER column and not be negative
+	static int hours(Long value, String field) throws ApiException {
+		if (value == null || value < 0 || value > Integer.MAX_VALUE) {
+			throw new ApiException(400, "Invalid " + field + ", must be a whole number from 0 to " + Integer.MAX_VALUE);
 		}
+		return value.intValue();
+	}
+
+	// Hours once check() passed, 0 when not sent
+	static int hoursOrZero(Long value) {
+		return value == null ? 0 : value.intValue();
+	}
 
-		return response.toString();
+	/**
+	 * Bind the parameters of INSERT_SQL.
+	 * @param stmt statement
+	 * @param userId owner
+	 * @param request certification
+	 * @param dates dates from check()
+	 */
+	static void bind(PreparedStatement stmt, long userId, CreateCertificationRequest request, Date[] dates) throws SQLException {
+		stmt.setLong(1, userId);
+		stmt.setString(2, request.getTitle());
+		stmt.setString(3, request.getUid());
+		stmt.setString(4, request.getDescription());
+		stmt.setString(5, request.getCertLevel());
+		if (dates[0] != null) {
+			stmt.setDate(6, dates[0]);
+		} else {
+			stmt.setNull(6, java.sql.Types.DATE);
+		}
+		if (dates[1] != null) {
+			stmt.setDate(7, dates[1]);
+		} else {
+			stmt.setNull(7, java.sql.Types.DATE);
+		}
+		stmt.setInt(8, hoursOrZero(request.getCeHoursRequired()));
+		stmt.setInt(9, hoursOrZero(request.getCeHoursCompleted()));
 	}
 
-	private JSONObject errorResponse(int code, String message) {
-		JSONObject resp = new JSONObject();
-		resp.put("statusCode", code);
-		resp.put("body", new JSONObject()
-				.put("error", message)
-				.toString());
-		return resp;
+	private static ApiResponse create(RequestContext ctx, Connection conn) throws SQLException {
+		CreateCertificationRequest request = ctx.getRequest();
+		long user_id = ctx.getUserId();
+
+		// Insert into user_certification table
+		try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL + " RETURNING user_cert_id")) {
+			bind(stmt, user_id, request, ctx.getAttribute("dates"));
+
+			ResultSet rs = stmt.executeQuery();
+			rs.next();
+			long newId = rs.getLong("user_cert_id");
+			InvalidationBus.publish(conn, InvalidationBus.Entity.CERTIFICATIONS, user_id);
+
+			// Log
+			System.out.println("Created certification (ID: " + newId + ")");
+
+			return ApiResponse.of(200, new JSONObject()
+					.put("message", "User_cert created successfully")
+					.put("user_cert_id", newId));
+		}
 	}
 }
@@ -0,0 +1,106 @@
+package certification;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import utils.JsonReader;
+
+/**
+ * Body of POST /certifications.
+ */
+public class CreateCertificationRequest {
+
+	private String title;
+	private String uid;
+	private String description;
+	private String certLevel;
+	private String earnedOn;
+	private String expiresOn;
+	private boolean hasCeHoursRequired;
+	private Long ceHoursRequired;
+	private boolean hasCeHoursCompleted;
+	private Long ceHoursCompleted;
+
+	// Decode from the body JSON, other fields are skipped
+	public static CreateCertificationRequest decode(JsonParser parser) throws IOException {
+		CreateCertificationRequest request = new CreateCertificationRequest();
+		JsonReader.readObject(parser, (name, value) -> {
+			switch (name) {
+			case "title":
+				request.title = JsonReader.text(value);
+				break;
+			case "uid":
+				request.uid = JsonReader.text(value);
+				break;
+			case "description":
+				request.description = JsonReader.text(value);
+				break;
+			case "cert_level":
+				request.certLevel = JsonReader.text(value);
+				break;
+			case "earned_on":
+				request.earnedOn = JsonReader.text(value);
+				break;
+			case "expires_on":
+				request.expiresOn = JsonReader.text(value);
+				break;
+			case "ce_hours_required":
+				// null counts as not sent, anything else is checked during validation
+				request.hasCeHoursRequired = value.currentToken() != JsonToken.VALUE_NULL;
+				request.ceHoursRequired = JsonReader.longValue(value);
+				break;
+			case "ce_hours_completed":
+				request.hasCeHoursCompleted = value.currentToken() != JsonToken.VALUE_NULL;
+				request.ceHoursCompleted = JsonReader.longValue(value);
+				break;
+			default:
+				value.skipChildren();
+			}
+		});
+		return request;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getUid() {
+		return uid;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getCertLevel() {
+		return certLevel;
+	}
+
+	// yyyy-MM-dd as sent, parsed during validation
+	public String getEarnedOn() {
+		return earnedOn;
+	}
+
+	public String getExpiresOn() {
+		return expiresOn;
+	}
+
+	public boolean hasCeHoursRequired() {
+		return hasCeHoursRequired;
+	}
+
+	// null if not sent or not a whole number
+	public Long getCeHoursRequired() {
+		return ceHoursRequired;
+	}
+
+	public boolean hasCeHoursCompleted() {
+		return hasCeHoursCompleted;
+	}
+
+	public Long getCeHoursCompleted() {
+		return ceHoursCompleted;
+	}
+}
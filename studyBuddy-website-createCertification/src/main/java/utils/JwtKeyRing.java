@@ -0,0 +1,170 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.crypto.SecretKey;
+
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Immutable set of JWT signing keys, looked up by kid.
+ * New tokens are signed with the current key, and tokens signed with any key in the ring
+ * still verify, so rotating JWT_KEY doesn't log everyone out.
+ *
+ * Keys come from JWT_KEYS_FILE if set, a properties file like:
+ *   current=2025-10
+ *   key.2025-10=&lt;new secret&gt;
+ *   key.2025-07=&lt;previous secret&gt;
+ * Otherwise from JWT_KEY (optional JWT_KEY_ID) plus JWT_PREVIOUS_KEYS ("kid=secret,kid=secret").
+ */
+public class JwtKeyRing {
+
+	private final String currentKid;
+	private final Map<String, SecretKey> keys;
+	private final Path file;
+	private final long fileModifiedMillis;
+
+	private JwtKeyRing(String currentKid, Map<String, SecretKey> keys, Path file, long fileModifiedMillis) {
+		if (currentKid == null || !keys.containsKey(currentKid)) {
+			throw new IllegalStateException("JWT key ring has no current key");
+		}
+		this.currentKid = currentKid;
+		this.keys = Collections.unmodifiableMap(keys);
+		this.file = file;
+		this.fileModifiedMillis = fileModifiedMillis;
+	}
+
+	// Ring with a single key
+	public static JwtKeyRing of(String kid, SecretKey key) {
+		Map<String, SecretKey> keys = new LinkedHashMap<>();
+		keys.put(kid, key);
+		return new JwtKeyRing(kid, keys, null, 0);
+	}
+
+	/**
+	 * Load the ring from configuration.
+	 * @return key ring
+	 */
+	public static JwtKeyRing load() {
+		String file = EnvHelper.get("JWT_KEYS_FILE");
+		if (file != null) {
+			return loadFile(Paths.get(file));
+		}
+
+		String secret = EnvHelper.get("JWT_KEY");
+		if (secret == null) {
+			throw new IllegalStateException("JWT_KEY environment variable is not set");
+		}
+		String currentKid = EnvHelper.get("JWT_KEY_ID", deriveKid(secret));
+
+		Map<String, SecretKey> keys = new LinkedHashMap<>();
+		keys.put(currentKid, toKey(secret));
+
+		String previous = EnvHelper.get("JWT_PREVIOUS_KEYS");
+		if (previous != null) {
+			for (String entry : previous.split(",")) {
+				String trimmed = entry.trim();
+				if (trimmed.isEmpty()) {
+					continue;
+				}
+				int eq = trimmed.indexOf('=');
+				String kid = eq > 0 ? trimmed.substring(0, eq) : deriveKid(trimmed);
+				String previousSecret = eq > 0 ? trimmed.substring(eq + 1) : trimmed;
+				keys.putIfAbsent(kid, toKey(previousSecret));
+			}
+		}
+		return new JwtKeyRing(currentKid, keys, null, 0);
+	}
+
+	/**
+	 * Reload if the ring came from a file that has changed since.
+	 * @return the new ring, or this ring if nothing changed or the new file is unusable
+	 */
+	public JwtKeyRing reloadIfChanged() {
+		if (file == null) {
+			return this;
+		}
+		try {
+			if (Files.getLastModifiedTime(file).toMillis() == fileModifiedMillis) {
+				return this;
+			}
+			JwtKeyRing reloaded = loadFile(file);
+
+			// Log
+			System.out.println("Reloaded JWT key ring, current kid: " + reloaded.currentKid + ", keys: " + reloaded.keys.keySet());
+
+			return reloaded;
+		} catch (IOException | RuntimeException e) {
+			// Keep serving with the keys we have
+			System.err.println("Failed to reload JWT key ring: " + e.getMessage());
+			return this;
+		}
+	}
+
+	public String getCurrentKid() {
+		return currentKid;
+	}
+
+	public SecretKey getCurrentKey() {
+		return keys.get(currentKid);
+	}
+
+	// Key for a kid, null if it isn't in the ring
+	public SecretKey get(String kid) {
+		return kid == null ? null : keys.get(kid);
+	}
+
+	public Map<String, SecretKey> getKeys() {
+		return keys;
+	}
+
+	private static JwtKeyRing loadFile(Path path) {
+		try {
+			long modified = Files.getLastModifiedTime(path).toMillis();
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+
+			Map<String, SecretKey> keys = new LinkedHashMap<>();
+			for (String name : properties.stringPropertyNames()) {
+				if (name.startsWith("key.")) {
+					keys.put(name.substring(4), toKey(properties.getProperty(name).trim()));
+				}
+			}
+			return new JwtKeyRing(properties.getProperty("current", "").trim(), keys, path, modified);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read JWT_KEYS_FILE " + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	// Since secrets are plain text, use .getBytes()
+	private static SecretKey toKey(String secret) {
+		return Keys.hmacShaKeyFor(secret.getBytes());
+	}
+
+	// Stable kid for a secret configured without one
+	private static String deriveKid(String secret) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+			StringBuilder kid = new StringBuilder("k");
+			for (int i = 0; i < 4; i++) {
+				kid.append(String.format("%02x", hash[i]));
+			}
+			return kid.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,455 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Shared request flow for the route handlers, in a fixed order:
+ * body parse, header extraction, JWT verify, validation, and only then a pooled connection.
+ * Malformed requests and bad tokens are rejected before any database work.
+ * Requests come in either as the Map the Lambda runtime builds, or as the raw event stream
+ * of a RequestStreamHandler, which is decoded in one pass straight into a typed request.
+ * Responses are delivered while the connection is still held, so a streamed body
+ * (ApiResponse.stream) can write rows as they are read.
+ * Every stage is timed per request and in totals per pipeline.
+ */
+public class RequestPipeline {
+
+	public enum Stage { BODY, HEADERS, AUTH, VALIDATE, DATABASE, HANDLE }
+
+	// Checks the request before a connection is taken; throws ApiException to reject it
+	public interface Validator {
+		void validate(RequestContext ctx) throws Exception;
+	}
+
+	// Answers a valid request without a connection when it can, e.g. from a cache; null to go on to the handler
+	public interface Lookup {
+		ApiResponse lookup(RequestContext ctx) throws Exception;
+	}
+
+	// Does the work once the request is known to be valid
+	public interface Handler {
+		ApiResponse handle(RequestContext ctx, Connection conn) throws Exception;
+	}
+
+	// Sends a response, e.g. to a Lambda output stream or an HTTP exchange
+	public interface ResponseSink {
+		void send(ApiResponse response) throws Exception;
+	}
+
+	// One step of a stage
+	private interface Step {
+		void run() throws Exception;
+	}
+
+	private static final boolean LOG_TIMINGS = Boolean.parseBoolean(EnvHelper.get("PIPELINE_TIMING_LOG", "false"));
+
+	private final String name;
+	private final boolean parseBody;
+	private final boolean rawBody;
+	private final JsonReader.BodyDecoder<?> decoder;
+	private final boolean requireAuth;
+	private final Validator validator;
+	private final Lookup lookup;
+	private final Handler handler;
+
+	private final AtomicLongArray totalNanos = new AtomicLongArray(Stage.values().length);
+	private final AtomicLongArray stageCounts = new AtomicLongArray(Stage.values().length);
+
+	private RequestPipeline(Builder builder) {
+		this.name = builder.name;
+		this.parseBody = builder.parseBody;
+		this.rawBody = builder.rawBody;
+		this.decoder = builder.decoder;
+		this.requireAuth = builder.requireAuth;
+		this.validator = builder.validator;
+		this.lookup = builder.lookup;
+		this.handler = builder.handler;
+	}
+
+	/**
+	 * @param name handler name, used in logs
+	 * @return builder
+	 */
+	public static Builder builder(String name) {
+		return new Builder(name);
+	}
+
+	/**
+	 * Run a request through the stages.
+	 * @param event API Gateway proxy event, as built by the Lambda runtime
+	 * @return response, errors included
+	 */
+	public ApiResponse execute(Map<String, Object> event) {
+		return execute(event, null);
+	}
+
+	/**
+	 * Run a request through the stages and hand the response to a sink.
+	 * @param event API Gateway proxy event
+	 * @param sink receives the response exactly once; null to render it into the returned response
+	 * @return response, errors included
+	 */
+	public ApiResponse execute(Map<String, Object> event, ResponseSink sink) {
+		RequestContext ctx = new RequestContext();
+		return deliver(ctx, sink, run(ctx, sink, () -> {
+			if (decoder != null) {
+				try (JsonParser parser = bodyParser(event)) {
+					ctx.request = decode(parser);
+				}
+			} else if (parseBody) {
+				ctx.body = parseBody(event);
+			} else if (rawBody) {
+				ctx.rawBody = rawBody(event);
+			}
+		}, () -> {
+			ctx.headers = strings(event.get("headers"));
+			ctx.query = strings(event.get("queryStringParameters"));
+			ctx.pathParameters = strings(event.get("pathParameters"));
+			ctx.sourceIp = sourceIp(event);
+		}));
+	}
+
+	/**
+	 * Run a request through the stages, decoding the raw event in one pass.
+	 * @param input raw API Gateway proxy event
+	 * @return response, errors included
+	 */
+	public ApiResponse execute(InputStream input) {
+		return execute(input, (ResponseSink) null);
+	}
+
+	/**
+	 * Run a raw event through the stages and write the proxy response to the Lambda output.
+	 * @param input raw API Gateway proxy event
+	 * @param output Lambda output stream
+	 */
+	public void execute(InputStream input, OutputStream output) throws IOException {
+		ApiResponse response = execute(input, r -> r.writeTo(output));
+		if (response == null) {
+			throw new IOException("Failed to write response");
+		}
+	}
+
+	private ApiResponse execute(InputStream input, ResponseSink sink) {
+		RequestContext ctx = new RequestContext();
+		EventDecoder[] decoded = new EventDecoder[1];
+		return deliver(ctx, sink, run(ctx, sink, () -> {
+			try {
+				decoded[0] = EventDecoder.decode(input);
+			} catch (IOException e) {
+				throw new ApiException(400, "Invalid event format");
+			}
+			if (decoder != null) {
+				try (JsonParser parser = decoded[0].openBody()) {
+					ctx.request = decode(parser);
+				}
+			} else if (parseBody) {
+				ctx.body = parseBody(decoded[0].getBodyText());
+			} else if (rawBody) {
+				ctx.rawBody = decoded[0].getBodyText();
+			}
+		}, () -> {
+			ctx.headers = decoded[0].getHeaders().isEmpty() ? null : decoded[0].getHeaders();
+			ctx.query = decoded[0].getQuery();
+			ctx.pathParameters = decoded[0].getPathParameters();
+			ctx.sourceIp = decoded[0].getSourceIp();
+		}));
+	}
+
+	// Send a response the stages ended with (rejections and errors), unless the handler's was sent
+	private ApiResponse deliver(RequestContext ctx, ResponseSink sink, ApiResponse response) {
+		if (sink == null || ctx.sent) {
+			return response;
+		}
+		try {
+			sink.send(response);
+			return response;
+		} catch (Exception e) {
+			// Log
+			System.err.println("Failed to send response from " + name + ": " + e.getMessage());
+
+			return null;
+		}
+	}
+
+	private ApiResponse run(RequestContext ctx, ResponseSink sink, Step body, Step headers) {
+		try {
+			long start = System.nanoTime();
+			body.run();
+			if (parseBody || decoder != null || rawBody) {
+				start = record(ctx, Stage.BODY, start);
+			}
+
+			headers.run();
+			start = record(ctx, Stage.HEADERS, start);
+
+			if (requireAuth) {
+				if (ctx.headers == null) {
+					throw new ApiException(400, "Missing headers");
+				}
+				String token = ctx.getHeader("Authorization");
+				if (token == null) {
+					throw new ApiException(400, "Missing JWT token in Authorization header");
+				}
+				ctx.claims = JwtHelper.parseToken(token);
+				start = record(ctx, Stage.AUTH, start);
+			}
+
+			if (validator != null) {
+				validator.validate(ctx);
+				start = record(ctx, Stage.VALIDATE, start);
+			}
+
+			if (lookup != null) {
+				ApiResponse response = lookup.lookup(ctx);
+				if (response != null) {
+					respond(ctx, sink, response);
+					record(ctx, Stage.HANDLE, start);
+					return response;
+				}
+			}
+
+			try (Connection conn = DatabaseHelper.getConnection()) {
+				start = record(ctx, Stage.DATABASE, start);
+				ApiResponse response = handler.handle(ctx, conn);
+				respond(ctx, sink, response);
+				record(ctx, Stage.HANDLE, start);
+				return response;
+			}
+
+		} catch (ApiException e) {
+			JSONObject error = new JSONObject().put("error", e.getMessage());
+			e.getDetails().forEach(error::put);
+			ApiResponse response = ApiResponse.of(e.getStatusCode(), error);
+			e.getHeaders().forEach(response::withHeader);
+			return response;
+
+		} catch (JwtValidationException e) {
+			// Log
+			System.out.println("JWT error: " + e.getMessage());
+
+			return ApiResponse.error(e.getStatusCode(), e.getMessage());
+
+		} catch (PasswordHashingException e) {
+			// Log
+			System.err.println("Password hashing unavailable: " + e.getMessage());
+
+			return ApiResponse.error(e.getStatusCode(), e.getMessage());
+
+		} catch (Exception e) {
+			// Log
+			System.err.println("Error in " + name + ": " + e.getMessage());
+			e.printStackTrace();
+
+			return ApiResponse.of(500, new JSONObject()
+					.put("error", "Internal server error")
+					.put("details", e.getMessage()));
+		} finally {
+			if (LOG_TIMINGS) {
+				logTimings(ctx);
+			}
+		}
+	}
+
+	private static void respond(RequestContext ctx, ResponseSink sink, ApiResponse response) throws Exception {
+		if (sink == null) {
+			response.render();
+		} else {
+			// Streamed bodies may still read from conn, a failure part way can't be answered
+			ctx.sent = true;
+			sink.send(response);
+		}
+	}
+
+	/**
+	 * Stage timing totals
+	 * @return per stage: requests that reached it and average microseconds
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		for (Stage stage : Stage.values()) {
+			long count = stageCounts.get(stage.ordinal());
+			Map<String, Object> stageStats = new LinkedHashMap<>();
+			stageStats.put("count", count);
+			stageStats.put("avg_us", count == 0 ? 0 : totalNanos.get(stage.ordinal()) / count / 1000);
+			stats.put(stage.name().toLowerCase(), stageStats);
+		}
+		return stats;
+	}
+
+	private long record(RequestContext ctx, Stage stage, long start) {
+		long now = System.nanoTime();
+		ctx.recordStage(stage, now - start);
+		totalNanos.addAndGet(stage.ordinal(), now - start);
+		stageCounts.incrementAndGet(stage.ordinal());
+		return now;
+	}
+
+	private void logTimings(RequestContext ctx) {
+		StringBuilder line = new StringBuilder(name).append(" timings (us):");
+		for (Stage stage : Stage.values()) {
+			line.append(' ').append(stage.name().toLowerCase()).append('=').append(ctx.getStageNanos(stage) / 1000);
+		}
+		// Log
+		System.out.println(line);
+	}
+
+	private Object decode(JsonParser parser) throws ApiException {
+		try {
+			return decoder.decode(parser);
+		} catch (IOException e) {
+			throw new ApiException(400, "Invalid JSON body");
+		}
+	}
+
+	// Accept both API Gateway (body as string) and direct JSON (fields at top level)
+	private static JsonParser bodyParser(Map<String, Object> event) throws IOException, ApiException {
+		Object bodyObj = event.get("body");
+		if (bodyObj instanceof String) {
+			// API Gateway: body is a JSON string
+			return JsonReader.FACTORY.createParser((String) bodyObj);
+		} else if (bodyObj instanceof Map) {
+			// Local/direct: body is already a map
+			return JsonReader.FACTORY.createParser(new JSONObject((Map<?, ?>) bodyObj).toString());
+		} else if (bodyObj == null) {
+			// No "body" key, treat event itself as the body (for local direct JSON)
+			return JsonReader.FACTORY.createParser(new JSONObject(event).toString());
+		}
+		throw new ApiException(400, "Invalid event format");
+	}
+
+	// Body text as sent, e.g. CSV; REST APIs base64 encode binary media types
+	private static String rawBody(Map<String, Object> event) throws ApiException {
+		if (!(event.get("body") instanceof String)) {
+			throw new ApiException(400, "Missing body");
+		}
+		String body = (String) event.get("body");
+		if (Boolean.TRUE.equals(event.get("isBase64Encoded"))) {
+			try {
+				return new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+			} catch (IllegalArgumentException e) {
+				throw new ApiException(400, "Invalid body encoding");
+			}
+		}
+		return body;
+	}
+
+	private static JSONObject parseBody(Map<String, Object> event) throws ApiException {
+		Object bodyObj = event.get("body");
+		if (bodyObj instanceof String) {
+			return parseBody((String) bodyObj);
+		} else if (bodyObj instanceof Map) {
+			return new JSONObject((Map<?, ?>) bodyObj);
+		} else if (bodyObj == null) {
+			return new JSONObject(event);
+		}
+		throw new ApiException(400, "Invalid event format");
+	}
+
+	private static JSONObject parseBody(String body) throws ApiException {
+		try {
+			return new JSONObject(body);
+		} catch (JSONException e) {
+			throw new ApiException(400, "Invalid JSON body");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, String> strings(Object map) {
+		return map instanceof Map ? (Map<String, String>) map : null;
+	}
+
+	// Client address set by API Gateway (REST or HTTP API) or the standalone server
+	private static String sourceIp(Map<String, Object> event) {
+		Object requestContext = event.get("requestContext");
+		if (!(requestContext instanceof Map)) {
+			return null;
+		}
+		Map<?, ?> rc = (Map<?, ?>) requestContext;
+		for (String section : new String[] { "http", "identity" }) {
+			Object part = rc.get(section);
+			if (part instanceof Map && ((Map<?, ?>) part).get("sourceIp") != null) {
+				return String.valueOf(((Map<?, ?>) part).get("sourceIp"));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Builder for a route's pipeline.
+	 */
+	public static class Builder {
+		private final String name;
+		private boolean parseBody;
+		private boolean rawBody;
+		private JsonReader.BodyDecoder<?> decoder;
+		private boolean requireAuth;
+		private Validator validator;
+		private Lookup lookup;
+		private Handler handler;
+
+		private Builder(String name) {
+			this.name = name;
+		}
+
+		// Parse the JSON body before anything else
+		public Builder parseBody() {
+			this.parseBody = true;
+			return this;
+		}
+
+		// Keep the body as text without parsing it, see RequestContext.getRawBody()
+		public Builder rawBody() {
+			this.rawBody = true;
+			return this;
+		}
+
+		// Decode the body straight into a typed request, see RequestContext.getRequest()
+		public Builder decodeBody(JsonReader.BodyDecoder<?> decoder) {
+			this.decoder = decoder;
+			return this;
+		}
+
+		// Require a valid JWT in the Authorization header
+		public Builder requireAuth() {
+			this.requireAuth = true;
+			return this;
+		}
+
+		public Builder validate(Validator validator) {
+			this.validator = validator;
+			return this;
+		}
+
+		// Checked after validation, before a connection is taken
+		public Builder lookup(Lookup lookup) {
+			this.lookup = lookup;
+			return this;
+		}
+
+		public Builder handle(Handler handler) {
+			this.handler = handler;
+			return this;
+		}
+
+		public RequestPipeline build() {
+			if (handler == null) {
+				throw new IllegalStateException("RequestPipeline " + name + " has no handler");
+			}
+			return new RequestPipeline(this);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Token revocation backed by the revoked_token denylist table.
+ * Checks go through an in-process Bloom filter of revoked jtis first, and only a probable
+ * hit costs a database lookup, so valid tokens never add a round trip.
+ * The filter is refreshed in the background with rows revoked since the last refresh.
+ *
+ * "Revoke all tokens for a user" is stored as a row with jti "user:&lt;user_id&gt;" and
+ * not_before, the revoke's epoch second on the application clock that also stamps iat.
+ * These rows are kept in memory as user_id -&gt; not_before and decided without a lookup:
+ * tokens of that user issued in an earlier second are rejected, so a login right after the
+ * revoke is accepted (and so is one in the same second before it).
+ *
+ * Until the first load in a JVM has finished, in the background, each token is looked up directly.
+ */
+public class TokenRevocation {
+
+	private static final boolean ENABLED = Boolean.parseBoolean(EnvHelper.get("JWT_REVOCATION", "true"));
+	private static final long CAPACITY = EnvHelper.getLong("JWT_REVOCATION_CAPACITY", 100_000);
+	private static final long REFRESH_INTERVAL_MS = EnvHelper.getLong("JWT_REVOCATION_REFRESH_SECONDS", 10) * 1000;
+	private static final long REBUILD_INTERVAL_MS = 6 * 3600_000L; // Drops expired rows from the filter
+	private static final long OVERLAP_MS = 5_000; // Re-read rows committed while the last refresh ran
+
+	private static final String USER_PREFIX = "user:";
+
+	private static volatile Denylist denylist;
+	private static volatile long watermarkMillis;
+	private static volatile long nextRefreshMillis;
+	private static volatile long nextRebuildMillis;
+
+	private static final AtomicBoolean REFRESHING = new AtomicBoolean();
+	private static final ExecutorService REFRESHER = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "token-revocation-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final AtomicLong CHECKS = new AtomicLong();
+	private static final AtomicLong PROBABLE_HITS = new AtomicLong();
+	private static final AtomicLong CONFIRMED = new AtomicLong();
+
+	/**
+	 * Reject revoked tokens.
+	 * @param claims verified claims
+	 * @throws JwtValidationException 401 if the token was revoked, 503 if revocations can't be loaded
+	 */
+	public static void check(Claims claims) throws JwtValidationException {
+		if (!ENABLED) {
+			return;
+		}
+		CHECKS.incrementAndGet();
+		Denylist current = denylist;
+		scheduleRefresh();
+
+		String jti = claims.getId();
+		if (current == null) {
+			// Not loaded yet
+			if (isRevoked(jti, claims.getSubject(), claims.getIssuedAt())) {
+				CONFIRMED.incrementAndGet();
+				throw new JwtValidationException("Token revoked", 401);
+			}
+			return;
+		}
+
+		Long notBefore = claims.getSubject() == null ? null : current.notBefore.get(claims.getSubject());
+		if (notBefore != null && issuedBefore(claims.getIssuedAt(), notBefore)) {
+			CONFIRMED.incrementAndGet();
+			throw new JwtValidationException("Token revoked", 401);
+		}
+		if (jti == null || !current.filter.mightContain(jti)) {
+			return;
+		}
+
+		// Probable hit, confirm against the table
+		PROBABLE_HITS.incrementAndGet();
+		if (isRevoked(jti, null, null)) {
+			CONFIRMED.incrementAndGet();
+			throw new JwtValidationException("Token revoked", 401);
+		}
+	}
+
+	/**
+	 * Revoke a single token.
+	 * @param conn connection
+	 * @param claims claims of the token to revoke
+	 */
+	public static void revoke(Connection conn, Claims claims) throws SQLException {
+		if (claims.getId() == null) {
+			throw new IllegalArgumentException("Token has no jti");
+		}
+		String sql = "INSERT INTO revoked_token (jti, user_id, expires_at) VALUES (?, ?, ?) ON CONFLICT (jti) DO NOTHING";
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, claims.getId());
+			stmt.setLong(2, Long.parseLong(claims.getSubject()));
+			stmt.setTimestamp(3, new Timestamp(claims.getExpiration().getTime()));
+			stmt.executeUpdate();
+		}
+		Denylist current = denylist;
+		if (current != null) {
+			current.filter.put(claims.getId());
+		}
+	}
+
+	/**
+	 * Revoke every token issued to a user so far.
+	 * @param conn connection
+	 * @param userId user
+	 */
+	public static void revokeAllForUser(Connection conn, long userId) throws SQLException {
+		String sql = "INSERT INTO revoked_token (jti, user_id, expires_at, not_before) VALUES (?, ?, ?, ?) " +
+				"ON CONFLICT (jti) DO UPDATE SET revoked_at = now(), expires_at = EXCLUDED.expires_at, not_before = EXCLUDED.not_before";
+		long now = System.currentTimeMillis();
+		long notBefore = now / 1000;
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, USER_PREFIX + userId);
+			stmt.setLong(2, userId);
+			// Tokens issued before now are all gone after one token lifetime
+			stmt.setTimestamp(3, new Timestamp(now + JwtHelper.TOKEN_LIFETIME_MS));
+			stmt.setLong(4, notBefore);
+			stmt.executeUpdate();
+		}
+		Denylist current = denylist;
+		if (current != null) {
+			current.notBefore.merge(Long.toString(userId), notBefore, Math::max);
+		}
+	}
+
+	/**
+	 * Revocation counters
+	 * @return checks, probable hits, confirmed revocations, filter size and users with every token revoked
+	 */
+	public static Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("checks", CHECKS.get());
+		stats.put("probable_hits", PROBABLE_HITS.get());
+		stats.put("confirmed", CONFIRMED.get());
+		Denylist current = denylist;
+		stats.put("filter_entries", current == null ? 0 : current.filter.getInsertions());
+		stats.put("filter_bytes", current == null ? 0 : current.filter.getSizeBytes());
+		stats.put("revoked_users", current == null ? 0 : current.notBefore.size());
+		return stats;
+	}
+
+	/**
+	 * Whether a token predates a revoke-all, compared in whole seconds as iat is.
+	 * @param issuedAt token iat, null counts as revoked
+	 * @param notBefore epoch second of the revoke
+	 */
+	static boolean issuedBefore(Date issuedAt, long notBefore) {
+		return issuedAt == null || issuedAt.getTime() / 1000 < notBefore;
+	}
+
+	private static void scheduleRefresh() {
+		if (System.currentTimeMillis() < nextRefreshMillis || !REFRESHING.compareAndSet(false, true)) {
+			return;
+		}
+		REFRESHER.execute(() -> {
+			try {
+				if (System.currentTimeMillis() >= nextRebuildMillis) {
+					rebuild();
+				} else {
+					refresh();
+				}
+			} catch (SQLException e) {
+				// Keep the current filter, retry on the next interval
+				System.err.println("Failed to refresh revoked tokens: " + e.getMessage());
+				nextRefreshMillis = System.currentTimeMillis() + REFRESH_INTERVAL_MS;
+			} finally {
+				REFRESHING.set(false);
+			}
+		});
+	}
+
+	// Load every unexpired revocation into a new denylist
+	private static void rebuild() throws SQLException {
+		Denylist fresh = new Denylist(new BloomFilter(CAPACITY, 0.001));
+		long watermark = load(fresh, 0);
+		denylist = fresh;
+		watermarkMillis = watermark;
+		long now = System.currentTimeMillis();
+		nextRefreshMillis = now + REFRESH_INTERVAL_MS;
+		nextRebuildMillis = now + REBUILD_INTERVAL_MS;
+
+		// Log
+		System.out.println("Loaded " + fresh.filter.getInsertions() + " revoked tokens and " + fresh.notBefore.size() + " revoked users");
+	}
+
+	// Add rows revoked since the last refresh to the current denylist
+	private static void refresh() throws SQLException {
+		Denylist current = denylist;
+		watermarkMillis = load(current, Math.max(0, watermarkMillis - OVERLAP_MS));
+		nextRefreshMillis = System.currentTimeMillis() + REFRESH_INTERVAL_MS;
+		if (current.filter.getInsertions() > current.filter.getCapacity()) {
+			nextRebuildMillis = 0; // Over capacity, false positives climb until rebuilt
+		}
+	}
+
+	// Rows without not_before were written before it existed, their revoked_at is close enough
+	private static final String COLUMNS = "jti, revoked_at, COALESCE(not_before, EXTRACT(EPOCH FROM revoked_at)::BIGINT)";
+
+	private static long load(Denylist target, long sinceMillis) throws SQLException {
+		long watermark = sinceMillis;
+		String sql = "SELECT " + COLUMNS + " FROM revoked_token WHERE revoked_at >= ? AND expires_at > now()";
+		try (Connection conn = DatabaseHelper.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setTimestamp(1, new Timestamp(sinceMillis));
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					String jti = rs.getString(1);
+					if (jti.startsWith(USER_PREFIX)) {
+						target.notBefore.merge(jti.substring(USER_PREFIX.length()), rs.getLong(3), Math::max);
+					} else {
+						target.filter.put(jti);
+					}
+					watermark = Math.max(watermark, rs.getTimestamp(2).getTime());
+				}
+			}
+		}
+		return watermark;
+	}
+
+	private static boolean isRevoked(String jti, String userId, Date issuedAt) throws JwtValidationException {
+		String sql = "SELECT " + COLUMNS + " FROM revoked_token WHERE jti IN (?, ?) AND expires_at > now()";
+		try (Connection conn = DatabaseHelper.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, jti);
+			stmt.setString(2, userId == null ? null : USER_PREFIX + userId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					if (!rs.getString(1).startsWith(USER_PREFIX)) {
+						return true;
+					}
+					// Revoke-all row, applies to tokens issued before it
+					if (issuedBefore(issuedAt, rs.getLong(3))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		} catch (SQLException e) {
+			System.err.println("Failed to check revoked token: " + e.getMessage());
+			throw new JwtValidationException("Token revocation list unavailable", 503);
+		}
+	}
+
+	// Revoked jtis, and revoke-all not_before seconds by user_id; swapped whole on rebuild
+	private static final class Denylist {
+		final BloomFilter filter;
+		final Map<String, Long> notBefore = new ConcurrentHashMap<>();
+
+		Denylist(BloomFilter filter) {
+			this.filter = filter;
+		}
+	}
+}
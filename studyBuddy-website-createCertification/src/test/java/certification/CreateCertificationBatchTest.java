@@ -0,0 +1,81 @@
+package certification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import utils.ApiResponse;
+import utils.JwtHelper;
+
+/**
+ * Unit test ensuring that POST /certifications/batch checks every item before the database
+ * and reports each bad one by position.
+ */
+public class CreateCertificationBatchTest {
+
+	@BeforeAll
+	static void configure() {
+		System.setProperty("JWT_KEY", "12345678901234567890123456789012");
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	private ApiResponse run(String body) {
+		Map<String, Object> event = new HashMap<>();
+		event.put("headers", Map.of("Authorization", JwtHelper.generateToken(3, "Joemama")));
+		event.put("body", body);
+		return CreateCertificationBatchHandler.PIPELINE.execute(event);
+	}
+
+	@Test
+	void testItemErrors() {
+		String valid = "{\"title\":\"AWS SAA\",\"uid\":\"SAA-1\",\"cert_level\":\"Associate\"}";
+		ApiResponse response = run("[" + valid + ", {\"uid\":\"x\",\"cert_level\":\"y\"}, 7,"
+				+ " {\"title\":\"t\",\"uid\":\"u\",\"cert_level\":\"l\",\"earned_on\":\"soon\"}]");
+
+		assertEquals(400, response.getStatusCode());
+		JSONArray errors = new JSONObject(response.getBody()).getJSONArray("errors");
+		assertEquals(3, errors.length());
+		assertEquals(1, errors.getJSONObject(0).getInt("index"));
+		assertEquals("Missing title", errors.getJSONObject(0).getString("error"));
+		assertEquals(2, errors.getJSONObject(1).getInt("index"));
+		assertEquals("Invalid earned_on", errors.getJSONObject(2).getString("error"));
+
+		// Wrapped form is read the same way
+		response = run("{\"user_certifications\": [" + valid + ", {}]}");
+		assertEquals(1, new JSONObject(response.getBody()).getJSONArray("errors").length());
+	}
+
+	@Test
+	void testHoursErrors() {
+		String item = "{\"title\":\"t\",\"uid\":\"u\",\"cert_level\":\"l\",";
+		ApiResponse response = run("[" + item + "\"ce_hours_required\":null}, " + item + "\"ce_hours_required\":-1}, "
+				+ item + "\"ce_hours_completed\":4294967296}, " + item + "\"ce_hours_completed\":\"lots\"}]");
+
+		assertEquals(400, response.getStatusCode());
+		JSONArray errors = new JSONObject(response.getBody()).getJSONArray("errors");
+		// null counts as not sent, out of range or not a number is rejected instead of becoming 0 or wrapping
+		assertEquals(3, errors.length());
+		assertEquals(1, errors.getJSONObject(0).getInt("index"));
+		assertEquals("Invalid ce_hours_required, must be a whole number from 0 to 2147483647", errors.getJSONObject(0).getString("error"));
+		assertEquals(2, errors.getJSONObject(1).getInt("index"));
+		assertEquals(3, errors.getJSONObject(2).getInt("index"));
+		assertEquals("Invalid ce_hours_completed, must be a whole number from 0 to 2147483647", errors.getJSONObject(2).getString("error"));
+	}
+
+	@Test
+	void testBatchSize() {
+		assertEquals(400, run("[]").getStatusCode());
+		assertEquals(400, run("{}").getStatusCode());
+		StringBuilder tooMany = new StringBuilder("[");
+		for (int i = 0; i <= CreateCertificationBatchHandler.MAX_ITEMS; i++) {
+			tooMany.append(i == 0 ? "" : ",").append("{}");
+		}
+		assertEquals(400, run(tooMany.append("]").toString()).getStatusCode());
+	}
+}
@@ -0,0 +1,84 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import certification.CreateCertificationRequest;
+
+/**
+ * Unit test ensuring that a raw event decodes into the same request however API Gateway
+ * (or a direct invocation) shaped it, and that the stream response keeps the Map response's shape.
+ */
+public class EventDecoderTest {
+
+	private static final String BODY = "{\"title\":\"AWS SAA\",\"uid\":\"SAA-1\",\"cert_level\":\"Associate\","
+			+ "\"ce_hours_required\":\"40\",\"tags\":[\"cloud\",{\"x\":1}],\"earned_on\":null}";
+
+	private static InputStream stream(JSONObject event) {
+		return new ByteArrayInputStream(event.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static CreateCertificationRequest decodeBody(EventDecoder decoded) throws Exception {
+		try (JsonParser parser = decoded.openBody()) {
+			return CreateCertificationRequest.decode(parser);
+		}
+	}
+
+	@Test
+	void testEventShapes() throws Exception {
+		JSONObject gateway = new JSONObject()
+				.put("version", "2.0")
+				.put("headers", new JSONObject().put("authorization", "abc"))
+				.put("queryStringParameters", new JSONObject().put("user_cert_id", "7"))
+				.put("requestContext", new JSONObject().put("http", new JSONObject().put("sourceIp", "203.0.113.7")))
+				.put("body", BODY);
+		EventDecoder decoded = EventDecoder.decode(stream(gateway));
+		assertEquals("abc", decoded.getHeaders().get("authorization"));
+		assertEquals("7", decoded.getQuery().get("user_cert_id"));
+		assertEquals("203.0.113.7", decoded.getSourceIp());
+
+		CreateCertificationRequest request = decodeBody(decoded);
+		assertEquals("AWS SAA", request.getTitle());
+		assertEquals("Associate", request.getCertLevel());
+		assertEquals(40, request.getCeHoursRequired());
+		assertNull(request.getEarnedOn());
+
+		// REST API with a binary media type
+		String encoded = Base64.getEncoder().encodeToString(BODY.getBytes(StandardCharsets.UTF_8));
+		EventDecoder base64 = EventDecoder.decode(stream(new JSONObject().put("body", encoded).put("isBase64Encoded", true)));
+		assertEquals("SAA-1", decodeBody(base64).getUid());
+
+		// Direct invocation: the body fields are the event
+		EventDecoder direct = EventDecoder.decode(stream(new JSONObject(BODY)));
+		assertEquals("AWS SAA", decodeBody(direct).getTitle());
+	}
+
+	@Test
+	void testStreamResponse() throws Exception {
+		RequestPipeline pipeline = RequestPipeline.builder("TestHandler")
+				.decodeBody(CreateCertificationRequest::decode)
+				.validate(ctx -> RequestContext.require(null, "title"))
+				.handle((ctx, conn) -> ApiResponse.error(200, "unreachable"))
+				.build();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		pipeline.execute(stream(new JSONObject().put("body", BODY))).writeTo(output);
+		JSONObject response = new JSONObject(output.toString(StandardCharsets.UTF_8));
+		assertEquals(400, response.getInt("statusCode"));
+		assertEquals("application/json", response.getJSONObject("headers").getString("Content-Type"));
+		assertEquals("{\"error\":\"Missing title\"}", response.getString("body"));
+
+		assertEquals(400, pipeline.execute(stream(new JSONObject().put("body", "{not json"))).getStatusCode());
+		assertEquals(400, pipeline.execute(stream(new JSONObject().put("body", "not base64!").put("isBase64Encoded", true))).getStatusCode());
+	}
+}
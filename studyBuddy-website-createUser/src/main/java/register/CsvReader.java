@@ -0,0 +1,103 @@
+package register;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: comma separated, fields optionally in double quotes,
+ * "" for a quote inside quotes, and line breaks allowed inside quotes. Blank lines are skipped.
+ */
+class CsvReader {
+
+	private final Reader in;
+	private int line = 1;
+	private int recordLine;
+	private int peeked = -2; // character read ahead, -2 for none
+
+	CsvReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next record.
+	 * @return fields, or null at the end of the input
+	 * @throws IOException on a read error or an unterminated quoted field
+	 */
+	String[] next() throws IOException {
+		int c = read();
+		while (c == '\r' || c == '\n') {
+			c = skipLineEnd(c);
+		}
+		if (c == -1) {
+			return null;
+		}
+		recordLine = line;
+
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		while (true) {
+			if (c == '"' && field.length() == 0) {
+				c = readQuoted(field);
+			}
+			if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+				c = read();
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				fields.add(field.toString());
+				if (c != -1) {
+					peeked = skipLineEnd(c);
+				}
+				return fields.toArray(new String[0]);
+			} else {
+				field.append((char) c);
+				c = read();
+			}
+		}
+	}
+
+	// Line number the last record started on, 1 for the header
+	int getLine() {
+		return recordLine;
+	}
+
+	// Read up to the closing quote, return the character after it
+	private int readQuoted(StringBuilder field) throws IOException {
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				throw new IOException("Unterminated quoted field on line " + recordLine);
+			}
+			if (c == '"') {
+				int next = read();
+				if (next != '"') {
+					return next;
+				}
+			} else if (c == '\n') {
+				line++;
+			}
+			field.append((char) c);
+		}
+	}
+
+	// Consume \n, \r or \r\n, return the character after it
+	private int skipLineEnd(int c) throws IOException {
+		line++;
+		int next = read();
+		if (c == '\r' && next == '\n') {
+			next = read();
+		}
+		return next;
+	}
+
+	private int read() throws IOException {
+		if (peeked != -2) {
+			int c = peeked;
+			peeked = -2;
+			return c;
+		}
+		return in.read();
+	}
+}
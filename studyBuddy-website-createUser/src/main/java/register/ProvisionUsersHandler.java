@@ -0,0 +1,267 @@
+package register;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+
+import utils.AdminAuth;
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.EnvHelper;
+import utils.HashingHelper;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+
+/**
+ * Admin handler. Creates a cohort of users from a CSV body, e.g. when an institution onboards its
+ * students. Requires the X-Admin-Key header.
+ *
+ * The header row names the columns: first_name, last_name, username, password, industry and
+ * user_role are required, bio is optional. Passwords are hashed in parallel before a connection
+ * is taken, then the rows are loaded with COPY into a staging table and merged into app_user in
+ * one statement. Rows that are invalid, repeat a username of the file or clash with an existing
+ * user are skipped and reported by line; the others are created.
+ */
+public class ProvisionUsersHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, PipelineHandler {
+
+	static final int MAX_ROWS = EnvHelper.getInt("USER_IMPORT_MAX_ROWS", 5000);
+
+	static final String[] COLUMNS = { "first_name", "last_name", "username", "password", "industry", "user_role", "bio" };
+	private static final int USERNAME = 2;
+	private static final int PASSWORD = 3;
+	private static final int BIO = 6;
+
+	// Kept per pooled connection and emptied on commit, so an import doesn't create catalog entries
+	private static final String STAGING_SQL = "CREATE TEMP TABLE IF NOT EXISTS user_import (line int, first_name text, "
+			+ "last_name text, username text, hashed_password text, industry text, user_role text, bio text) ON COMMIT DELETE ROWS";
+
+	private static final String COPY_SQL = "COPY user_import (line, first_name, last_name, username, hashed_password, "
+			+ "industry, user_role, bio) FROM STDIN WITH (FORMAT csv)";
+
+	private static final String MERGE_SQL = "INSERT INTO app_user (first_name, last_name, username, hashed_password, "
+			+ "industry, user_role, bio) SELECT first_name, last_name, username, hashed_password, industry, user_role, bio "
+			+ "FROM user_import ORDER BY line ON CONFLICT (username) DO NOTHING RETURNING user_id, username";
+
+	// One row of the file that passed validation
+	static class Row {
+		final int line;
+		final String[] values;
+
+		Row(int line, String[] values) {
+			this.line = line;
+			this.values = values;
+		}
+	}
+
+	private static final RequestPipeline PIPELINE = RequestPipeline.builder("ProvisionUsersHandler")
+			.rawBody()
+			.validate(ProvisionUsersHandler::validate)
+			.handle(ProvisionUsersHandler::provision)
+			.build();
+
+	@Override
+	public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+		return PIPELINE.execute(event).toMap();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	private static void validate(RequestContext ctx) throws Exception {
+		AdminAuth.check(ctx);
+
+		JSONArray errors = new JSONArray();
+		List<Row> rows = parse(ctx.getRawBody(), errors);
+
+		// Hash before taking a pooled connection, it's the slow part
+		List<String> passwords = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			passwords.add(row.values[PASSWORD]);
+		}
+		String[] hashes = HashingHelper.hashAll(passwords);
+		for (int i = 0; i < rows.size(); i++) {
+			rows.get(i).values[PASSWORD] = hashes[i];
+		}
+
+		ctx.setAttribute("rows", rows);
+		ctx.setAttribute("errors", errors);
+	}
+
+	/**
+	 * Read the CSV into rows to create, reporting the rows skipped.
+	 * @param csv body
+	 * @param errors receives {"line", "username", "error"} for each row skipped
+	 * @return valid rows, values in COLUMNS order with null for an empty bio
+	 * @throws ApiException 400 for a malformed file, missing columns or too many rows
+	 */
+	static List<Row> parse(String csv, JSONArray errors) throws ApiException {
+		List<Row> rows = new ArrayList<>();
+		Set<String> usernames = new HashSet<>();
+		try {
+			CsvReader reader = new CsvReader(new StringReader(csv));
+			int[] index = header(reader.next());
+
+			String[] record;
+			int count = 0;
+			while ((record = reader.next()) != null) {
+				if (++count > MAX_ROWS) {
+					throw new ApiException(400, "Too many rows, at most " + MAX_ROWS);
+				}
+				String[] values = new String[COLUMNS.length];
+				String missing = null;
+				for (int i = 0; i < COLUMNS.length; i++) {
+					String value = index[i] < 0 || index[i] >= record.length ? "" : record[index[i]];
+					// Spaces can be part of a password, POST /register keeps them too
+					if (i != PASSWORD) {
+						value = value.trim();
+					}
+					values[i] = value.isEmpty() ? null : value;
+					if (values[i] == null && i != BIO && missing == null) {
+						missing = COLUMNS[i];
+					}
+				}
+
+				String username = values[USERNAME];
+				if (missing != null) {
+					errors.put(error(reader.getLine(), username, "Missing " + missing));
+				} else if (!usernames.add(username)) {
+					errors.put(error(reader.getLine(), username, "Duplicate username in file"));
+				} else {
+					rows.add(new Row(reader.getLine(), values));
+				}
+			}
+		} catch (IOException e) {
+			throw new ApiException(400, "Invalid CSV: " + e.getMessage());
+		}
+		return rows;
+	}
+
+	// Position of each of COLUMNS in the file, -1 for an absent optional column
+	private static int[] header(String[] header) throws ApiException {
+		if (header == null) {
+			throw new ApiException(400, "Empty CSV");
+		}
+		int[] index = new int[COLUMNS.length];
+		for (int i = 0; i < COLUMNS.length; i++) {
+			index[i] = -1;
+			for (int j = 0; j < header.length; j++) {
+				if (COLUMNS[i].equalsIgnoreCase(header[j].trim())) {
+					index[i] = j;
+				}
+			}
+			if (index[i] < 0 && i != BIO) {
+				throw new ApiException(400, "Missing column " + COLUMNS[i]);
+			}
+		}
+		return index;
+	}
+
+	private static JSONObject error(int line, String username, String message) {
+		return new JSONObject().put("line", line).put("username", username).put("error", message);
+	}
+
+	private static ApiResponse provision(RequestContext ctx, Connection conn) throws SQLException, IOException {
+		List<Row> rows = ctx.getAttribute("rows");
+		JSONArray errors = ctx.getAttribute("errors");
+		JSONArray created = new JSONArray();
+
+		if (!rows.isEmpty()) {
+			Map<String, Long> ids = new HashMap<>();
+			conn.setAutoCommit(false);
+			try {
+				try (Statement stmt = conn.createStatement()) {
+					stmt.execute(STAGING_SQL);
+				}
+				copy(conn, rows);
+
+				// Usernames already taken come back as missing from RETURNING
+				try (PreparedStatement stmt = conn.prepareStatement(MERGE_SQL); ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						ids.put(rs.getString("username"), rs.getLong("user_id"));
+					}
+				}
+				conn.commit();
+			} catch (SQLException | IOException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+
+			for (Row row : rows) {
+				String username = row.values[USERNAME];
+				Long userId = ids.get(username);
+				if (userId != null) {
+					created.put(new JSONObject().put("line", row.line).put("username", username).put("user_id", userId));
+				} else {
+					errors.put(error(row.line, username, "Username already exists"));
+				}
+			}
+		}
+
+		// Log
+		System.out.println("Provisioned " + created.length() + " users, skipped " + errors.length());
+
+		return ApiResponse.of(200, new JSONObject()
+				.put("created", created.length())
+				.put("skipped", errors.length())
+				.put("users", created)
+				.put("errors", errors));
+	}
+
+	// Stream the rows to the staging table, as CSV, in 64 KB writes
+	private static void copy(Connection conn, List<Row> rows) throws SQLException, IOException {
+		CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+		try {
+			StringBuilder buffer = new StringBuilder();
+			for (Row row : rows) {
+				buffer.append(row.line);
+				for (String value : row.values) {
+					buffer.append(',');
+					if (value != null) {
+						// Quoted, so an empty string isn't read as NULL
+						buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+					}
+				}
+				buffer.append('\n');
+				if (buffer.length() >= 65536) {
+					write(copy, buffer);
+				}
+			}
+			write(copy, buffer);
+			copy.endCopy();
+		} finally {
+			if (copy.isActive()) {
+				copy.cancelCopy();
+			}
+		}
+	}
+
+	private static void write(CopyIn copy, StringBuilder buffer) throws SQLException {
+		byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+		copy.writeToCopy(bytes, 0, bytes.length);
+		buffer.setLength(0);
+	}
+}
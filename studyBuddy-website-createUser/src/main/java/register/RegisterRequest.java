@@ -0,0 +1,82 @@
+package register;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import utils.JsonReader;
+
+/**
+ * Body of POST /register.
+ */
+public class RegisterRequest {
+
+	private String firstName;
+	private String lastName;
+	private String username;
+	private String password;
+	private String industry;
+	private String userRole;
+	private String bio;
+
+	// Decode from the body JSON, other fields are skipped
+	public static RegisterRequest decode(JsonParser parser) throws IOException {
+		RegisterRequest request = new RegisterRequest();
+		JsonReader.readObject(parser, (name, value) -> {
+			switch (name) {
+			case "first_name":
+				request.firstName = JsonReader.text(value);
+				break;
+			case "last_name":
+				request.lastName = JsonReader.text(value);
+				break;
+			case "username":
+				request.username = JsonReader.text(value);
+				break;
+			case "password":
+				request.password = JsonReader.text(value);
+				break;
+			case "industry":
+				request.industry = JsonReader.text(value);
+				break;
+			case "user_role":
+				request.userRole = JsonReader.text(value);
+				break;
+			case "bio":
+				request.bio = JsonReader.text(value);
+				break;
+			default:
+				value.skipChildren();
+			}
+		});
+		return request;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public String getIndustry() {
+		return industry;
+	}
+
+	public String getUserRole() {
+		return userRole;
+	}
+
+	public String getBio() {
+		return bio;
+	}
+}
@@ -1,11 +1,9 @@
 package register;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.json.JSONObject;
@@ -13,112 +11,97 @@ import org.json.JSONObject;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 
+import utils.ApiResponse;
 import utils.HashingHelper;
 import utils.JwtHelper;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
 
 /**
  * Registration handler. Creates user, returning proper HTTP status code and response
  */
-public class RegisterUserHandler implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+public class RegisterUserHandler implements RequestHandler<Map<String, Object>, Map<String, Object>>, PipelineHandler {
+
+	// Shared with RegisterUserStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("RegisterUserHandler")
+			.decodeBody(RegisterRequest::decode)
+			.validate(RegisterUserHandler::validate)
+			.handle(RegisterUserHandler::register)
+			.build();
 
 	@Override
 	public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
-		Map<String, Object> responseMap = new HashMap<>();
-		JSONObject responseBody = new JSONObject();
+		return PIPELINE.execute(event).toMap();
+	}
 
-		try (Connection conn = DriverManager.getConnection(
-				System.getenv("DB_URL"),
-				System.getenv("DB_USER"),
-				System.getenv("DB_PASSWORD"))) {
-
-			// Accept both API Gateway (body as string) and direct JSON (fields at top level)
-			JSONObject body;
-			Object bodyObj = event.get("body");
-			if (bodyObj instanceof String) {
-				// API Gateway: body is a JSON string
-				body = new JSONObject((String) bodyObj);
-			} else if (bodyObj instanceof Map) {
-				// Local/direct: body is already a map
-				body = new JSONObject((Map<?, ?>) bodyObj);
-			} else if (bodyObj == null) {
-				// No "body" key, treat event itself as the body (for local direct JSON)
-				body = new JSONObject(event);
-			} else {
-				throw new IllegalArgumentException("Invalid event format");
-			}
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	private static void validate(RequestContext ctx) throws Exception {
+		RegisterRequest request = ctx.getRequest();
+		RequestContext.require(request.getFirstName(), "first_name");
+		RequestContext.require(request.getLastName(), "last_name");
+		RequestContext.require(request.getUsername(), "username");
+		RequestContext.require(request.getIndustry(), "industry");
+		RequestContext.require(request.getUserRole(), "user_role");
+
+		// Hash password before taking a pooled connection, it's the slow part
+		ctx.setAttribute("hashed_password", HashingHelper.hashPassword(RequestContext.require(request.getPassword(), "password")));
+	}
+
+	private static ApiResponse register(RequestContext ctx, Connection conn) {
+		RegisterRequest request = ctx.getRequest();
+		String username = request.getUsername();
+		String bio = request.getBio(); // optional
+		JSONObject responseBody = new JSONObject();
 
-			String firstName = body.getString("first_name");
-			String lastName = body.getString("last_name");
-			String username = body.getString("username");
-			String password = body.getString("password");
-			String industry = body.getString("industry");
-			String userRole = body.getString("user_role");
-			String bio = body.optString("bio", null); // optional
-
-			// Hash password
-			String hashedPassword = HashingHelper.hashPassword(password);
-
-			// Insert into database
-			String sql = "INSERT INTO app_user (first_name, last_name, username, hashed_password, industry, user_role, bio) VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING user_id";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setString(1, firstName);
-				stmt.setString(2, lastName);
-				stmt.setString(3, username);
-				stmt.setString(4, hashedPassword);
-				stmt.setString(5, industry);
-				stmt.setString(6, userRole);
-				stmt.setString(7, bio);
-
-				ResultSet rs = stmt.executeQuery();
-				if (rs.next()) {
-					// Retrieve user_id for JWT
-					int userId = rs.getInt("user_id");
-
-					// Generate JWT
-					String jwt = JwtHelper.generateToken(userId, username);
-
-					responseBody.put("message", "User registered successfully"); // User registered successfully
-					responseBody.put("username", username);
-					responseBody.put("user_id", userId);
-					responseBody.put("token", jwt);
-				}
+		// Insert into database
+		String sql = "INSERT INTO app_user (first_name, last_name, username, hashed_password, industry, user_role, bio) VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING user_id";
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, request.getFirstName());
+			stmt.setString(2, request.getLastName());
+			stmt.setString(3, username);
+			stmt.setString(4, ctx.getAttribute("hashed_password"));
+			stmt.setString(5, request.getIndustry());
+			stmt.setString(6, request.getUserRole());
+			stmt.setString(7, bio);
+
+			ResultSet rs = stmt.executeQuery();
+			if (rs.next()) {
+				// Retrieve user_id for JWT
+				int userId = rs.getInt("user_id");
+
+				// Generate JWT
+				String jwt = JwtHelper.generateToken(userId, username);
+
+				responseBody.put("message", "User registered successfully"); // User registered successfully
+				responseBody.put("username", username);
+				responseBody.put("user_id", userId);
+				responseBody.put("token", jwt);
 			}
-			buildResponse(responseMap, 201, responseBody.toString());
 
 			// Log
 			System.out.println("User registered successfully: " + username);
 
+			return ApiResponse.of(201, responseBody);
+
 		} catch (SQLException e) {
 			if ("23505".equals(e.getSQLState())) { // unique_violation in PostgreSQL
-				responseBody.put("error", "Username already exists");
-				buildResponse(responseMap, 409, responseBody.toString());
-
 				// Log
 				System.err.println("Failed to register user. Username already exists");
-			} else {
-				responseBody.put("error", "Database error: " + e.getMessage());
-				buildResponse(responseMap, 500, responseBody.toString());
 
+				return ApiResponse.error(409, "Username already exists");
+			} else {
 				// Log
 				System.err.println("Failed to register user. Error in database: " + e.getMessage());
 				e.printStackTrace();
-			}
-		} catch (Exception e) {
-			responseBody.put("error", "Internal server error: " + e.getMessage());
-			buildResponse(responseMap, 500, responseBody.toString());
 
-			// Log
-			System.err.println("Failed to register user. Error in RegisterUserHandler: " + e.getMessage());
-			e.printStackTrace();
+				return ApiResponse.error(500, "Database error: " + e.getMessage());
+			}
 		}
-
-		return responseMap;
-	}
-
-	private void buildResponse(Map<String, Object> responseMap, int statusCode, String body) {
-		responseMap.put("statusCode", statusCode);
-		responseMap.put("headers", Map.of("Content-Type", "application/json"));
-		responseMap.put("body", body);
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,267 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Cache invalidation across instances over Postgres LISTEN/NOTIFY.
+ * Writers publish the users whose data they changed: this instance's caches are invalidated at
+ * once, and with INVALIDATION_BUS=true a NOTIFY on the writer's connection tells the others.
+ * Each instance then keeps one listener connection outside the pool, and applies whatever
+ * arrived since its last poll as one batch, each user once however many writes named it.
+ *
+ * Notifications sent while the listener is disconnected, or while a Lambda is frozen, only
+ * arrive later or not at all, so caches are bypassed until the listener has polled within
+ * INVALIDATION_MAX_LAG_MS, and everything cached is dropped whenever it (re)connects.
+ */
+public class InvalidationBus {
+
+	// What changed for a user, each maps to the cache holding it
+	public enum Entity {
+		USER("u"), CERTIFICATIONS("c");
+
+		final String code;
+
+		Entity(String code) {
+			this.code = code;
+		}
+	}
+
+	static final String CHANNEL = "cache_invalidation";
+	static final int MAX_PAYLOAD = 7900; // NOTIFY payloads must stay under 8000 bytes
+
+	private static final boolean ENABLED = Boolean.parseBoolean(EnvHelper.get("INVALIDATION_BUS", "false"));
+	private static final int POLL_MS = EnvHelper.getInt("INVALIDATION_POLL_MS", 250);
+	private static final long MAX_LAG_MS = EnvHelper.getLong("INVALIDATION_MAX_LAG_MS", 2_000);
+	private static final long MAX_BACKOFF_MS = 30_000;
+
+	// Tags this instance's notifications, it has already applied them
+	static final String NODE = UUID.randomUUID().toString().substring(0, 8);
+
+	private static final AtomicBoolean STARTED = new AtomicBoolean();
+	private static volatile long currentAtMillis; // Every notification committed before it has been applied
+
+	private static final AtomicLong PUBLISHED = new AtomicLong();
+	private static final AtomicLong PUBLISH_FAILURES = new AtomicLong();
+	private static final AtomicLong RECEIVED = new AtomicLong();
+	private static final AtomicLong APPLIED = new AtomicLong();
+	private static final AtomicLong BATCHES = new AtomicLong();
+	private static final AtomicLong CONNECTS = new AtomicLong();
+
+	/**
+	 * Invalidate users' cached data here and, if the bus is on, on every other instance.
+	 * Call after the write is committed. A failed NOTIFY is logged, not thrown, since the write
+	 * already happened; other instances then rely on their cache TTLs.
+	 * @param conn connection that made the write, in autocommit mode
+	 * @param entity what changed
+	 * @param userIds users whose data changed
+	 */
+	public static void publish(Connection conn, Entity entity, long... userIds) {
+		for (long userId : userIds) {
+			invalidateLocally(entity, userId);
+		}
+		if (!ENABLED || userIds.length == 0) {
+			return;
+		}
+		try {
+			notifyOthers(conn, entity, userIds);
+		} catch (SQLException e) {
+			PUBLISH_FAILURES.incrementAndGet();
+			// Log
+			System.err.println("Failed to publish cache invalidation: " + e.getMessage());
+		}
+	}
+
+	// NOTIFY the other instances, one notification per MAX_PAYLOAD of users
+	static void notifyOthers(Connection conn, Entity entity, long... userIds) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+			for (String payload : encode(NODE, entity, userIds)) {
+				stmt.setString(1, CHANNEL);
+				stmt.setString(2, payload);
+				stmt.executeQuery().close();
+				PUBLISHED.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Whether cached data can be served: always with the bus off, otherwise only while the
+	 * listener is keeping up. Starts the listener on first use.
+	 */
+	public static boolean isCurrent() {
+		if (!ENABLED) {
+			return true;
+		}
+		if (STARTED.compareAndSet(false, true)) {
+			Thread listener = new Thread(InvalidationBus::listen, "invalidation-listener");
+			listener.setDaemon(true);
+			listener.start();
+		}
+		return System.currentTimeMillis() - currentAtMillis <= MAX_LAG_MS;
+	}
+
+	/**
+	 * Bus counters.
+	 * @return notifications published and received, users invalidated, batches, connects and listener lag
+	 */
+	public static Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("enabled", ENABLED);
+		stats.put("published", PUBLISHED.get());
+		stats.put("publish_failures", PUBLISH_FAILURES.get());
+		stats.put("received", RECEIVED.get());
+		stats.put("applied", APPLIED.get());
+		stats.put("batches", BATCHES.get());
+		stats.put("connects", CONNECTS.get());
+		stats.put("lag_ms", currentAtMillis == 0 ? -1 : System.currentTimeMillis() - currentAtMillis);
+		return stats;
+	}
+
+	/**
+	 * Payloads for some users: the node, then one code:id token per user, split to fit.
+	 * @return e.g. ["1a2b3c4d c:3 c:7"]
+	 */
+	static List<String> encode(String node, Entity entity, long... userIds) {
+		List<String> payloads = new ArrayList<>();
+		StringBuilder payload = new StringBuilder(node);
+		Set<Long> seen = new LinkedHashSet<>();
+		for (long userId : userIds) {
+			if (!seen.add(userId)) {
+				continue;
+			}
+			String token = " " + entity.code + ":" + userId;
+			if (payload.length() + token.length() > MAX_PAYLOAD) {
+				payloads.add(payload.toString());
+				payload.setLength(0);
+				payload.append(node);
+			}
+			payload.append(token);
+		}
+		payloads.add(payload.toString());
+		return payloads;
+	}
+
+	/**
+	 * Coalesce a batch of payloads into the users to invalidate, skipping this node's own.
+	 * Malformed tokens are ignored.
+	 * @param payloads received payloads
+	 * @param self node to skip
+	 * @return users by entity, each once
+	 */
+	static Map<Entity, Set<Long>> decode(Iterable<String> payloads, String self) {
+		Map<Entity, Set<Long>> users = new EnumMap<>(Entity.class);
+		for (String payload : payloads) {
+			String[] tokens = payload.split(" ");
+			if (tokens[0].equals(self)) {
+				continue;
+			}
+			for (int i = 1; i < tokens.length; i++) {
+				int colon = tokens[i].indexOf(':');
+				Entity entity = colon < 0 ? null : entity(tokens[i].substring(0, colon));
+				if (entity == null) {
+					continue;
+				}
+				try {
+					users.computeIfAbsent(entity, e -> new LinkedHashSet<>()).add(Long.parseLong(tokens[i].substring(colon + 1)));
+				} catch (NumberFormatException e) {
+					// Ignore
+				}
+			}
+		}
+		return users;
+	}
+
+	// Listener thread: LISTEN, then poll and apply until the connection fails, then reconnect
+	private static void listen() {
+		long backoff = 1_000;
+		while (true) {
+			try (Connection conn = DatabaseHelper.openUnpooled(); Statement stmt = conn.createStatement()) {
+				stmt.execute("LISTEN " + CHANNEL);
+				// Anything cached may have missed a notification while we weren't listening
+				ProfileCache.INSTANCE.clear();
+				CertificationCache.INSTANCE.bumpAll();
+				CONNECTS.incrementAndGet();
+				backoff = 1_000;
+
+				// Log
+				System.out.println("Listening for cache invalidations on " + CHANNEL + " as node " + NODE);
+
+				PGConnection pg = conn.unwrap(PGConnection.class);
+				long verifiedAt = 0;
+				while (true) {
+					apply(pg.getNotifications(POLL_MS));
+
+					// A dead socket just looks quiet, so only a round trip proves nothing was missed.
+					// Notifications queued for the session arrive before its result.
+					long now = System.currentTimeMillis();
+					if (now - verifiedAt >= MAX_LAG_MS / 2) {
+						stmt.execute("SELECT 1");
+						apply(pg.getNotifications());
+						verifiedAt = now;
+						currentAtMillis = now;
+					}
+				}
+			} catch (Exception e) {
+				// Log
+				System.err.println("Cache invalidation listener failed, retrying in " + backoff + " ms: " + e.getMessage());
+			}
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				return;
+			}
+			backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+		}
+	}
+
+	private static void apply(PGNotification[] notifications) {
+		if (notifications == null || notifications.length == 0) {
+			return;
+		}
+		List<String> payloads = new ArrayList<>(notifications.length);
+		for (PGNotification notification : notifications) {
+			payloads.add(notification.getParameter());
+		}
+		RECEIVED.addAndGet(notifications.length);
+		BATCHES.incrementAndGet();
+
+		for (Map.Entry<Entity, Set<Long>> entry : decode(payloads, NODE).entrySet()) {
+			for (long userId : entry.getValue()) {
+				invalidateLocally(entry.getKey(), userId);
+				APPLIED.incrementAndGet();
+			}
+		}
+	}
+
+	private static void invalidateLocally(Entity entity, long userId) {
+		if (entity == Entity.USER) {
+			ProfileCache.INSTANCE.invalidate(userId);
+		} else {
+			CertificationCache.INSTANCE.bump(userId);
+		}
+	}
+
+	private static Entity entity(String code) {
+		for (Entity entity : Entity.values()) {
+			if (entity.code.equals(code)) {
+				return entity;
+			}
+		}
+		return null;
+	}
+}
@@ -1,36 +1,47 @@
 package utils;
 
-import java.util.Date;
-import java.util.Map;
-
-import javax.crypto.SecretKey;
-
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Utility class for generating and validating JWT tokens.
- * Uses plain text secret key.
+ * Signs with the current key of a JwtKeyRing and stamps its kid in the header,
+ * verifies with whichever key in the ring the kid names.
  */
 public class JwtHelper {
 
-	private static final String SECRET_ENV_VAR = "JWT_KEY"; // Environment variable name
-	private static final SecretKey SECRET_KEY;
+	public static final long TOKEN_LIFETIME_MS = 3600_000; // 1 hour
 
-	static {
-		String secret = System.getenv(SECRET_ENV_VAR);
+	private static final boolean FAST_PATH = Boolean.parseBoolean(EnvHelper.get("JWT_FAST_PATH", "true"));
+	private static final long RELOAD_INTERVAL_MS = EnvHelper.getLong("JWT_KEYS_RELOAD_SECONDS", 30) * 1000;
 
-		if (secret == null || secret.isEmpty()) {
-			throw new IllegalStateException("JWT_KEY environment variable is not set");
-		}
+	private static volatile KeyState keyState = new KeyState(JwtKeyRing.load());
+	private static volatile long nextReloadCheck = System.currentTimeMillis() + RELOAD_INTERVAL_MS;
 
-		// Since JWT_KEY is plain text, use .getBytes()
-		// If switching to Base64 encoding, use Base64.getDecoder().decode(secret)
-		SECRET_KEY = Keys.hmacShaKeyFor(secret.getBytes());
-	}
+	// Immutable and thread-safe, built once. Looks the key up by kid in the current ring.
+	private static final JwtParser PARSER = Jwts.parser()
+			.keyLocator(new LocatorAdapter<Key>() {
+				@Override
+				protected Key locate(ProtectedHeader header) {
+					JwtKeyRing ring = keyState.ring;
+					// Tokens issued before kids were stamped are verified with the current key
+					return header.getKeyId() == null ? ring.getCurrentKey() : ring.get(header.getKeyId());
+				}
+			})
+			.build();
+
+	private static final JwtTokenCache TOKEN_CACHE = new JwtTokenCache(EnvHelper.getInt("JWT_CACHE_SIZE", 1024));
 
 	/**
 	 * Generate a JWT with userId, username, and optional claims
@@ -40,15 +51,17 @@ public class JwtHelper {
 	 * @return
 	 */
 	public static String generateToken(int userId, String username, Map<String, Object> extraClaims) {
-		long expirationMs = 3600_000; // 1 hour
+		JwtKeyRing ring = keys().ring;
 
 		return Jwts.builder()
+				.header().keyId(ring.getCurrentKid()).and()
+				.id(UUID.randomUUID().toString()) // jti, so a single token can be revoked
 				.subject(String.valueOf(userId))
 				.claim("username", username)
 				.claims(extraClaims) // optional additional claims (for future)
 				.issuedAt(new Date())
-				.expiration(new Date(System.currentTimeMillis() + expirationMs))
-				.signWith(SECRET_KEY)
+				.expiration(new Date(System.currentTimeMillis() + TOKEN_LIFETIME_MS))
+				.signWith(ring.getCurrentKey())
 				.compact();
 	}
 
@@ -64,35 +77,92 @@ public class JwtHelper {
 
 	// Parse & validate JWT, return Claims
 	public static Claims parseToken(String token) throws JwtValidationException {
+		if (token == null || token.isEmpty()) {
+			throw new JwtValidationException("Invalid token", 403);
+		}
+		KeyState keys = keys();
+
+		// Repeat requests with the same token skip signature verification and JSON decoding
+		ByteBuffer cacheKey = JwtTokenCache.key(token);
+		Claims cached = TOKEN_CACHE.get(cacheKey, System.currentTimeMillis());
+		if (cached != null) {
+			TokenRevocation.check(cached);
+			return cached;
+		}
+
 		try {
-			return Jwts.parser()
-					.verifyWith(SECRET_KEY)  // validates the signature
-					.build()
-					.parseSignedClaims(token) // throws JwtException if invalid/expired
-					.getPayload();
+			// Our own HS256 tokens take the fast path, anything else goes through jjwt
+			Claims claims = keys.fastVerifier != null ? keys.fastVerifier.verify(token, System.currentTimeMillis()) : null;
+			if (claims == null) {
+				claims = PARSER
+						.parseSignedClaims(token) // throws JwtException if invalid/expired
+						.getPayload();
+			}
+			TOKEN_CACHE.put(cacheKey, claims);
+			TokenRevocation.check(claims);
+			return claims;
 		} catch (ExpiredJwtException e) {
 			// Token expired 401 Unauthorized
 			throw new JwtValidationException("Token expired", 401);
 
-		} catch (JwtException e) {
+		} catch (JwtException | IllegalArgumentException e) {
 			throw new JwtValidationException("Invalid token", 403);
 		}
 	}
 
 	// Validate token
 	public static boolean validateToken(String token) throws JwtValidationException {
-		try {
-			Jwts.parser()
-			.verifyWith(SECRET_KEY)
-			.build()
-			.parseSignedClaims(token);
-			return true;
-		} catch (ExpiredJwtException e) {
-			// Token expired 401 Unauthorized
-			throw new JwtValidationException("Token expired", 401);
+		parseToken(token);
+		return true;
+	}
 
-		} catch (JwtException e) {
-			throw new JwtValidationException("Invalid token", 403);
+	/**
+	 * Re-read the key ring from configuration now, without restarting the JVM.
+	 * Happens automatically every JWT_KEYS_RELOAD_SECONDS when JWT_KEYS_FILE has changed.
+	 */
+	public static void reloadKeys() {
+		swap(JwtKeyRing.load());
+	}
+
+	/**
+	 * Verified-token cache counters
+	 * @return hits, misses, expirations, evictions, size and hit ratio
+	 */
+	public static Map<String, Object> getCacheStats() {
+		return TOKEN_CACHE.getStats();
+	}
+
+	// Current keys, picking up a changed JWT_KEYS_FILE at most once per interval
+	private static KeyState keys() {
+		long now = System.currentTimeMillis();
+		if (now >= nextReloadCheck) {
+			nextReloadCheck = now + RELOAD_INTERVAL_MS;
+			JwtKeyRing ring = keyState.ring;
+			JwtKeyRing reloaded = ring.reloadIfChanged();
+			if (reloaded != ring) {
+				swap(reloaded);
+			}
+		}
+		return keyState;
+	}
+
+	private static synchronized void swap(JwtKeyRing ring) {
+		boolean keysRemoved = !ring.getKeys().keySet().containsAll(keyState.ring.getKeys().keySet());
+		keyState = new KeyState(ring);
+
+		// Cached claims may belong to a retired key
+		if (keysRemoved) {
+			TOKEN_CACHE.clear();
+		}
+	}
+
+	private static final class KeyState {
+		final JwtKeyRing ring;
+		final FastJwtVerifier fastVerifier;
+
+		KeyState(JwtKeyRing ring) {
+			this.ring = ring;
+			this.fastVerifier = FAST_PATH ? new FastJwtVerifier(ring) : null;
 		}
 	}
 }
@@ -0,0 +1,52 @@
+package register;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import utils.ApiException;
+
+/**
+ * Unit test ensuring that bulk provisioning reads quoted CSV, and skips and reports bad rows
+ * by line before anything is hashed or loaded.
+ */
+public class ProvisionUsersTest {
+
+	@Test
+	void testParse() throws Exception {
+		String csv = "username,first_name,last_name,password,industry,user_role,bio\r\n"
+				+ "joe,Joe,Mama,pw1,Tech,Student,\"Likes \"\"cloud\"\",\nand more\"\r\n"
+				+ "\n"
+				+ "ann , Ann,Lee, pw2 ,Tech,Student,\n"
+				+ "joe,Joe,Again,pw3,Tech,Student,\n"
+				+ "bob,,Smith,pw4,Tech,Student";
+		JSONArray errors = new JSONArray();
+		List<ProvisionUsersHandler.Row> rows = ProvisionUsersHandler.parse(csv, errors);
+
+		assertEquals(2, rows.size());
+		assertEquals(2, rows.get(0).line);
+		assertEquals("Likes \"cloud\",\nand more", rows.get(0).values[6]);
+		assertEquals("pw1", rows.get(0).values[3]);
+		assertEquals(5, rows.get(1).line);
+		assertEquals("ann", rows.get(1).values[2]);
+		assertEquals("Ann", rows.get(1).values[0]);
+		assertEquals(" pw2 ", rows.get(1).values[3]); // Passwords are taken as written
+		assertNull(rows.get(1).values[6]); // Empty bio
+
+		assertEquals(2, errors.length());
+		assertEquals(6, errors.getJSONObject(0).getInt("line"));
+		assertEquals("Duplicate username in file", errors.getJSONObject(0).getString("error"));
+		assertEquals("Missing first_name", errors.getJSONObject(1).getString("error"));
+	}
+
+	@Test
+	void testRejected() {
+		assertThrows(ApiException.class, () -> ProvisionUsersHandler.parse("", new JSONArray()));
+		assertThrows(ApiException.class, () -> ProvisionUsersHandler.parse("username,password\njoe,pw", new JSONArray()));
+		assertThrows(ApiException.class, () -> ProvisionUsersHandler.parse(
+				"first_name,last_name,username,password,industry,user_role\n\"Joe,Mama", new JSONArray()));
+	}
+}
@@ -0,0 +1,101 @@
+package user;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.sql.*;
+import java.util.Map;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.EnvHelper;
+import utils.PageCursor;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+
+/**
+ * GET /me. Profile and first page of certifications for the dashboard screen, so it takes
+ * one request, one token check and one query instead of GET /user plus GET /certifications.
+ * PostgreSQL builds both JSON documents; they are copied into the response without parsing.
+ * next_cursor continues the certifications with GET /certifications (default sort).
+ */
+public class DashboardHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	private static final int DEFAULT_LIMIT = EnvHelper.getInt("CERT_PAGE_SIZE", 50);
+	private static final int MAX_LIMIT = 200;
+
+	// Certifications in GET /certifications default order; EXISTS probes for a next page.
+	// json_strip_nulls leaves NULL columns out, as RowMapper does for GET /user and GET /certifications
+	static final String SQL =
+			"SELECT json_strip_nulls(json_build_object('user_id', u.user_id, 'first_name', u.first_name, 'last_name', u.last_name, " +
+			"'username', u.username, 'industry', u.industry, 'user_role', u.user_role, 'bio', u.bio))::text, " +
+			"COALESCE(c.certs, '[]'::json)::text, c.last_id, " +
+			"EXISTS (SELECT 1 FROM user_cert n WHERE n.user_id = u.user_id AND n.user_cert_id > c.last_id) " +
+			"FROM app_user u " +
+			"LEFT JOIN LATERAL (SELECT json_agg(json_strip_nulls(to_json(uc)) ORDER BY uc.user_cert_id) AS certs, max(uc.user_cert_id) AS last_id " +
+			"FROM (SELECT * FROM user_cert WHERE user_id = u.user_id ORDER BY user_cert_id LIMIT ?) uc) c ON true " +
+			"WHERE u.user_id = ?";
+
+	// Shared with DashboardStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("DashboardHandler")
+			.requireAuth()
+			.validate(DashboardHandler::validate)
+			.handle(DashboardHandler::fetch)
+			.build();
+
+	@Override
+	public String handleRequest(Map<String, Object> event, Context context) {
+		return PIPELINE.execute(event).toJsonString();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	// Optional limit, same bounds as GET /certifications
+	private static void validate(RequestContext ctx) throws ApiException {
+		Long limit = ctx.optionalLongParameter("limit");
+		if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+			throw new ApiException(400, "Invalid limit parameter, must be 1 to " + MAX_LIMIT);
+		}
+		ctx.setAttribute("limit", limit == null ? DEFAULT_LIMIT : limit.intValue());
+	}
+
+	private static ApiResponse fetch(RequestContext ctx, Connection conn) throws SQLException {
+		long userId = ctx.getUserId();
+		int limit = ctx.getAttribute("limit");
+
+		try (PreparedStatement stmt = conn.prepareStatement(SQL)) {
+			stmt.setInt(1, limit);
+			stmt.setLong(2, userId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					System.err.println("Failed to fetch dashboard for user_id: " + userId);
+					return ApiResponse.error(404, "User not found");
+				}
+				String user = rs.getString(1);
+				String certifications = rs.getString(2);
+				long lastId = rs.getLong(3);
+				String nextCursor = rs.getBoolean(4) ? new PageCursor("user_cert_id", null, lastId).encode() : null;
+
+				// Log
+				System.out.println("Fetched dashboard for user_id: " + userId);
+
+				return ApiResponse.stream(200, json -> write(json, user, certifications, nextCursor));
+			}
+		}
+	}
+
+	static void write(JsonGenerator json, String user, String certifications, String nextCursor) throws Exception {
+		json.writeStartObject();
+		json.writeFieldName("user");
+		json.writeRawValue(user);
+		json.writeFieldName("user_certifications");
+		json.writeRawValue(certifications);
+		json.writeStringField("next_cursor", nextCursor);
+		json.writeEndObject();
+	}
+}
@@ -0,0 +1,20 @@
+package user;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+/**
+ * Stream entry point for GET /me. Same pipeline as DashboardHandler, writing the documents
+ * PostgreSQL built straight into the response envelope on the Lambda output.
+ */
+public class DashboardStreamHandler implements RequestStreamHandler {
+
+	@Override
+	public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+		DashboardHandler.PIPELINE.execute(input, output);
+	}
+}
@@ -0,0 +1 @@
+package user;
\ No newline at end of file
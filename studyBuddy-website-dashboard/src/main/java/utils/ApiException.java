@@ -0,0 +1,45 @@
+package utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exception that ends a request with an HTTP status and an {"error": message} body,
+ * plus any details added with withDetail.
+ */
+public class ApiException extends Exception {
+	private static final long serialVersionUID = 1L;
+	private final int statusCode;
+	private final Map<String, String> headers = new LinkedHashMap<>();
+	private final Map<String, Object> details = new LinkedHashMap<>();
+
+	public ApiException(int statusCode, String message) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+
+	// Extra response header, e.g. Retry-After
+	public ApiException withHeader(String name, String value) {
+		headers.put(name, value);
+		return this;
+	}
+
+	// Extra field of the error body next to "error", e.g. per-item errors of a batch
+	public ApiException withDetail(String name, Object value) {
+		details.put(name, value);
+		return this;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public Map<String, String> getHeaders() {
+		return Collections.unmodifiableMap(headers);
+	}
+
+	public Map<String, Object> getDetails() {
+		return Collections.unmodifiableMap(details);
+	}
+}
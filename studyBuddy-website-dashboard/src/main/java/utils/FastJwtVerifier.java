@@ -0,0 +1,350 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ClaimsBuilder;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Allocation-light verifier for the HS256 compact tokens issued by JwtHelper.
+ * The kid is resolved by matching the encoded header against the headers of the keys in the ring.
+ * Splits segments with indexOf, reuses Mac instances and buffers, compares signatures
+ * in constant time and reads only sub, username, jti, iat and exp from the payload.
+ * Anything it doesn't recognize (other algorithms, extra headers, escaped strings,
+ * any other claim) returns null so the caller can fall back to jjwt.
+ */
+public class FastJwtVerifier {
+
+	// Base64url of {"alg":"HS256"}, the header of tokens issued without a kid
+	private static final String HS256_HEADER = "eyJhbGciOiJIUzI1NiJ9";
+	private static final int SIGNATURE_LENGTH = 32;
+	private static final int MAX_TOKEN_LENGTH = 4096;
+
+	private static final byte[] SUB = "sub".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] USERNAME = "username".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] EXP = "exp".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] IAT = "iat".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JTI = "jti".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int[] BASE64URL = new int[128];
+
+	static {
+		Arrays.fill(BASE64URL, -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64URL[alphabet.charAt(i)] = i;
+		}
+	}
+
+	// Encoded header segment per key, matched with startsWith so no header decoding is needed
+	private final String[] headers;
+	private final KeySlot[] slots;
+
+	public FastJwtVerifier(JwtKeyRing keyRing) {
+		Map<String, SecretKey> keys = keyRing.getKeys();
+		headers = new String[keys.size() + 1];
+		slots = new KeySlot[keys.size() + 1];
+
+		int i = 0;
+		for (Map.Entry<String, SecretKey> key : keys.entrySet()) {
+			headers[i] = headerFor(key.getKey(), key.getValue());
+			slots[i++] = new KeySlot(key.getValue());
+		}
+		// Tokens without a kid are verified with the current key
+		headers[i] = HS256_HEADER;
+		slots[i] = new KeySlot(keyRing.getCurrentKey());
+	}
+
+	/**
+	 * Verify a token.
+	 * @param token compact JWT
+	 * @param nowMillis current time
+	 * @return claims, or null if the token isn't a plain HS256 token this verifier understands
+	 * @throws JwtValidationException if the signature is wrong (403) or the token expired (401)
+	 */
+	public Claims verify(String token, long nowMillis) throws JwtValidationException {
+		int firstDot = token.indexOf('.');
+		int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+		if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0 || token.length() > MAX_TOKEN_LENGTH) {
+			return null;
+		}
+		KeySlot slot = null;
+		for (int i = 0; i < headers.length && slot == null; i++) {
+			if (firstDot == headers[i].length() && token.startsWith(headers[i])) {
+				slot = slots[i];
+			}
+		}
+		if (slot == null) {
+			return null;
+		}
+
+		State state = slot.pool.poll();
+		if (state == null) {
+			state = newState(slot.key);
+			if (state == null) {
+				return null;
+			}
+		}
+
+		try {
+			// Signature over "header.payload" as ASCII bytes
+			byte[] input = state.input;
+			for (int i = 0; i < secondDot; i++) {
+				char c = token.charAt(i);
+				if (c > 127) {
+					return null;
+				}
+				input[i] = (byte) c;
+			}
+			state.mac.update(input, 0, secondDot);
+			state.mac.doFinal(state.expected, 0);
+
+			int sigLength = decode(token, secondDot + 1, token.length(), state.actual);
+			if (sigLength != SIGNATURE_LENGTH || !MessageDigest.isEqual(state.expected, state.actual)) {
+				throw new JwtValidationException("Invalid token", 403);
+			}
+
+			int payloadLength = decode(token, firstDot + 1, secondDot, state.payload);
+			if (payloadLength < 0) {
+				return null;
+			}
+			return readClaims(state.payload, payloadLength, nowMillis);
+
+		} catch (GeneralSecurityException e) {
+			return null;
+		} finally {
+			state.mac.reset();
+			slot.pool.offer(state);
+		}
+	}
+
+	// Minimal reader for a flat JSON object of strings, numbers and literals
+	private Claims readClaims(byte[] buf, int length, long nowMillis) throws JwtValidationException {
+		String sub = null;
+		String username = null;
+		String jti = null;
+		long exp = -1;
+		long iat = -1;
+
+		int pos = skipWhitespace(buf, 0, length);
+		if (pos >= length || buf[pos] != '{') {
+			return null;
+		}
+		pos = skipWhitespace(buf, pos + 1, length);
+		if (pos < length && buf[pos] == '}') {
+			return null;
+		}
+
+		while (pos < length) {
+			// Key
+			if (buf[pos] != '"') {
+				return null;
+			}
+			int keyStart = pos + 1;
+			int keyEnd = endOfString(buf, keyStart, length);
+			if (keyEnd < 0) {
+				return null;
+			}
+			pos = skipWhitespace(buf, keyEnd + 1, length);
+			if (pos >= length || buf[pos] != ':') {
+				return null;
+			}
+			pos = skipWhitespace(buf, pos + 1, length);
+			if (pos >= length) {
+				return null;
+			}
+
+			// Value
+			byte first = buf[pos];
+			int valueStart = pos;
+			int valueEnd;
+			if (first == '"') {
+				valueEnd = endOfString(buf, pos + 1, length);
+				if (valueEnd < 0) {
+					return null;
+				}
+				pos = valueEnd + 1;
+			} else if (first == '-' || (first >= '0' && first <= '9') || first == 't' || first == 'f' || first == 'n') {
+				valueEnd = pos;
+				while (valueEnd < length && isScalarChar(buf[valueEnd])) {
+					valueEnd++;
+				}
+				pos = valueEnd;
+			} else {
+				return null; // Nested object or array
+			}
+
+			if (keyEquals(buf, keyStart, keyEnd, SUB)) {
+				if (first != '"') return null;
+				sub = new String(buf, valueStart + 1, valueEnd - valueStart - 1, StandardCharsets.UTF_8);
+			} else if (keyEquals(buf, keyStart, keyEnd, USERNAME)) {
+				if (first != '"') return null;
+				username = new String(buf, valueStart + 1, valueEnd - valueStart - 1, StandardCharsets.UTF_8);
+			} else if (keyEquals(buf, keyStart, keyEnd, JTI)) {
+				if (first != '"') return null;
+				jti = new String(buf, valueStart + 1, valueEnd - valueStart - 1, StandardCharsets.UTF_8);
+			} else if (keyEquals(buf, keyStart, keyEnd, EXP)) {
+				exp = parseLong(buf, valueStart, valueEnd);
+				if (exp < 0) return null;
+			} else if (keyEquals(buf, keyStart, keyEnd, IAT)) {
+				iat = parseLong(buf, valueStart, valueEnd);
+				if (iat < 0) return null;
+			} else {
+				return null; // Any other claim (nbf, aud, ...), let jjwt enforce and keep it
+			}
+
+			pos = skipWhitespace(buf, pos, length);
+			if (pos < length && buf[pos] == ',') {
+				pos = skipWhitespace(buf, pos + 1, length);
+			} else if (pos < length && buf[pos] == '}') {
+				break;
+			} else {
+				return null;
+			}
+		}
+
+		if (sub == null || exp < 0) {
+			return null;
+		}
+		long expMillis = exp * 1000;
+		if (nowMillis >= expMillis) {
+			// Token expired 401 Unauthorized
+			throw new JwtValidationException("Token expired", 401);
+		}
+
+		ClaimsBuilder claims = Jwts.claims().subject(sub).expiration(new Date(expMillis));
+		if (username != null) {
+			claims.add("username", username);
+		}
+		if (jti != null) {
+			claims.id(jti);
+		}
+		if (iat >= 0) {
+			claims.issuedAt(new Date(iat * 1000));
+		}
+		return claims.build();
+	}
+
+	// The exact header jjwt writes for a kid, taken from a throwaway token
+	private static String headerFor(String kid, SecretKey key) {
+		String token = Jwts.builder().header().keyId(kid).and().subject("").signWith(key).compact();
+		return token.substring(0, token.indexOf('.'));
+	}
+
+	private static State newState(SecretKey key) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(key);
+			return new State(mac);
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+	}
+
+	// Decode base64url (no padding) into out, returns decoded length or -1
+	private static int decode(String s, int from, int to, byte[] out) {
+		int bits = 0;
+		int bitCount = 0;
+		int length = 0;
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			int value = c < 128 ? BASE64URL[c] : -1;
+			if (value < 0) {
+				return -1;
+			}
+			bits = (bits << 6) | value;
+			bitCount += 6;
+			if (bitCount >= 8) {
+				bitCount -= 8;
+				if (length == out.length) {
+					return -1;
+				}
+				out[length++] = (byte) (bits >> bitCount);
+			}
+		}
+		return length;
+	}
+
+	// Index of the closing quote, or -1 for unterminated or escaped strings
+	private static int endOfString(byte[] buf, int from, int length) {
+		for (int i = from; i < length; i++) {
+			if (buf[i] == '"') {
+				return i;
+			}
+			if (buf[i] == '\\') {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private static int skipWhitespace(byte[] buf, int pos, int length) {
+		while (pos < length && (buf[pos] == ' ' || buf[pos] == '\t' || buf[pos] == '\n' || buf[pos] == '\r')) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static boolean isScalarChar(byte b) {
+		return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || b == '-' || b == '+' || b == '.' || b == 'E';
+	}
+
+	private static boolean keyEquals(byte[] buf, int start, int end, byte[] key) {
+		if (end - start != key.length) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (buf[start + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Non-negative integer, -1 otherwise
+	private static long parseLong(byte[] buf, int start, int end) {
+		if (start == end || end - start > 18) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			if (buf[i] < '0' || buf[i] > '9') {
+				return -1;
+			}
+			value = value * 10 + (buf[i] - '0');
+		}
+		return value;
+	}
+
+	private static final class KeySlot {
+		final SecretKey key;
+		// Mac and buffers are pooled rather than thread-local so virtual threads reuse them too
+		final ConcurrentLinkedQueue<State> pool = new ConcurrentLinkedQueue<>();
+
+		KeySlot(SecretKey key) {
+			this.key = key;
+		}
+	}
+
+	private static final class State {
+		final Mac mac;
+		final byte[] input = new byte[MAX_TOKEN_LENGTH];
+		final byte[] payload = new byte[MAX_TOKEN_LENGTH];
+		final byte[] expected = new byte[SIGNATURE_LENGTH];
+		final byte[] actual = new byte[SIGNATURE_LENGTH];
+
+		State(Mac mac) {
+			this.mac = mac;
+		}
+	}
+}
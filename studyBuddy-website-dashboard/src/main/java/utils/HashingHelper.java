@@ -0,0 +1,153 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utility class for hashing and verifying passwords.
+ * New hashes use PBKDF2 with a cost calibrated at startup; the original unsalted SHA-256
+ * hashes still verify and report needsRehash so login can upgrade them.
+ * Hashing runs on a small bounded pool, so a burst of logins queues behind a few cores
+ * instead of starving every other request; when the queue is full callers get a 503.
+ * Bulk provisioning hashes on its own fork-join pool instead, see hashAll.
+ */
+public class HashingHelper {
+
+    private static final int THREADS = EnvHelper.getInt("PASSWORD_HASH_THREADS", Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_SIZE = EnvHelper.getInt("PASSWORD_HASH_QUEUE", THREADS * 8);
+    private static final long TIMEOUT_MS = EnvHelper.getLong("PASSWORD_HASH_TIMEOUT_MS", 5000);
+
+    private static final Pbkdf2PasswordHasher CURRENT = createHasher();
+    private static final PasswordHasher LEGACY = new LegacySha256Hasher();
+
+    private static final ThreadPoolExecutor POOL = createPool();
+    private static final ForkJoinPool BULK_POOL = new ForkJoinPool(
+            EnvHelper.getInt("PASSWORD_HASH_BULK_THREADS", Runtime.getRuntime().availableProcessors()));
+    private static final AtomicLong REJECTED = new AtomicLong();
+
+    // Hash a plain password with the current scheme
+    public static String hashPassword(String password) throws PasswordHashingException {
+        return submit(() -> CURRENT.hash(password));
+    }
+
+    /**
+     * Hash many passwords with the current scheme, split into one contiguous chunk per thread
+     * of the bulk pool. Bulk work never queues on the request pool, so an import doesn't turn
+     * logins into 503s.
+     * @param passwords plain passwords
+     * @return hashes, in the same order
+     */
+    public static String[] hashAll(List<String> passwords) throws PasswordHashingException {
+        String[] hashes = new String[passwords.size()];
+        int chunks = Math.min(BULK_POOL.getParallelism(), hashes.length);
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) hashes.length * c / chunks);
+            int to = (int) ((long) hashes.length * (c + 1) / chunks);
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    hashes[i] = CURRENT.hash(passwords.get(i));
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : BULK_POOL.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingException("Interrupted", 503);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+        return hashes;
+    }
+
+    // Verify a plain password against a stored hash of any supported scheme
+    public static boolean verifyPassword(String plainPassword, String storedHash) throws PasswordHashingException {
+        if (storedHash == null) {
+            return false;
+        }
+        if (CURRENT.supports(storedHash)) {
+            return submit(() -> CURRENT.verify(plainPassword, storedHash));
+        }
+        // Cheap, no need to queue
+        return LEGACY.supports(storedHash) && LEGACY.verify(plainPassword, storedHash);
+    }
+
+    // True if a stored hash should be replaced by hashPassword() after a successful login
+    public static boolean needsRehash(String storedHash) {
+        return !CURRENT.supports(storedHash) || CURRENT.needsRehash(storedHash);
+    }
+
+    /**
+     * Hashing pool counters
+     * @return iterations, threads, active, queued, completed and rejected tasks
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("iterations", CURRENT.getIterations());
+        stats.put("threads", THREADS);
+        stats.put("active", POOL.getActiveCount());
+        stats.put("queued", POOL.getQueue().size());
+        stats.put("completed", POOL.getCompletedTaskCount());
+        stats.put("rejected", REJECTED.get());
+        return stats;
+    }
+
+    private static <T> T submit(Callable<T> task) throws PasswordHashingException {
+        Future<T> future;
+        try {
+            future = POOL.submit(task);
+        } catch (RejectedExecutionException e) {
+            REJECTED.incrementAndGet();
+            throw new PasswordHashingException("Server busy, try again", 503);
+        }
+        try {
+            return future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PasswordHashingException("Server busy, try again", 503);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PasswordHashingException("Interrupted", 503);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static Pbkdf2PasswordHasher createHasher() {
+        int iterations = EnvHelper.getInt("PASSWORD_HASH_ITERATIONS", 0);
+        if (iterations > 0) {
+            return new Pbkdf2PasswordHasher(iterations);
+        }
+        return Pbkdf2PasswordHasher.calibrate(
+                EnvHelper.getLong("PASSWORD_HASH_TARGET_MS", 100),
+                EnvHelper.getInt("PASSWORD_HASH_MIN_ITERATIONS", 100_000));
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, QUEUE_SIZE)), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,195 @@
+package utils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * What the RequestPipeline stages learned about one request: the parsed body, headers,
+ * verified claims and any values the validation stage parsed for the handler.
+ */
+public class RequestContext {
+
+	private final Map<String, Object> attributes = new HashMap<>();
+	private final long[] stageNanos = new long[RequestPipeline.Stage.values().length];
+
+	Map<String, String> headers;
+	Map<String, String> query;
+	Map<String, String> pathParameters;
+	String sourceIp;
+	JSONObject body;
+	String rawBody;
+	Object request;
+	Claims claims;
+	boolean sent;
+
+	RequestContext() {
+	}
+
+	// Parsed JSON body, null if the pipeline doesn't parse bodies for this route
+	public JSONObject getBody() {
+		return body;
+	}
+
+	// Body text for routes taking something other than JSON, null for the others
+	public String getRawBody() {
+		return rawBody;
+	}
+
+	// Typed request decoded from the body, null if the route doesn't decode one
+	@SuppressWarnings("unchecked")
+	public <T> T getRequest() {
+		return (T) request;
+	}
+
+	// Header value, trying the name as given, in lower case, then any case (server mode sends e.g. If-none-match)
+	public String getHeader(String name) {
+		if (headers == null) {
+			return null;
+		}
+		String value = headers.get(name);
+		if (value == null) {
+			value = headers.get(name.toLowerCase());
+		}
+		if (value == null) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				if (header.getKey().equalsIgnoreCase(name)) {
+					return header.getValue();
+				}
+			}
+		}
+		return value;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	// Verified claims, null for routes without JWT auth
+	public Claims getClaims() {
+		return claims;
+	}
+
+	// user_id from the verified token
+	public long getUserId() {
+		return Long.parseLong(claims.getSubject());
+	}
+
+	// Query string parameter, null if absent
+	public String getQueryParameter(String name) {
+		return query == null ? null : query.get(name);
+	}
+
+	// Path parameter of a templated route such as /certifications/{id}/hours, null if absent
+	public String getPathParameter(String name) {
+		return pathParameters == null ? null : pathParameters.get(name);
+	}
+
+	// Client address set by API Gateway (REST or HTTP API) or the standalone server, null if unknown
+	public String getSourceIp() {
+		return sourceIp;
+	}
+
+	// Required string field of the body, 400 if it is missing
+	public String requireString(String field) throws ApiException {
+		if (body == null || !body.has(field) || body.isNull(field)) {
+			throw new ApiException(400, "Missing " + field);
+		}
+		return body.optString(field);
+	}
+
+	// Required integer field of the body, 400 if it is missing or not a number
+	public long requireLong(String field) throws ApiException {
+		if (body == null || !body.has(field) || body.isNull(field)) {
+			throw new ApiException(400, "Missing " + field);
+		}
+		try {
+			return body.getLong(field);
+		} catch (JSONException e) {
+			throw new ApiException(400, "Invalid " + field);
+		}
+	}
+
+	// Optional yyyy-MM-dd field of the body, 400 if it is malformed
+	public java.sql.Date optionalDate(String field) throws ApiException {
+		if (body == null || !body.has(field) || body.isNull(field)) {
+			return null;
+		}
+		return parseDate(body.optString(field), field);
+	}
+
+	// Required field of a typed request, 400 if it is missing
+	public static <T> T require(T value, String field) throws ApiException {
+		if (value == null) {
+			throw new ApiException(400, "Missing " + field);
+		}
+		return value;
+	}
+
+	// yyyy-MM-dd field of a typed request, null if absent, 400 if it is malformed
+	public static java.sql.Date parseDate(String value, String field) throws ApiException {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return java.sql.Date.valueOf(LocalDate.parse(value));
+		} catch (DateTimeParseException e) {
+			throw new ApiException(400, "Invalid " + field);
+		}
+	}
+
+	// Optional integer query parameter, 400 if it isn't a number
+	public Long optionalLongParameter(String name) throws ApiException {
+		String value = getQueryParameter(name);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new ApiException(400, "Invalid " + name + " parameter");
+		}
+	}
+
+	// Optional yyyy-MM-dd query parameter, 400 if it is malformed
+	public java.sql.Date optionalDateParameter(String name) throws ApiException {
+		String value = getQueryParameter(name);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return java.sql.Date.valueOf(LocalDate.parse(value));
+		} catch (DateTimeParseException e) {
+			throw new ApiException(400, "Invalid " + name + " parameter");
+		}
+	}
+
+	// Value parsed during validation, for the handler stage
+	public void setAttribute(String name, Object value) {
+		attributes.put(name, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T getAttribute(String name) {
+		return (T) attributes.get(name);
+	}
+
+	/**
+	 * Time spent in a stage of this request
+	 * @param stage stage
+	 * @return nanoseconds, 0 if the stage didn't run
+	 */
+	public long getStageNanos(RequestPipeline.Stage stage) {
+		return stageNanos[stage.ordinal()];
+	}
+
+	void recordStage(RequestPipeline.Stage stage, long nanos) {
+		stageNanos[stage.ordinal()] = nanos;
+	}
+}
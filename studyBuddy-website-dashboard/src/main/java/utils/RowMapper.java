@@ -0,0 +1,176 @@
+package utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes result set rows as JSON objects, one column label per field.
+ * Built once per query from the result set metadata: labels are kept pre-encoded and each
+ * column gets a typed getter (getLong, getString, ...), so writing a row doesn't look up
+ * metadata or box values. Values render as JSONObject rendered them before: numbers and
+ * booleans as JSON values, dates, timestamps and anything else as strings, and SQL NULL
+ * columns are left out of the object.
+ */
+public class RowMapper {
+
+	// Writes one column of the current row as a field, nothing if it is SQL NULL
+	private interface ColumnWriter {
+		void write(ResultSet rs, int column, SerializedString label, JsonGenerator json) throws SQLException, IOException;
+	}
+
+	private static final ConcurrentHashMap<String, RowMapper> CACHE = new ConcurrentHashMap<>();
+
+	private final SerializedString[] labels;
+	private final ColumnWriter[] writers;
+
+	private RowMapper(ResultSetMetaData meta) throws SQLException {
+		int count = meta.getColumnCount();
+		labels = new SerializedString[count];
+		writers = new ColumnWriter[count];
+		for (int i = 0; i < count; i++) {
+			labels[i] = new SerializedString(meta.getColumnLabel(i + 1));
+			writers[i] = writerFor(meta.getColumnType(i + 1));
+		}
+	}
+
+	/**
+	 * Mapper for a query's result set, built on first use and cached by the query text.
+	 * A cached mapper is rebuilt if the column count changed (e.g. SELECT * after a migration).
+	 * @param query SQL the result set came from
+	 * @param rs result set
+	 * @return mapper
+	 */
+	public static RowMapper forQuery(String query, ResultSet rs) throws SQLException {
+		RowMapper mapper = CACHE.get(query);
+		ResultSetMetaData meta = rs.getMetaData();
+		if (mapper == null || mapper.labels.length != meta.getColumnCount()) {
+			mapper = new RowMapper(meta);
+			CACHE.put(query, mapper);
+		}
+		return mapper;
+	}
+
+	// Number of cached mappers, one per query seen
+	public static int getCacheSize() {
+		return CACHE.size();
+	}
+
+	/**
+	 * Write the current row as a JSON object.
+	 * @param rs result set positioned on a row
+	 * @param json generator
+	 */
+	public void writeRow(ResultSet rs, JsonGenerator json) throws SQLException, IOException {
+		json.writeStartObject();
+		for (int i = 0; i < labels.length; i++) {
+			writers[i].write(rs, i + 1, labels[i], json);
+		}
+		json.writeEndObject();
+	}
+
+	/**
+	 * Write every remaining row as an element of the current JSON array.
+	 * @param rs result set
+	 * @param json generator inside an array
+	 * @return rows written
+	 */
+	public int writeRows(ResultSet rs, JsonGenerator json) throws SQLException, IOException {
+		int count = 0;
+		while (rs.next()) {
+			writeRow(rs, json);
+			count++;
+		}
+		return count;
+	}
+
+	private static ColumnWriter writerFor(int sqlType) {
+		switch (sqlType) {
+		case Types.BIGINT:
+			return (rs, c, label, json) -> {
+				long value = rs.getLong(c);
+				if (!rs.wasNull()) {
+					json.writeFieldName(label);
+					json.writeNumber(value);
+				}
+			};
+		case Types.INTEGER:
+		case Types.SMALLINT:
+		case Types.TINYINT:
+			return (rs, c, label, json) -> {
+				int value = rs.getInt(c);
+				if (!rs.wasNull()) {
+					json.writeFieldName(label);
+					json.writeNumber(value);
+				}
+			};
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return (rs, c, label, json) -> {
+				double value = rs.getDouble(c);
+				if (!rs.wasNull()) {
+					json.writeFieldName(label);
+					json.writeNumber(value);
+				}
+			};
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return (rs, c, label, json) -> {
+				BigDecimal value = rs.getBigDecimal(c);
+				if (value != null) {
+					json.writeFieldName(label);
+					json.writeNumber(value);
+				}
+			};
+		case Types.BOOLEAN:
+		case Types.BIT: // PostgreSQL boolean
+			return (rs, c, label, json) -> {
+				boolean value = rs.getBoolean(c);
+				if (!rs.wasNull()) {
+					json.writeFieldName(label);
+					json.writeBoolean(value);
+				}
+			};
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+			return (rs, c, label, json) -> writeString(label, rs.getString(c), json);
+		case Types.DATE:
+			return (rs, c, label, json) -> {
+				Date value = rs.getDate(c);
+				writeString(label, value == null ? null : value.toString(), json);
+			};
+		case Types.TIMESTAMP:
+		case Types.TIMESTAMP_WITH_TIMEZONE:
+			return (rs, c, label, json) -> {
+				Timestamp value = rs.getTimestamp(c);
+				writeString(label, value == null ? null : value.toString(), json);
+			};
+		default:
+			return (rs, c, label, json) -> {
+				Object value = rs.getObject(c);
+				writeString(label, value == null ? null : value.toString(), json);
+			};
+		}
+	}
+
+	private static void writeString(SerializedString label, String value, JsonGenerator json) throws IOException {
+		if (value != null) {
+			json.writeFieldName(label);
+			json.writeString(value);
+		}
+	}
+}
@@ -0,0 +1 @@
+package utils;
\ No newline at end of file
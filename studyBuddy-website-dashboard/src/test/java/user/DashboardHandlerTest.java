@@ -0,0 +1,90 @@
+package user;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import utils.JsonReader;
+import utils.RowMapper;
+
+/**
+ * Unit test ensuring that GET /me items have the shape GET /certifications writes with RowMapper.
+ */
+public class DashboardHandlerTest {
+
+	private static final String[] LABELS = { "user_cert_id", "user_id", "title", "description", "earned_on", "expires_on", "ce_hours_completed" };
+	private static final int[] TYPES = { Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.DATE, Types.DATE, Types.INTEGER };
+	private static final Object[] ROW = { 7, 3, "AWS SAA", null, Date.valueOf("2025-09-14"), null, 12 };
+
+	// The same row as json_strip_nulls(to_json(uc)) renders it: NULL columns gone, dates as yyyy-MM-dd
+	private static final String POSTGRES_ITEM =
+			"{\"user_cert_id\":7,\"user_id\":3,\"title\":\"AWS SAA\",\"earned_on\":\"2025-09-14\",\"ce_hours_completed\":12}";
+
+	// Result set over ROW, answering the typed getters RowMapper uses
+	private static ResultSet resultSet() {
+		ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(DashboardHandlerTest.class.getClassLoader(),
+				new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getColumnCount": return LABELS.length;
+					case "getColumnLabel": return LABELS[(int) args[0] - 1];
+					case "getColumnType": return TYPES[(int) args[0] - 1];
+					default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		Object[] last = new Object[1];
+		return (ResultSet) Proxy.newProxyInstance(DashboardHandlerTest.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getMetaData")) {
+						return meta;
+					}
+					if (method.getName().equals("wasNull")) {
+						return last[0] == null;
+					}
+					Object value = ROW[(int) args[0] - 1];
+					last[0] = value;
+					switch (method.getName()) {
+					case "getInt": return value == null ? 0 : value;
+					case "getString": case "getDate": return value;
+					default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static JSONObject rowMapperItem() throws Exception {
+		StringWriter out = new StringWriter();
+		try (JsonGenerator json = JsonReader.FACTORY.createGenerator(out)) {
+			ResultSet rs = resultSet();
+			RowMapper.forQuery("SELECT dashboard test", rs).writeRow(rs, json);
+		}
+		return new JSONObject(out.toString());
+	}
+
+	@Test
+	void testSqlStripsNulls() {
+		assertTrue(DashboardHandler.SQL.contains("json_strip_nulls(json_build_object("));
+		assertTrue(DashboardHandler.SQL.contains("json_agg(json_strip_nulls(to_json(uc))"));
+	}
+
+	@Test
+	void testItemMatchesRowMapper() throws Exception {
+		StringWriter out = new StringWriter();
+		try (JsonGenerator json = JsonReader.FACTORY.createGenerator(out)) {
+			DashboardHandler.write(json, "{\"user_id\":3}", "[" + POSTGRES_ITEM + "]", null);
+		}
+		JSONObject item = new JSONObject(out.toString()).getJSONArray("user_certifications").getJSONObject(0);
+
+		JSONObject expected = rowMapperItem();
+		assertFalse(expected.has("description"));
+		assertTrue(expected.similar(item), "GET /me item " + item + " differs from " + expected);
+	}
+}
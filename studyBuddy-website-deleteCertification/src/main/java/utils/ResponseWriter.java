@@ -0,0 +1,187 @@
+package utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes ApiResponses as API Gateway proxy responses ({statusCode, headers, body}) in one pass.
+ * A streamed body is generated straight into the escaped "body" string of the envelope,
+ * so it is never built as a separate String and its JSON is escaped exactly once.
+ * Output buffers come from Jackson's per-thread buffer recycler.
+ */
+public class ResponseWriter {
+
+	private static final String DEFAULT_CONTENT_TYPE = "application/json";
+
+	private static final String[] CONTROL_ESCAPES = new String[0x20];
+
+	static {
+		for (int c = 0; c < CONTROL_ESCAPES.length; c++) {
+			CONTROL_ESCAPES[c] = String.format("\\u%04x", c);
+		}
+		CONTROL_ESCAPES['\b'] = "\\b";
+		CONTROL_ESCAPES['\t'] = "\\t";
+		CONTROL_ESCAPES['\n'] = "\\n";
+		CONTROL_ESCAPES['\f'] = "\\f";
+		CONTROL_ESCAPES['\r'] = "\\r";
+	}
+
+	/**
+	 * Write the proxy response, for RequestStreamHandler entry points.
+	 * @param response response
+	 * @param output Lambda output stream
+	 */
+	public static void writeEnvelope(ApiResponse response, OutputStream output) throws Exception {
+		try (JsonGenerator envelope = JsonReader.FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+			writeEnvelope(response, envelope);
+		}
+	}
+
+	/**
+	 * The proxy response as a JSON string, for handlers returning String.
+	 * @param response response
+	 * @return {"statusCode": ..., "headers": {...}, "body": "..."}
+	 */
+	public static String toEnvelopeString(ApiResponse response) throws Exception {
+		StringWriter out = new StringWriter();
+		try (JsonGenerator envelope = JsonReader.FACTORY.createGenerator(out)) {
+			writeEnvelope(response, envelope);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Write only the body, for hosts that send status and headers themselves.
+	 * @param response response
+	 * @param output response body stream
+	 */
+	public static void writeBody(ApiResponse response, OutputStream output) throws Exception {
+		if (response.getBodyWriter() == null) {
+			output.write(response.getBody().getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		try (JsonGenerator body = JsonReader.FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+			response.getBodyWriter().write(body);
+		}
+	}
+
+	/**
+	 * Headers sent with a response, Content-Type defaulting to JSON.
+	 * @param response response
+	 * @param sink receives each header
+	 */
+	public static void forEachHeader(ApiResponse response, HeaderSink sink) throws IOException {
+		if (!response.getHeaders().containsKey("Content-Type")) {
+			sink.header("Content-Type", DEFAULT_CONTENT_TYPE);
+		}
+		for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+			sink.header(header.getKey(), header.getValue());
+		}
+	}
+
+	// Receives response headers
+	public interface HeaderSink {
+		void header(String name, String value) throws IOException;
+	}
+
+	private static void writeEnvelope(ApiResponse response, JsonGenerator envelope) throws Exception {
+		envelope.writeStartObject();
+		envelope.writeNumberField("statusCode", response.getStatusCode());
+		envelope.writeObjectFieldStart("headers");
+		forEachHeader(response, envelope::writeStringField);
+		envelope.writeEndObject();
+		envelope.writeFieldName("body");
+
+		if (response.getBodyWriter() == null) {
+			envelope.writeString(response.getBody());
+		} else {
+			// Body JSON goes through the escaper into the envelope's string value
+			envelope.writeRawValue("\"");
+			try (JsonGenerator body = JsonReader.FACTORY.createGenerator(new EscapingWriter(envelope))) {
+				response.getBodyWriter().write(body);
+			}
+			envelope.writeRaw('"');
+		}
+		envelope.writeEndObject();
+	}
+
+	/**
+	 * Writes characters into a JSON string value of another generator, escaping as it goes.
+	 * Unescaped runs are passed through without copying.
+	 */
+	private static class EscapingWriter extends Writer {
+
+		private final JsonGenerator target;
+		private char pendingHighSurrogate;
+
+		EscapingWriter(JsonGenerator target) {
+			this.target = target;
+		}
+
+		@Override
+		public void write(char[] buffer, int offset, int length) throws IOException {
+			int end = offset + length;
+			int run = offset;
+			if (pendingHighSurrogate != 0 && length > 0) {
+				// Keep surrogate pairs in one writeRaw call so they encode as one code point
+				if (Character.isLowSurrogate(buffer[offset])) {
+					target.writeRaw(new char[] { pendingHighSurrogate, buffer[offset] }, 0, 2);
+					run = ++offset;
+				} else {
+					target.writeRaw(pendingHighSurrogate);
+				}
+				pendingHighSurrogate = 0;
+			}
+			for (int i = offset; i < end; i++) {
+				char c = buffer[i];
+				String escape = null;
+				if (c == '"') {
+					escape = "\\\"";
+				} else if (c == '\\') {
+					escape = "\\\\";
+				} else if (c < 0x20) {
+					escape = CONTROL_ESCAPES[c];
+				} else if (i == end - 1 && Character.isHighSurrogate(c)) {
+					target.writeRaw(buffer, run, i - run);
+					pendingHighSurrogate = c;
+					return;
+				}
+				if (escape != null) {
+					if (i > run) {
+						target.writeRaw(buffer, run, i - run);
+					}
+					target.writeRaw(escape);
+					run = i + 1;
+				}
+			}
+			if (end > run) {
+				target.writeRaw(buffer, run, end - run);
+			}
+		}
+
+		@Override
+		public void write(String str, int offset, int length) throws IOException {
+			write(str.toCharArray(), offset, length);
+		}
+
+		@Override
+		public void flush() {
+			// The envelope is flushed by its own generator
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (pendingHighSurrogate != 0) {
+				target.writeRaw(pendingHighSurrogate);
+				pendingHighSurrogate = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package certification;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import utils.ApiException;
+import utils.EnvHelper;
+import utils.FieldSelection;
+import utils.PageCursor;
+import utils.RequestContext;
+
+/**
+ * One page of GET /certifications: filters, sort and a keyset position from the query string.
+ * Pages continue from the sort value and id of the previous page's last row instead of an
+ * OFFSET, so every page costs the same however deep it is. The SQL only depends on which
+ * parameters are present, so it is built once per shape and cached, and each sort is served
+ * by an index in database/user_cert_indexes.sql.
+ *
+ * Parameters: sort (user_cert_id, earned_on, expires_on or title, "-" prefix for descending),
+ * limit, cursor, fields, cert_level, earned_from, earned_to, expires_from, expires_to, user_cert_id.
+ * fields narrows the columns selected and returned; user_cert_id and the sort column are
+ * always included since the cursor is made of them.
+ */
+class CertificationQuery {
+
+	static final int DEFAULT_LIMIT = EnvHelper.getInt("CERT_PAGE_SIZE", 50);
+	static final int MAX_LIMIT = 200;
+
+	// Sortable columns; nullable ones sort NULLs last ascending and first descending
+	enum Sort {
+		USER_CERT_ID("user_cert_id", false),
+		EARNED_ON("earned_on", true),
+		EXPIRES_ON("expires_on", true),
+		TITLE("title", false);
+
+		final String column;
+		final boolean nullable;
+
+		Sort(String column, boolean nullable) {
+			this.column = column;
+			this.nullable = nullable;
+		}
+	}
+
+	static final FieldSelection FIELDS = new FieldSelection("uc.", "user_cert_id", "user_id", "title", "uid",
+			"description", "cert_level", "earned_on", "expires_on", "ce_hours_required", "ce_hours_completed");
+
+	// Conditions of the optional filters, in the order their values are read
+	private static final String[] FILTERS = {
+			"uc.user_cert_id = ?",
+			"uc.cert_level = ?",
+			"uc.earned_on >= ?",
+			"uc.earned_on <= ?",
+			"uc.expires_on >= ?",
+			"uc.expires_on <= ?"
+	};
+
+	// SQL by shape, see shapeKey
+	private static final ConcurrentHashMap<Long, String> SQL_CACHE = new ConcurrentHashMap<>();
+
+	private final Sort sort;
+	private final boolean descending;
+	private final int limit;
+	private final String sql;
+	private final List<Object> params = new ArrayList<>();
+
+	private CertificationQuery(RequestContext ctx) throws ApiException {
+		String sortParam = ctx.getQueryParameter("sort") == null ? "user_cert_id" : ctx.getQueryParameter("sort");
+		this.descending = sortParam.startsWith("-");
+		this.sort = parseSort(descending ? sortParam.substring(1) : sortParam);
+
+		Long limitParam = ctx.optionalLongParameter("limit");
+		if (limitParam != null && (limitParam < 1 || limitParam > MAX_LIMIT)) {
+			throw new ApiException(400, "Invalid limit parameter, must be 1 to " + MAX_LIMIT);
+		}
+		this.limit = limitParam == null ? DEFAULT_LIMIT : limitParam.intValue();
+
+		String cursorParam = ctx.getQueryParameter("cursor");
+		PageCursor cursor = cursorParam == null ? null : PageCursor.decode(cursorParam, sortParam);
+
+		// 0 selects uc.*, the shape clients got before fields existed
+		String fieldsParam = ctx.getQueryParameter("fields");
+		long fields = fieldsParam == null ? 0
+				: FIELDS.include(FIELDS.include(FIELDS.parse(fieldsParam), "user_cert_id"), sort.column);
+
+		Object[] filters = {
+				ctx.optionalLongParameter("user_cert_id"),
+				ctx.getQueryParameter("cert_level"),
+				ctx.optionalDateParameter("earned_from"),
+				ctx.optionalDateParameter("earned_to"),
+				ctx.optionalDateParameter("expires_from"),
+				ctx.optionalDateParameter("expires_to")
+		};
+		long shape = shapeKey(fields, filters, cursor);
+		String cached = SQL_CACHE.get(shape);
+
+		// Parameters are bound every time, the text is only built for a new shape
+		StringBuilder sql = cached != null ? null
+				: new StringBuilder("SELECT ").append(fields == 0 ? "uc.*" : FIELDS.columns(fields))
+						.append(" FROM user_cert uc WHERE uc.user_id = ?");
+		params.add(ctx.getUserId());
+		for (int i = 0; i < filters.length; i++) {
+			if (filters[i] != null) {
+				append(sql, " AND ", FILTERS[i]);
+				params.add(filters[i]);
+			}
+		}
+		if (cursor != null) {
+			after(sql, cursor);
+		}
+		params.add(limit + 1); // One extra row tells whether there is a next page
+
+		if (cached != null) {
+			this.sql = cached;
+		} else {
+			String direction = descending ? " DESC" : " ASC";
+			sql.append(" ORDER BY ");
+			if (sort != Sort.USER_CERT_ID) {
+				sql.append("uc.").append(sort.column).append(direction).append(descending ? " NULLS FIRST, " : " NULLS LAST, ");
+			}
+			sql.append("uc.user_cert_id").append(direction).append(" LIMIT ?");
+			// One instance per shape, RowMapper and the driver's statement cache key on it
+			String text = sql.toString();
+			String existing = SQL_CACHE.putIfAbsent(shape, text);
+			this.sql = existing != null ? existing : text;
+		}
+	}
+
+	/**
+	 * Build the query of a request.
+	 * @param ctx request with a verified user
+	 * @return query
+	 * @throws ApiException 400 for an unknown sort or field, bad limit, date or cursor
+	 */
+	static CertificationQuery from(RequestContext ctx) throws ApiException {
+		return new CertificationQuery(ctx);
+	}
+
+	String getSql() {
+		return sql;
+	}
+
+	int getLimit() {
+		return limit;
+	}
+
+	// Identifies the page for CertificationCache: the SQL and every parameter, length-prefixed
+	String getCacheKey() {
+		StringBuilder key = new StringBuilder(sql);
+		for (Object param : params) {
+			String value = String.valueOf(param);
+			key.append('\n').append(value.length()).append(':').append(value);
+		}
+		return key.toString();
+	}
+
+	void bind(PreparedStatement stmt) throws SQLException {
+		for (int i = 0; i < params.size(); i++) {
+			Object param = params.get(i);
+			if (param instanceof Long) {
+				stmt.setLong(i + 1, (Long) param);
+			} else if (param instanceof Integer) {
+				stmt.setInt(i + 1, (Integer) param);
+			} else if (param instanceof Date) {
+				stmt.setDate(i + 1, (Date) param);
+			} else {
+				stmt.setString(i + 1, (String) param);
+			}
+		}
+	}
+
+	/**
+	 * Token for the page after a row.
+	 * @param rs result set on the last row of this page
+	 * @return cursor
+	 */
+	PageCursor cursorAfter(ResultSet rs) throws SQLException {
+		String value = sort == Sort.USER_CERT_ID ? null : rs.getString(sort.column);
+		return new PageCursor((descending ? "-" : "") + sort.column, value, rs.getLong("user_cert_id"));
+	}
+
+	/**
+	 * Everything the SQL text depends on: selected fields (bits 0-15), which filters are
+	 * present (16-21), sort (22-23), direction (24) and cursor kind (25-26).
+	 */
+	private long shapeKey(long fields, Object[] filters, PageCursor cursor) {
+		long key = fields;
+		for (int i = 0; i < filters.length; i++) {
+			if (filters[i] != null) {
+				key |= 1L << (16 + i);
+			}
+		}
+		key |= (long) sort.ordinal() << 22;
+		key |= descending ? 1L << 24 : 0;
+		if (cursor != null) {
+			key |= (cursor.getValue() == null ? 1L : 2L) << 25;
+		}
+		return key;
+	}
+
+	// Append to the SQL being built, sql is null when the cached text is used
+	private static void append(StringBuilder sql, String... parts) {
+		if (sql != null) {
+			for (String part : parts) {
+				sql.append(part);
+			}
+		}
+	}
+
+	// Rows after the cursor in (sort column, user_cert_id) order
+	private void after(StringBuilder sql, PageCursor cursor) throws ApiException {
+		String op = descending ? "<" : ">";
+		String column = "uc." + sort.column;
+		if (sort == Sort.USER_CERT_ID) {
+			append(sql, " AND uc.user_cert_id ", op, " ?");
+			params.add(cursor.getId());
+		} else if (cursor.getValue() == null) {
+			if (!sort.nullable) {
+				throw new ApiException(400, "Invalid cursor");
+			}
+			// Ascending: only NULLs are left. Descending: the rest of the NULLs, then every value.
+			append(sql, descending
+					? " AND (" + column + " IS NOT NULL OR uc.user_cert_id < ?)"
+					: " AND " + column + " IS NULL AND uc.user_cert_id > ?");
+			params.add(cursor.getId());
+		} else {
+			append(sql, " AND ((", column, ", uc.user_cert_id) ", op, " (?, ?)");
+			// NULLs come after every value when ascending
+			append(sql, sort.nullable && !descending ? " OR " + column + " IS NULL)" : ")");
+			params.add(sort.nullable ? parseCursorDate(cursor.getValue()) : cursor.getValue());
+			params.add(cursor.getId());
+		}
+	}
+
+	private static Sort parseSort(String name) throws ApiException {
+		for (Sort sort : Sort.values()) {
+			if (sort.column.equals(name)) {
+				return sort;
+			}
+		}
+		throw new ApiException(400, "Invalid sort parameter");
+	}
+
+	// The nullable sort columns are dates
+	private static Date parseCursorDate(String value) throws ApiException {
+		try {
+			return Date.valueOf(value);
+		} catch (IllegalArgumentException e) {
+			throw new ApiException(400, "Invalid cursor");
+		}
+	}
+}
@@ -2,128 +2,174 @@ package certification;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import io.jsonwebtoken.Claims;
+import com.fasterxml.jackson.core.JsonGenerator;
 
+import java.io.StringWriter;
 import java.sql.*;
 import java.util.Map;
 
-import utils.JwtHelper;
-import utils.JwtValidationException;
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.CertificationCache;
+import utils.DatabaseHelper;
+import utils.ETags;
+import utils.InvalidationBus;
+import utils.JsonReader;
+import utils.PageCursor;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+import utils.RowMapper;
 
 /**
- * Retrieves user_cert data tied to the authenticated user.
+ * Retrieves user_cert data tied to the authenticated user, one page at a time.
  * Requires a JWT token in the request header.
- * Optionally filters by user_cert_id if provided in query params.
+ * Query parameters filter, sort and page the rows, see CertificationQuery; the response
+ * carries next_cursor, to pass as cursor for the next page, or null on the last page.
+ * Pages are cached serialized per user and query in CertificationCache, and served before a
+ * connection is taken until a write to the user's certifications bumps their version.
+ * With the cache off, rows are written to the response as they are read, see GetCertificationStreamHandler.
+ * Responses carry an ETag made of the user's cert_version; a matching If-None-Match gets a 304
+ * from the cache or from that one-row lookup, without reading user_cert.
  */
-public class GetCertificationHandler implements RequestHandler<Map<String, Object>, String> {
+public class GetCertificationHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	private static final CertificationCache CACHE = CertificationCache.INSTANCE;
+
+	private static final String VERSION_SQL = "SELECT cert_version FROM app_user WHERE user_id = ?";
+
+	// Shared with GetCertificationStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("GetCertificationHandler")
+			.requireAuth()
+			.validate(GetCertificationHandler::validate)
+			.lookup(GetCertificationHandler::cached)
+			.handle(GetCertificationHandler::fetch)
+			.build();
 
 	@Override
 	public String handleRequest(Map<String, Object> event, Context context) {
-		JSONObject response = new JSONObject();
-
-		try (Connection conn = DriverManager.getConnection(
-				System.getenv("DB_URL"),
-				System.getenv("DB_USER"),
-				System.getenv("DB_PASSWORD"))) {
-
-			// Extract JWT token from headers
-			@SuppressWarnings("unchecked")
-			Map<String, String> headers = (Map<String, String>) event.get("headers");
-			if (headers == null) {
-				return errorResponse(400, "Missing headers").toString();
-			}
+		return PIPELINE.execute(event).toJsonString();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	// Hit ratio, evictions and memory of the certification cache
+	public static Map<String, Object> getCacheStats() {
+		return CACHE.getStats();
+	}
+
+	// Filters, sort, limit and cursor from the query string
+	private static void validate(RequestContext ctx) throws ApiException {
+		ctx.setAttribute("query", CertificationQuery.from(ctx));
+	}
+
+	private static ApiResponse cached(RequestContext ctx) {
+		if (!CACHE.isEnabled() || !InvalidationBus.isCurrent()) {
+			return null;
+		}
+		CertificationQuery query = ctx.getAttribute("query");
+		CertificationCache.Page page = CACHE.get(ctx.getUserId(), query.getCacheKey(), System.currentTimeMillis());
+		if (page == null) {
+			return null;
+		}
+		ApiResponse notModified = ETags.notModified(ctx, page.etag);
+		return notModified != null ? notModified : ETags.tag(new ApiResponse(200, page.body), page.etag);
+	}
 
-			String token = headers.get("Authorization");
-			if (token == null) {
-				token = headers.get("authorization");
+	private static ApiResponse fetch(RequestContext ctx, Connection conn) throws Exception {
+		long userId = ctx.getUserId();
+		CertificationQuery query = ctx.getAttribute("query");
+		long cacheVersion = CACHE.version(userId);
+
+		// The version and the rows come from one snapshot, so the tag names exactly this body.
+		// The driver also only fetches through a cursor inside a transaction.
+		conn.setAutoCommit(false);
+		conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+		boolean streamed = false;
+		try {
+			String etag = ETags.of("c" + userId, certVersion(conn, userId));
+			ApiResponse notModified = ETags.notModified(ctx, etag);
+			if (notModified != null) {
+				return notModified;
 			}
-			if (token == null) {
-				return errorResponse(400, "Missing JWT token in Authorization header").toString();
+
+			if (!CACHE.isEnabled()) {
+				// The query runs when the response is sent, the pipeline holds conn until then
+				streamed = true;
+				return ETags.tag(ApiResponse.stream(200, json -> {
+					try {
+						write(json, conn, userId, query);
+					} finally {
+						endSnapshot(conn);
+					}
+				}), etag);
 			}
 
-			Claims claims = JwtHelper.parseToken(token);
-			long userId = Long.parseLong(claims.getSubject());
-
-			// Optional user_cert_id from query string
-			Long userCertId = null;
-			@SuppressWarnings("unchecked")
-			Map<String, String> queryParams = (Map<String, String>) event.get("queryStringParameters");
-			if (queryParams != null && queryParams.get("user_cert_id") != null) {
-				try {
-					userCertId = Long.parseLong(queryParams.get("user_cert_id"));
-				} catch (NumberFormatException nfe) {
-					return errorResponse(400, "Invalid user_cert_id parameter").toString();
-				}
+			// A page is at most MAX_LIMIT rows, built as a string once and kept
+			StringWriter body = new StringWriter();
+			try (JsonGenerator json = JsonReader.FACTORY.createGenerator(body)) {
+				write(json, conn, userId, query);
+			}
+			CertificationCache.Page page = new CertificationCache.Page(body.toString(), etag);
+			CACHE.put(userId, query.getCacheKey(), page, cacheVersion, System.currentTimeMillis());
+			return ETags.tag(new ApiResponse(200, page.body), etag);
+		} finally {
+			if (!streamed) {
+				endSnapshot(conn);
 			}
+		}
+	}
 
-			// Build SQL with join
-			String sql = "SELECT uc.* FROM user_cert uc WHERE uc.user_id = ?";
-			if (userCertId != null) { // Optional filter
-				sql += " AND uc.user_cert_id = ?";
+	// cert_version of the user, 0 if the user is gone (so are their certifications)
+	private static long certVersion(Connection conn, long userId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(VERSION_SQL)) {
+			stmt.setLong(1, userId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : 0;
 			}
+		}
+	}
 
-			JSONArray results = new JSONArray();
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setLong(1, userId);
-				if (userCertId != null) {
-					stmt.setLong(2, userCertId);
-				}
+	private static void endSnapshot(Connection conn) throws SQLException {
+		conn.setAutoCommit(true);
+		conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+	}
 
-				try (ResultSet rs = stmt.executeQuery()) {
-					ResultSetMetaData meta = rs.getMetaData();
-					int columnCount = meta.getColumnCount();
-
-					while (rs.next()) {
-						JSONObject cert = new JSONObject();
-						for (int i = 1; i <= columnCount; i++) {
-							String columnName = meta.getColumnLabel(i);
-							Object value = rs.getObject(i);
-							cert.put(columnName, value);
-						}
-						results.put(cert);
+	private static void write(JsonGenerator json, Connection conn, long userId, CertificationQuery query) throws Exception {
+		String sql = query.getSql();
+		int count = 0;
+		PageCursor last = null;
+		boolean more = false;
+
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setFetchSize(Math.min(DatabaseHelper.FETCH_SIZE, query.getLimit() + 1));
+			query.bind(stmt);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				RowMapper mapper = RowMapper.forQuery(sql, rs);
+
+				// Rows go to the output as they are fetched, memory doesn't grow with the row count
+				json.writeStartObject();
+				json.writeArrayFieldStart("user_certifications");
+				while (rs.next()) {
+					if (count == query.getLimit()) {
+						more = true;
+						break;
 					}
+					mapper.writeRow(rs, json);
+					last = query.cursorAfter(rs);
+					count++;
 				}
+				json.writeEndArray();
+				json.writeStringField("next_cursor", more ? last.encode() : null);
+				json.writeEndObject();
 			}
-
-			response.put("statusCode", 200);
-			response.put("body", new JSONObject()
-					.put("user_certifications", results)
-					.toString());
-
-			System.out.println("Retrieved " + results.length() + " user_certifications for user " + userId);
-
-		} catch (JwtValidationException e) {
-			// Expired token
-			response = new JSONObject();
-			response.put("statusCode", e.getStatusCode());
-			response.put("body", new JSONObject()
-					.put("error", e.getMessage())
-					.toString());
-			// Log
-			System.out.println("JWT error: ");
-			e.printStackTrace();
-
-			return response.toString();
-		} catch (Exception e) {
-			response = errorResponse(500, e.getMessage());
-
-			// Log
-			System.err.println("Error in LoginHandler: " + e.getMessage());
-			e.printStackTrace();
 		}
 
-		return response.toString();
-	}
-
-	private JSONObject errorResponse(int code, String message) {
-		JSONObject resp = new JSONObject();
-		resp.put("statusCode", code);
-		resp.put("body", new JSONObject()
-				.put("error", message)
-				.toString());
-		return resp;
+		// Log
+		System.out.println("Retrieved " + count + " user_certifications for user " + userId);
 	}
-}
\ No newline at end of file
+}
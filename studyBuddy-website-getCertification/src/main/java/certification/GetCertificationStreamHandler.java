@@ -0,0 +1,21 @@
+package certification;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+/**
+ * Stream entry point for GET /certifications. Same pipeline as GetCertificationHandler, but the
+ * rows are written into the response envelope on the Lambda output as they are read, instead of
+ * building the body and envelope as strings for the runtime to serialize again.
+ */
+public class GetCertificationStreamHandler implements RequestStreamHandler {
+
+	@Override
+	public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+		GetCertificationHandler.PIPELINE.execute(input, output);
+	}
+}
@@ -0,0 +1,65 @@
+package utils;
+
+/**
+ * Strong ETags built from version columns (database/row_version.sql), and If-None-Match checks.
+ * A tag names one representation: the user, the version of the data, and anything else the
+ * body depends on besides the URL.
+ */
+public class ETags {
+
+	/**
+	 * Build a tag.
+	 * @param parts e.g. "u3", 7
+	 * @return quoted tag, e.g. "u3-7"
+	 */
+	public static String of(Object... parts) {
+		StringBuilder tag = new StringBuilder("\"");
+		for (int i = 0; i < parts.length; i++) {
+			if (i > 0) {
+				tag.append('-');
+			}
+			tag.append(parts[i]);
+		}
+		return tag.append('"').toString();
+	}
+
+	/**
+	 * Whether an If-None-Match header names a tag. Weak comparison, as RFC 9110 asks for
+	 * If-None-Match, so W/ prefixes added by proxies that compress still match.
+	 * @param ifNoneMatch header value, may be null
+	 * @param etag quoted tag
+	 */
+	public static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Answer a conditional request without a body when the client already has the tag.
+	 * @param ctx request
+	 * @param etag current tag
+	 * @return 304, or null if the full response has to be sent
+	 */
+	public static ApiResponse notModified(RequestContext ctx, String etag) {
+		return matches(ctx.getHeader("If-None-Match"), etag) ? tag(new ApiResponse(304, ""), etag) : null;
+	}
+
+	/**
+	 * Put the tag on a response. Browsers keep it and revalidate before every reuse.
+	 * @return response
+	 */
+	public static ApiResponse tag(ApiResponse response, String etag) {
+		return response.withHeader("ETag", etag).withHeader("Cache-Control", "private, no-cache");
+	}
+}
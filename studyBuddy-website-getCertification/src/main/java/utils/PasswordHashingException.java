@@ -0,0 +1,18 @@
+package utils;
+
+/**
+ * Exception indicating a password could not be hashed or verified right now.
+ */
+public class PasswordHashingException extends Exception {
+	private static final long serialVersionUID = 1L;
+	private final int statusCode;
+
+	public PasswordHashingException(String message, int statusCode) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+}
@@ -0,0 +1,120 @@
+package utils;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 hasher, built into the JDK.
+ * Hashes are stored as pbkdf2-sha256$&lt;iterations&gt;$&lt;salt&gt;$&lt;hash&gt; (Base64).
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+	private static final String PREFIX = "pbkdf2-sha256$";
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+	private static final int SALT_BYTES = 16;
+	private static final int HASH_BITS = 256;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final int iterations;
+
+	public Pbkdf2PasswordHasher(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("iterations must be positive");
+		}
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Pick the iteration count that takes about targetMillis on this machine.
+	 * @param targetMillis target time for one hash
+	 * @param minIterations floor, used when the machine is slow
+	 * @return hasher with the calibrated cost
+	 */
+	public static Pbkdf2PasswordHasher calibrate(long targetMillis, int minIterations) {
+		int probe = 20_000;
+		char[] password = "calibration-password".toCharArray();
+		byte[] salt = new byte[SALT_BYTES];
+
+		// Best of a few runs, the first ones include JIT warm-up
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			derive(password, salt, probe);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		long perIteration = Math.max(1, best / probe);
+		long iterations = targetMillis * 1_000_000 / perIteration;
+
+		// Round down to 10k so instances on similar hardware agree
+		iterations = iterations / 10_000 * 10_000;
+		int calibrated = (int) Math.min(Integer.MAX_VALUE, Math.max(minIterations, iterations));
+
+		// Log
+		System.out.println("Calibrated PBKDF2 to " + calibrated + " iterations for " + targetMillis + "ms");
+
+		return new Pbkdf2PasswordHasher(calibrated);
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		byte[] hash = derive(password.toCharArray(), salt, iterations);
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+	}
+
+	@Override
+	public boolean supports(String storedHash) {
+		return storedHash != null && storedHash.startsWith(PREFIX);
+	}
+
+	@Override
+	public boolean verify(String password, String storedHash) {
+		String[] parts = storedHash.split("\\$");
+		if (parts.length != 4) {
+			return false;
+		}
+		try {
+			int storedIterations = Integer.parseInt(parts[1]);
+			byte[] salt = Base64.getDecoder().decode(parts[2]);
+			byte[] expected = Base64.getDecoder().decode(parts[3]);
+			byte[] actual = derive(password.toCharArray(), salt, storedIterations);
+			return MessageDigest.isEqual(expected, actual);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	// Calibration varies a little between instances, only upgrade hashes that are clearly weaker
+	@Override
+	public boolean needsRehash(String storedHash) {
+		String[] parts = storedHash.split("\\$");
+		try {
+			return parts.length != 4 || Integer.parseInt(parts[1]) < iterations * 3L / 4;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	private static byte[] derive(char[] password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
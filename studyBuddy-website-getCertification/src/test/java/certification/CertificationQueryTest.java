@@ -0,0 +1,112 @@
+package certification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import utils.ApiException;
+import utils.JwtHelper;
+import utils.PageCursor;
+import utils.RequestPipeline;
+
+/**
+ * Unit test ensuring that GET /certifications parameters turn into the expected keyset query,
+ * and that bad parameters are rejected before the database.
+ */
+public class CertificationQueryTest {
+
+	private CertificationQuery query;
+
+	private final RequestPipeline pipeline = RequestPipeline.builder("TestHandler")
+			.requireAuth()
+			.validate(ctx -> {
+				query = CertificationQuery.from(ctx);
+				throw new ApiException(299, "stop before the database");
+			})
+			.handle((ctx, conn) -> null)
+			.build();
+
+	@BeforeAll
+	static void configure() {
+		System.setProperty("JWT_KEY", "12345678901234567890123456789012");
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	private int run(Map<String, String> params) {
+		query = null;
+		Map<String, Object> event = new HashMap<>();
+		event.put("headers", Map.of("Authorization", JwtHelper.generateToken(3, "Joemama")));
+		event.put("queryStringParameters", params);
+		return pipeline.execute(event).getStatusCode();
+	}
+
+	@Test
+	void testQueries() {
+		assertEquals(299, run(Map.of()));
+		assertEquals("SELECT uc.* FROM user_cert uc WHERE uc.user_id = ? ORDER BY uc.user_cert_id ASC LIMIT ?", query.getSql());
+		assertEquals(CertificationQuery.DEFAULT_LIMIT, query.getLimit());
+
+		String afterNull = new PageCursor("-earned_on", null, 42).encode();
+		assertEquals(299, run(Map.of("sort", "-earned_on", "cert_level", "Associate", "limit", "10", "cursor", afterNull)));
+		assertEquals("SELECT uc.* FROM user_cert uc WHERE uc.user_id = ? AND uc.cert_level = ?"
+				+ " AND (uc.earned_on IS NOT NULL OR uc.user_cert_id < ?)"
+				+ " ORDER BY uc.earned_on DESC NULLS FIRST, uc.user_cert_id DESC LIMIT ?", query.getSql());
+		assertEquals(10, query.getLimit());
+
+		String afterDate = new PageCursor("expires_on", "2026-01-31", 7).encode();
+		assertEquals(299, run(Map.of("sort", "expires_on", "expires_from", "2025-01-01", "cursor", afterDate)));
+		assertEquals("SELECT uc.* FROM user_cert uc WHERE uc.user_id = ? AND uc.expires_on >= ?"
+				+ " AND ((uc.expires_on, uc.user_cert_id) > (?, ?) OR uc.expires_on IS NULL)"
+				+ " ORDER BY uc.expires_on ASC NULLS LAST, uc.user_cert_id ASC LIMIT ?", query.getSql());
+	}
+
+	@Test
+	void testFields() {
+		assertEquals(299, run(Map.of("fields", "expires_on, title", "sort", "-earned_on")));
+		String sql = query.getSql();
+		// Whitelist order, with the id and sort column the cursor needs
+		assertEquals("SELECT uc.user_cert_id, uc.title, uc.earned_on, uc.expires_on FROM user_cert uc WHERE uc.user_id = ?"
+				+ " ORDER BY uc.earned_on DESC NULLS FIRST, uc.user_cert_id DESC LIMIT ?", sql);
+
+		// Same shape, cached statement text
+		assertEquals(299, run(Map.of("fields", "title,expires_on", "sort", "-earned_on", "limit", "5")));
+		assertSame(sql, query.getSql());
+
+		assertEquals(400, run(Map.of("fields", "title,hashed_password")));
+		assertEquals(400, run(Map.of("fields", ",")));
+	}
+
+	@Test
+	void testCacheKey() {
+		run(Map.of("cert_level", "Associate", "limit", "10"));
+		String key = query.getCacheKey();
+		run(Map.of("limit", "10", "cert_level", "Associate"));
+		assertEquals(key, query.getCacheKey());
+
+		run(Map.of("cert_level", "Associate", "limit", "11"));
+		assertNotEquals(key, query.getCacheKey());
+
+		// Values can't be split differently into the same key
+		String afterA = new PageCursor("title", "b\n1:c", 5).encode();
+		String afterB = new PageCursor("title", "c", 5).encode();
+		run(Map.of("sort", "title", "cert_level", "a", "cursor", afterA));
+		String first = query.getCacheKey();
+		run(Map.of("sort", "title", "cert_level", "a\n3:b\n1", "cursor", afterB));
+		assertNotEquals(first, query.getCacheKey());
+	}
+
+	@Test
+	void testRejected() {
+		assertEquals(400, run(Map.of("sort", "description")));
+		assertEquals(400, run(Map.of("limit", "0")));
+		assertEquals(400, run(Map.of("earned_from", "yesterday")));
+		assertEquals(400, run(Map.of("cursor", "not a cursor")));
+		// Cursor from another sort
+		assertEquals(400, run(Map.of("sort", "title", "cursor", new PageCursor("user_cert_id", null, 1).encode())));
+		assertNull(query);
+	}
+}
@@ -0,0 +1,54 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that CertificationCache drops a user's pages when their version is bumped,
+ * and keeps the bodies within its byte budget.
+ */
+public class CertificationCacheTest {
+
+	@Test
+	void testVersions() {
+		CertificationCache cache = new CertificationCache(1 << 20, 60_000);
+		long version = cache.version(3);
+		cache.put(3, "page1", new CertificationCache.Page("{\"user_certifications\":[]}", null), version, 0);
+		cache.put(4, "page1-other", new CertificationCache.Page("{}", null), cache.version(4), 0);
+		assertEquals("{\"user_certifications\":[]}", cache.get(3, "page1", 0).body);
+
+		cache.bump(3);
+		assertNull(cache.get(3, "page1", 0));
+		assertEquals("{}", cache.get(4, "page1-other", 0).body);
+
+		// Read before the bump, written after it: dropped
+		cache.put(3, "page1", new CertificationCache.Page("{\"old\":true}", null), version, 0);
+		assertNull(cache.get(3, "page1", 0));
+
+		cache.put(3, "page1", new CertificationCache.Page("{}", null), cache.version(3), 0);
+		assertNull(cache.get(3, "page1", 60_000));
+		assertEquals(2L, cache.getStats().get("stale"));
+	}
+
+	@Test
+	void testWeightEviction() {
+		// Eight pages of 198 bytes fit, a page can take at most an eighth of the budget
+		String body = "x".repeat(30);
+		CertificationCache cache = new CertificationCache(1_700, 60_000);
+		for (int i = 0; i < 8; i++) {
+			cache.put(3, "page" + i, new CertificationCache.Page(body, null), cache.version(3), 0);
+		}
+		assertNotNull(cache.get(3, "page0", 0)); // page1 is now least recently used
+		cache.put(3, "page8", new CertificationCache.Page(body, null), cache.version(3), 0);
+
+		assertNull(cache.get(3, "page1", 0));
+		assertNotNull(cache.get(3, "page0", 0));
+		assertNotNull(cache.get(3, "page8", 0));
+		assertTrue((Long) cache.getStats().get("bytes") <= 1_700);
+		assertEquals(1L, cache.getStats().get("evictions"));
+
+		cache.put(3, "big", new CertificationCache.Page("x".repeat(100), null), cache.version(3), 0);
+		assertNull(cache.get(3, "big", 0));
+	}
+}
@@ -0,0 +1,67 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that a streamed body comes out the same as a string body in every
+ * response shape, escaped once, with the same status and headers.
+ */
+public class ResponseWriterTest {
+
+	// Quotes, backslashes, control characters and a surrogate pair
+	private static final String TRICKY = "say \"hi\" \\ tab\there\nnew line \u0001 😀 é";
+
+	private static ApiResponse streamed() {
+		return ApiResponse.stream(201, json -> {
+			json.writeStartObject();
+			json.writeArrayFieldStart("rows");
+			for (int i = 0; i < 2000; i++) { // Larger than the generator's buffer
+				json.writeStartObject();
+				json.writeNumberField("id", i);
+				json.writeStringField("text", TRICKY);
+				json.writeEndObject();
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+		}).withHeader("ETag", "\"v1\"");
+	}
+
+	@Test
+	void testStreamedEnvelope() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		streamed().writeTo(output);
+		JSONObject envelope = new JSONObject(output.toString(StandardCharsets.UTF_8));
+
+		assertEquals(201, envelope.getInt("statusCode"));
+		assertEquals("application/json", envelope.getJSONObject("headers").getString("Content-Type"));
+		assertEquals("\"v1\"", envelope.getJSONObject("headers").getString("ETag"));
+
+		JSONObject body = new JSONObject(envelope.getString("body"));
+		assertEquals(2000, body.getJSONArray("rows").length());
+		assertEquals(TRICKY, body.getJSONArray("rows").getJSONObject(1999).getString("text"));
+
+		// Same response rendered for the String and Map handler shapes
+		assertEquals(envelope.toString(), new JSONObject(streamed().toJsonString()).toString());
+		Map<String, Object> map = streamed().toMap();
+		assertEquals(201, map.get("statusCode"));
+		assertEquals(envelope.getString("body"), map.get("body"));
+	}
+
+	@Test
+	void testStringBodyHeaders() {
+		JSONObject fromString = new JSONObject(ApiResponse.error(404, TRICKY).toJsonString());
+		assertEquals("application/json", fromString.getJSONObject("headers").getString("Content-Type"));
+		assertEquals(TRICKY, new JSONObject(fromString.getString("body")).getString("error"));
+
+		Map<?, ?> headers = (Map<?, ?>) ApiResponse.error(404, "x").withHeader("Content-Type", "text/plain").toMap().get("headers");
+		assertEquals(1, headers.size());
+		assertEquals("text/plain", headers.get("Content-Type"));
+	}
+}
@@ -0,0 +1,107 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Unit test ensuring that RowMapper writes typed columns and drops nulls like JSONObject did,
+ * and is reused for the same query.
+ */
+public class RowMapperTest {
+
+	private static final String[] LABELS = { "user_cert_id", "title", "ce_hours_required", "earned_on", "score", "active" };
+	private static final int[] TYPES = { Types.BIGINT, Types.VARCHAR, Types.INTEGER, Types.DATE, Types.NUMERIC, Types.BIT };
+	private static final Object[][] ROWS = {
+			{ 7L, "AWS \"SAA\"", 40, Date.valueOf("2024-03-15"), new BigDecimal("12.50"), true },
+			{ 8L, null, null, null, null, null },
+	};
+
+	// Result set over ROWS, answering the typed getters JDBC drivers implement
+	private static ResultSet resultSet() {
+		ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(RowMapperTest.class.getClassLoader(),
+				new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getColumnCount": return LABELS.length;
+					case "getColumnLabel": return LABELS[(int) args[0] - 1];
+					case "getColumnType": return TYPES[(int) args[0] - 1];
+					default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		int[] row = { -1 };
+		Object[] last = new Object[1];
+		return (ResultSet) Proxy.newProxyInstance(RowMapperTest.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getMetaData")) {
+						return meta;
+					}
+					if (method.getName().equals("next")) {
+						return ++row[0] < ROWS.length;
+					}
+					if (method.getName().equals("wasNull")) {
+						return last[0] == null;
+					}
+					Object value = ROWS[row[0]][(int) args[0] - 1];
+					last[0] = value;
+					switch (method.getName()) {
+					case "getLong": return value == null ? 0L : value;
+					case "getInt": return value == null ? 0 : value;
+					case "getBoolean": return value != null && (Boolean) value;
+					case "getString": case "getDate": case "getBigDecimal": return value;
+					default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	void testTypedRows() throws Exception {
+		StringWriter out = new StringWriter();
+		int count;
+		try (JsonGenerator json = JsonReader.FACTORY.createGenerator(out)) {
+			json.writeStartArray();
+			count = RowMapper.forQuery("SELECT test", resultSet()).writeRows(resultSet(), json);
+			json.writeEndArray();
+		}
+		assertEquals(2, count);
+
+		JSONArray rows = new JSONArray(out.toString());
+		JSONObject first = rows.getJSONObject(0);
+		assertEquals(7L, first.getLong("user_cert_id"));
+		assertEquals("AWS \"SAA\"", first.getString("title"));
+		assertEquals(40, first.getInt("ce_hours_required"));
+		assertEquals("2024-03-15", first.getString("earned_on"));
+		assertEquals(new BigDecimal("12.50"), first.getBigDecimal("score"));
+		assertTrue(first.getBoolean("active"));
+
+		for (String label : LABELS) {
+			assertTrue(first.has(label), label);
+		}
+
+		// SQL NULL columns are left out, as JSONObject.put(name, null) did
+		JSONObject second = rows.getJSONObject(1);
+		assertEquals(8L, second.getLong("user_cert_id"));
+		for (String label : LABELS) {
+			if (!label.equals("user_cert_id")) {
+				assertFalse(second.has(label), label);
+			}
+		}
+	}
+
+	@Test
+	void testCachedPerQuery() throws Exception {
+		RowMapper mapper = RowMapper.forQuery("SELECT cached", resultSet());
+		assertSame(mapper, RowMapper.forQuery("SELECT cached", resultSet()));
+	}
+}
@@ -0,0 +1,61 @@
+package router;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+/**
+ * Normalized handler response. Some handlers return a Map and others a JSON string,
+ * both shaped like an API Gateway proxy response ({statusCode, headers, body}).
+ */
+public record RouteResponse(int statusCode, Map<String, String> headers, String body) {
+
+	/**
+	 * Convert a handler's return value.
+	 * @param result Map or JSON string returned by a handler
+	 * @return normalized response
+	 */
+	public static RouteResponse from(Object result) {
+		if (result instanceof Map<?, ?> map) {
+			return fromMap(map);
+		}
+		if (result instanceof String str) {
+			return fromMap(new JSONObject(str).toMap());
+		}
+		return error(500, "Unexpected handler response");
+	}
+
+	public static RouteResponse error(int statusCode, String message) {
+		return new RouteResponse(statusCode, defaultHeaders(),
+				new JSONObject().put("error", message).toString());
+	}
+
+	// Shape used when returning the response to API Gateway
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("statusCode", statusCode);
+		map.put("headers", headers);
+		map.put("body", body);
+		return map;
+	}
+
+	private static RouteResponse fromMap(Map<?, ?> map) {
+		Object status = map.get("statusCode");
+		int statusCode = status instanceof Number n ? n.intValue() : Integer.parseInt(String.valueOf(status));
+
+		Map<String, String> headers = defaultHeaders();
+		if (map.get("headers") instanceof Map<?, ?> h) {
+			h.forEach((k, v) -> headers.put(String.valueOf(k), String.valueOf(v)));
+		}
+
+		Object body = map.get("body");
+		return new RouteResponse(statusCode, headers, body == null ? "" : String.valueOf(body));
+	}
+
+	private static Map<String, String> defaultHeaders() {
+		Map<String, String> headers = new LinkedHashMap<>();
+		headers.put("Content-Type", "application/json");
+		return headers;
+	}
+}
@@ -0,0 +1,137 @@
+package router;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+
+import utils.DatabaseHelper;
+import utils.EnvHelper;
+import utils.PipelineHandler;
+
+/**
+ * Single Lambda entry point for every route. API Gateway sends all routes to this
+ * function and it dispatches to the existing handlers, so one warm execution
+ * environment serves the whole API instead of one cold start per route.
+ * Pipeline handlers are run directly, so their response isn't rendered as a string and parsed back.
+ * Handler string: router.RouterHandler::handleRequest
+ */
+public class RouterHandler implements RequestHandler<Map<String, Object>, Map<String, Object>> {
+
+	// Resolved once per execution environment, during Lambda init
+	private static final Routes ROUTES = Routes.defaultRoutes();
+
+	static {
+		// Create the pool during init so the first request doesn't pay for it
+		if (EnvHelper.get("DB_URL") != null) {
+			DatabaseHelper.getDataSource();
+		}
+	}
+
+	private final Routes routes;
+
+	public RouterHandler() {
+		this(ROUTES);
+	}
+
+	RouterHandler(Routes routes) {
+		this.routes = routes;
+	}
+
+	@Override
+	public Map<String, Object> handleRequest(Map<String, Object> event, Context context) {
+		RouteResponse response;
+		try {
+			Routes.Match match = resolve(event);
+			if (match == null) {
+				response = RouteResponse.error(404, "No route for " + describe(event));
+
+				// Log
+				System.out.println("No route for " + describe(event));
+			} else if (match.handler() instanceof PipelineHandler pipelined) {
+				return pipelined.getPipeline().execute(prepare(event, match)).toMap();
+			} else {
+				response = RouteResponse.from(match.handler().handleRequest(prepare(event, match), context));
+			}
+		} catch (Exception e) {
+			response = RouteResponse.error(500, "Internal server error");
+
+			// Log
+			System.err.println("Error in RouterHandler: " + e.getMessage());
+			e.printStackTrace();
+		}
+		return response.toMap();
+	}
+
+	/**
+	 * Find the handler for an API Gateway event.
+	 * HTTP APIs (payload 2.0) send a routeKey, REST APIs send httpMethod with resource and path.
+	 * @param event Lambda event
+	 * @return handler and path parameters, or null if no route matches
+	 */
+	Routes.Match resolve(Map<String, Object> event) {
+		Object routeKey = event.get("routeKey");
+		if (routeKey instanceof String key && !"$default".equals(key)) {
+			int space = key.indexOf(' ');
+			Routes.Match match = space < 0 ? null : routes.match(key.substring(0, space), key.substring(space + 1));
+			if (match != null) {
+				return match;
+			}
+		}
+
+		String method = method(event);
+		Routes.Match match = null;
+		for (String pathKey : new String[] { "resource", "path", "rawPath" }) {
+			if (match == null && event.get(pathKey) instanceof String path) {
+				match = routes.match(method, path);
+			}
+		}
+		return match;
+	}
+
+	private String method(Map<String, Object> event) {
+		if (event.get("httpMethod") instanceof String method) {
+			return method;
+		}
+		if (event.get("requestContext") instanceof Map<?, ?> requestContext
+				&& requestContext.get("http") instanceof Map<?, ?> http
+				&& http.get("method") instanceof String method) {
+			return method;
+		}
+		return null;
+	}
+
+	/**
+	 * Event as the handler expects it: a plain string body, where HTTP APIs may send it
+	 * base64 encoded, and the path parameters of a templated route API Gateway didn't fill in
+	 * (e.g. a $default route).
+	 */
+	private Map<String, Object> prepare(Map<String, Object> event, Routes.Match match) {
+		boolean decode = Boolean.TRUE.equals(event.get("isBase64Encoded")) && event.get("body") instanceof String;
+		boolean addParameters = !match.pathParameters().isEmpty() && event.get("pathParameters") == null;
+		if (!decode && !addParameters) {
+			return event;
+		}
+		Map<String, Object> prepared = new HashMap<>(event);
+		if (decode) {
+			prepared.put("body", new String(Base64.getDecoder().decode((String) event.get("body")), StandardCharsets.UTF_8));
+			prepared.put("isBase64Encoded", false);
+		}
+		if (addParameters) {
+			prepared.put("pathParameters", match.pathParameters());
+		}
+		return prepared;
+	}
+
+	private String describe(Map<String, Object> event) {
+		Object routeKey = event.get("routeKey");
+		if (routeKey != null && !"$default".equals(routeKey)) {
+			return String.valueOf(routeKey);
+		}
+		Object path = event.get("path") != null ? event.get("path") : event.get("rawPath");
+		return method(event) + " " + path;
+	}
+}
@@ -0,0 +1,170 @@
+package router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+
+import authenticate.LoginHandler;
+import authenticate.LogoutHandler;
+import authenticate.RevokeUserTokensHandler;
+import certification.CreateCertificationBatchHandler;
+import certification.CreateCertificationHandler;
+import certification.DeleteCertificationHandler;
+import certification.GetCertificationHandler;
+import certification.LogHoursHandler;
+import certification.UpdateCertificationHandler;
+import register.ProvisionUsersHandler;
+import register.RegisterUserHandler;
+import user.DashboardHandler;
+import user.UpdateUserHandler;
+import user.UserInfoHandler;
+
+/**
+ * Route table mapping "METHOD /path" keys to the existing route handlers.
+ * Handlers are stateless, so one instance of each is shared by every request.
+ * A path segment written {name} matches any value, which is passed on as a path parameter
+ * the way API Gateway passes it.
+ */
+public class Routes {
+
+	// Handler of a request, with the values of the route's {name} segments
+	public record Match(RequestHandler<Map<String, Object>, ?> handler, Map<String, String> pathParameters) {
+	}
+
+	// Route with {name} segments, matched segment by segment
+	private record Template(String method, String[] segments, RequestHandler<Map<String, Object>, ?> handler) {
+	}
+
+	private final Map<String, RequestHandler<Map<String, Object>, ?>> routes;
+	private final List<Template> templates = new ArrayList<>();
+
+	private Routes(Map<String, RequestHandler<Map<String, Object>, ?>> routes) {
+		this.routes = Collections.unmodifiableMap(routes);
+		for (Map.Entry<String, RequestHandler<Map<String, Object>, ?>> route : routes.entrySet()) {
+			String key = route.getKey();
+			if (key.contains("{")) {
+				int space = key.indexOf(' ');
+				templates.add(new Template(key.substring(0, space), key.substring(space + 1).split("/"), route.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * Every route served by the backend.
+	 * @return route table
+	 */
+	public static Routes defaultRoutes() {
+		Map<String, RequestHandler<Map<String, Object>, ?>> routes = new LinkedHashMap<>();
+		routes.put("POST /register", new RegisterUserHandler());
+		routes.put("POST /login", new LoginHandler());
+		routes.put("POST /logout", new LogoutHandler());
+		routes.put("POST /admin/revoke", new RevokeUserTokensHandler());
+		routes.put("POST /admin/users/import", new ProvisionUsersHandler());
+		routes.put("GET /user", new UserInfoHandler());
+		routes.put("PUT /user", new UpdateUserHandler());
+		routes.put("GET /me", new DashboardHandler());
+		routes.put("GET /certifications", new GetCertificationHandler());
+		routes.put("POST /certifications", new CreateCertificationHandler());
+		routes.put("POST /certifications/batch", new CreateCertificationBatchHandler());
+		routes.put("PUT /certifications", new UpdateCertificationHandler());
+		routes.put("DELETE /certifications", new DeleteCertificationHandler());
+		LogHoursHandler logHours = new LogHoursHandler();
+		routes.put("POST /certifications/{id}/hours", logHours);
+		routes.put("POST /certifications/hours", logHours);
+		return new Routes(routes);
+	}
+
+	// Route table built from explicit entries
+	static Routes of(Map<String, RequestHandler<Map<String, Object>, ?>> routes) {
+		return new Routes(new LinkedHashMap<>(routes));
+	}
+
+	/**
+	 * Find the handler for a request.
+	 * @param method HTTP method
+	 * @param path request path, a trailing slash is ignored
+	 * @return handler, or null if no route matches
+	 */
+	public RequestHandler<Map<String, Object>, ?> resolve(String method, String path) {
+		Match match = match(method, path);
+		return match == null ? null : match.handler();
+	}
+
+	/**
+	 * Find the handler for a request, and the path parameters of a templated route.
+	 * @param method HTTP method
+	 * @param path request path, a trailing slash is ignored
+	 * @return match, or null if no route matches
+	 */
+	public Match match(String method, String path) {
+		if (method == null || path == null) {
+			return null;
+		}
+		String key = key(method, path);
+		RequestHandler<Map<String, Object>, ?> handler = routes.get(key);
+		if (handler != null) {
+			return new Match(handler, Map.of());
+		}
+		String[] segments = key.substring(key.indexOf(' ') + 1).split("/");
+		for (Template template : templates) {
+			Map<String, String> parameters = template.method().equals(method.toUpperCase())
+					? bind(template.segments(), segments) : null;
+			if (parameters != null) {
+				return new Match(template.handler(), parameters);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find the handler for an API Gateway route key such as "GET /user".
+	 * @param routeKey route key
+	 * @return handler, or null if no route matches
+	 */
+	public RequestHandler<Map<String, Object>, ?> resolve(String routeKey) {
+		if (routeKey == null) {
+			return null;
+		}
+		int space = routeKey.indexOf(' ');
+		if (space < 0) {
+			return null;
+		}
+		return resolve(routeKey.substring(0, space), routeKey.substring(space + 1));
+	}
+
+	public Map<String, RequestHandler<Map<String, Object>, ?>> asMap() {
+		return routes;
+	}
+
+	// Values of the {name} segments, or null if the path doesn't fit the template
+	private static Map<String, String> bind(String[] template, String[] segments) {
+		if (template.length != segments.length) {
+			return null;
+		}
+		Map<String, String> parameters = new LinkedHashMap<>();
+		for (int i = 0; i < template.length; i++) {
+			String segment = template[i];
+			if (segment.startsWith("{") && segment.endsWith("}")) {
+				if (segments[i].isEmpty()) {
+					return null;
+				}
+				parameters.put(segment.substring(1, segment.length() - 1), segments[i]);
+			} else if (!segment.equals(segments[i])) {
+				return null;
+			}
+		}
+		return parameters;
+	}
+
+	private String key(String method, String path) {
+		String normalized = path;
+		if (normalized.length() > 1 && normalized.endsWith("/")) {
+			normalized = normalized.substring(0, normalized.length() - 1);
+		}
+		return method.toUpperCase() + " " + normalized;
+	}
+}
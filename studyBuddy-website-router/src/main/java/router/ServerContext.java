@@ -0,0 +1,42 @@
+package router;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+/**
+ * Minimal Lambda Context handed to route handlers when running in server mode.
+ */
+public class ServerContext implements Context {
+
+	private static final LambdaLogger LOGGER = new LambdaLogger() {
+		@Override
+		public void log(String message) {
+			System.out.println(message);
+		}
+
+		@Override
+		public void log(byte[] message) {
+			System.out.println(new String(message));
+		}
+	};
+
+	private final String requestId;
+
+	public ServerContext(String requestId) {
+		this.requestId = requestId;
+	}
+
+	public String getAwsRequestId() { return requestId; }
+	public String getLogGroupName() { return "studybuddy-server"; }
+	public String getLogStreamName() { return "studybuddy-server"; }
+	public String getFunctionName() { return "studybuddy-server"; }
+	public String getFunctionVersion() { return "$LATEST"; }
+	public String getInvokedFunctionArn() { return null; }
+	public CognitoIdentity getIdentity() { return null; }
+	public ClientContext getClientContext() { return null; }
+	public int getRemainingTimeInMillis() { return Integer.MAX_VALUE; }
+	public int getMemoryLimitInMB() { return (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024)); }
+	public LambdaLogger getLogger() { return LOGGER; }
+}
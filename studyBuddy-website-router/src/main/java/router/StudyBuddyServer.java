@@ -0,0 +1,189 @@
+package router;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import utils.ApiResponse;
+import utils.DatabaseHelper;
+import utils.EnvHelper;
+import utils.PipelineHandler;
+import utils.ResponseWriter;
+
+/**
+ * Standalone server mode. Hosts every route handler in one long-running JVM,
+ * running each request on its own virtual thread and sharing one connection pool.
+ * Requests are translated into the same event shape API Gateway sends to Lambda.
+ * Responses of pipeline handlers are written to the connection as they are produced.
+ */
+public class StudyBuddyServer implements HttpHandler {
+
+	private final Routes routes;
+
+	// Proxies in front of the server that append to X-Forwarded-For, 0 trusts only the TCP peer
+	private final int trustedProxyHops = Math.max(0, EnvHelper.getInt("TRUSTED_PROXY_HOPS", 0));
+
+	public StudyBuddyServer(Routes routes) {
+		this.routes = routes;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = EnvHelper.getInt("PORT", 8080);
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), EnvHelper.getInt("SERVER_BACKLOG", 0));
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+		server.createContext("/", new StudyBuddyServer(Routes.defaultRoutes()));
+		server.setExecutor(executor);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(EnvHelper.getInt("SERVER_DRAIN_SECONDS", 5));
+			executor.close();
+			DatabaseHelper.close();
+		}));
+
+		server.start();
+
+		// Log
+		System.out.println("Study Buddy server listening on port " + port);
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		RouteResponse response;
+		try {
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath();
+			Routes.Match match = routes.match(method, path);
+
+			if (match == null) {
+				response = RouteResponse.error(404, "No route for " + method + " " + path);
+			} else if (match.handler() instanceof PipelineHandler pipelined) {
+				pipelined.getPipeline().execute(toEvent(exchange, match), r -> send(exchange, r));
+				return;
+			} else {
+				Map<String, Object> event = toEvent(exchange, match);
+				String requestId = UUID.randomUUID().toString();
+				response = RouteResponse.from(match.handler().handleRequest(event, new ServerContext(requestId)));
+			}
+		} catch (Exception e) {
+			response = RouteResponse.error(500, "Internal server error");
+
+			// Log
+			System.err.println("Error in StudyBuddyServer: " + e.getMessage());
+			e.printStackTrace();
+		}
+
+		write(exchange, response);
+	}
+
+	// Build an API Gateway style event from the HTTP request
+	private Map<String, Object> toEvent(HttpExchange exchange, Routes.Match match) throws IOException {
+		Map<String, Object> event = new HashMap<>();
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+
+		event.put("httpMethod", method);
+		event.put("path", path);
+		event.put("routeKey", method + " " + path);
+
+		// Same shape as an HTTP API event, for handlers that look at the client address
+		Map<String, Object> http = new HashMap<>();
+		http.put("method", method);
+		http.put("sourceIp", clientAddress(exchange));
+		event.put("requestContext", Map.of("http", http));
+
+		Map<String, String> headers = new HashMap<>();
+		for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+			if (!header.getValue().isEmpty()) {
+				headers.put(header.getKey(), header.getValue().get(0));
+			}
+		}
+		event.put("headers", headers);
+
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+		event.put("queryStringParameters", query.isEmpty() ? null : query);
+		event.put("pathParameters", match.pathParameters().isEmpty() ? null : match.pathParameters());
+
+		try (InputStream in = exchange.getRequestBody()) {
+			byte[] body = in.readAllBytes();
+			if (body.length > 0) {
+				event.put("body", new String(body, StandardCharsets.UTF_8));
+			}
+		}
+		return event;
+	}
+
+	/**
+	 * Client address for per-IP limits. Behind TRUSTED_PROXY_HOPS proxies, each appending the address it
+	 * saw to X-Forwarded-For, the client is that many entries from the right; entries further left are
+	 * whatever the client sent and can't be trusted. Falls back to the TCP peer without the header.
+	 */
+	private String clientAddress(HttpExchange exchange) {
+		String peer = exchange.getRemoteAddress().getAddress().getHostAddress();
+		if (trustedProxyHops == 0) {
+			return peer;
+		}
+		List<String> values = exchange.getRequestHeaders().get("X-Forwarded-For");
+		if (values == null || values.isEmpty()) {
+			return peer;
+		}
+		String[] hops = String.join(",", values).split(",");
+		// Fewer entries than proxies, the leftmost one is still added by a trusted proxy
+		String client = hops[Math.max(0, hops.length - trustedProxyHops)].trim();
+		return client.isEmpty() ? peer : client;
+	}
+
+	private Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int eq = pair.indexOf('=');
+			String key = eq < 0 ? pair : pair.substring(0, eq);
+			String value = eq < 0 ? "" : pair.substring(eq + 1);
+			query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return query;
+	}
+
+	private void send(HttpExchange exchange, ApiResponse response) throws Exception {
+		Map<String, String> headers = new LinkedHashMap<>();
+		ResponseWriter.forEachHeader(response, headers::put);
+		if (!response.isStreamed()) {
+			write(exchange, new RouteResponse(response.getStatusCode(), headers, response.getBody()));
+			return;
+		}
+
+		// Length unknown until the body is written, send it chunked
+		headers.forEach((k, v) -> exchange.getResponseHeaders().set(k, v));
+		exchange.sendResponseHeaders(response.getStatusCode(), 0);
+		try (OutputStream out = exchange.getResponseBody()) {
+			ResponseWriter.writeBody(response, out);
+		}
+	}
+
+	private void write(HttpExchange exchange, RouteResponse response) throws IOException {
+		byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+		response.headers().forEach((k, v) -> exchange.getResponseHeaders().set(k, v));
+
+		exchange.sendResponseHeaders(response.statusCode(), body.length == 0 ? -1 : body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
@@ -0,0 +1 @@
+package router;
\ No newline at end of file
@@ -0,0 +1,97 @@
+package router;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+
+/**
+ * Unit test ensuring that RouterHandler dispatches API Gateway events to the right handler.
+ */
+public class RouterHandlerTest {
+
+	private static RouterHandler router() {
+		Map<String, RequestHandler<Map<String, Object>, ?>> routes = new LinkedHashMap<>();
+		// A Map handler and a String handler, like the real ones
+		routes.put("GET /user", (event, context) -> Map.of("statusCode", 200, "body", "user"));
+		routes.put("POST /login", (event, context) ->
+				"{\"statusCode\":201,\"body\":\"" + event.get("body") + "\"}");
+		routes.put("POST /certifications/{id}/hours", (event, context) ->
+				Map.of("statusCode", 200, "body", String.valueOf(event.get("pathParameters"))));
+		return new RouterHandler(Routes.of(routes));
+	}
+
+	@Test
+	void testHttpApiRouteKey() {
+		Map<String, Object> event = new HashMap<>();
+		event.put("routeKey", "GET /user");
+
+		Map<String, Object> response = router().handleRequest(event, null);
+
+		assertEquals(200, response.get("statusCode"));
+		assertEquals("user", response.get("body"));
+	}
+
+	@Test
+	void testRestApiMethodAndPath() {
+		Map<String, Object> event = new HashMap<>();
+		event.put("httpMethod", "POST");
+		event.put("resource", "/login/");
+		event.put("body", "hello");
+
+		Map<String, Object> response = router().handleRequest(event, null);
+
+		assertEquals(201, response.get("statusCode"));
+		assertEquals("hello", response.get("body"));
+	}
+
+	@Test
+	void testDefaultRouteDecodesBase64Body() {
+		Map<String, Object> event = new HashMap<>();
+		event.put("routeKey", "$default");
+		event.put("rawPath", "/login");
+		event.put("requestContext", Map.of("http", Map.of("method", "POST")));
+		event.put("isBase64Encoded", true);
+		event.put("body", Base64.getEncoder().encodeToString("hello".getBytes()));
+
+		Map<String, Object> response = router().handleRequest(event, null);
+
+		assertEquals(201, response.get("statusCode"));
+		assertEquals("hello", response.get("body"));
+	}
+
+	@Test
+	void testPathParameters() {
+		// $default route, the router fills in what API Gateway would have
+		Map<String, Object> event = new HashMap<>();
+		event.put("routeKey", "$default");
+		event.put("rawPath", "/certifications/42/hours");
+		event.put("requestContext", Map.of("http", Map.of("method", "POST")));
+		assertEquals("{id=42}", router().handleRequest(event, null).get("body"));
+
+		// HTTP API route key with parameters already extracted
+		event = new HashMap<>();
+		event.put("routeKey", "POST /certifications/{id}/hours");
+		event.put("pathParameters", Map.of("id", "7"));
+		assertEquals("{id=7}", router().handleRequest(event, null).get("body"));
+
+		assertNull(Routes.defaultRoutes().match("POST", "/certifications/42"));
+		assertEquals(Map.of("id", "42"), Routes.defaultRoutes().match("post", "/certifications/42/hours/").pathParameters());
+	}
+
+	@Test
+	void testUnknownRoute() {
+		Map<String, Object> event = new HashMap<>();
+		event.put("routeKey", "GET /nothing");
+
+		Map<String, Object> response = router().handleRequest(event, null);
+
+		assertEquals(404, response.get("statusCode"));
+	}
+}
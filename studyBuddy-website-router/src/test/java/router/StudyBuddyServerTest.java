@@ -0,0 +1,126 @@
+package router;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import authenticate.RevokeUserTokensHandler;
+
+/**
+ * Unit test running requests through a real StudyBuddyServer, where the JDK rewrites header names
+ * and the client address can come from X-Forwarded-For.
+ */
+public class StudyBuddyServerTest {
+
+	private static HttpServer server;
+	private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+	@BeforeAll
+	static void start() throws Exception {
+		System.setProperty("ADMIN_API_KEY", "test-admin-key");
+
+		Map<String, RequestHandler<Map<String, Object>, ?>> routes = new LinkedHashMap<>();
+		routes.put("POST /admin/revoke", new RevokeUserTokensHandler());
+
+		server = start(routes);
+	}
+
+	private static HttpServer start(Map<String, RequestHandler<Map<String, Object>, ?>> routes) throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new StudyBuddyServer(Routes.of(routes)));
+		server.start();
+		return server;
+	}
+
+	// Server answering GET /ip with the sourceIp handlers see, behind the given number of proxies
+	@SuppressWarnings("unchecked")
+	private static HttpServer ipServer(int trustedProxyHops) throws Exception {
+		System.setProperty("TRUSTED_PROXY_HOPS", String.valueOf(trustedProxyHops));
+		try {
+			Map<String, RequestHandler<Map<String, Object>, ?>> routes = new LinkedHashMap<>();
+			routes.put("GET /ip", (event, context) -> {
+				Map<String, Object> http = (Map<String, Object>) ((Map<String, Object>) event.get("requestContext")).get("http");
+				return Map.of("statusCode", 200, "body", http.get("sourceIp"));
+			});
+			return start(routes);
+		} finally {
+			System.clearProperty("TRUSTED_PROXY_HOPS");
+		}
+	}
+
+	private static String sourceIp(HttpServer server, String forwardedFor) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/ip"));
+		if (forwardedFor != null) {
+			request.header("X-Forwarded-For", forwardedFor);
+		}
+		return CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString()).body();
+	}
+
+	@AfterAll
+	static void stop() {
+		server.stop(0);
+		System.clearProperty("ADMIN_API_KEY");
+	}
+
+	private static HttpResponse<String> revoke(String adminKey) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/admin/revoke"))
+				.header("X-Admin-Key", adminKey)
+				.POST(HttpRequest.BodyPublishers.ofString("{}"))
+				.build();
+		return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	@Test
+	void testAdminKeyAcceptedInServerMode() throws Exception {
+		// Server mode receives the header as X-admin-key, the key must still match
+		HttpResponse<String> response = revoke("test-admin-key");
+
+		// Past the admin check, rejected for the missing user_id
+		assertEquals(400, response.statusCode());
+		assertTrue(response.body().contains("user_id"));
+	}
+
+	@Test
+	void testWrongAdminKeyForbidden() throws Exception {
+		HttpResponse<String> response = revoke("wrong-key");
+
+		assertEquals(403, response.statusCode());
+	}
+
+	@Test
+	void testForwardedForIgnoredByDefault() throws Exception {
+		HttpServer ipServer = ipServer(0);
+		try {
+			// A client can't pick its own address
+			assertEquals("127.0.0.1", sourceIp(ipServer, "203.0.113.9"));
+		} finally {
+			ipServer.stop(0);
+		}
+	}
+
+	@Test
+	void testForwardedForBehindTrustedProxy() throws Exception {
+		HttpServer ipServer = ipServer(1);
+		try {
+			// The load balancer appends the address it saw, anything left of it came from the client
+			assertEquals("198.51.100.7", sourceIp(ipServer, "203.0.113.9, 198.51.100.7"));
+			assertEquals("198.51.100.7", sourceIp(ipServer, "198.51.100.7"));
+			assertEquals("127.0.0.1", sourceIp(ipServer, null));
+		} finally {
+			ipServer.stop(0);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package certification;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.InvalidationBus;
+import utils.JsonReader;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+import utils.RowMapper;
+
+import java.io.StringWriter;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Logs study progress by adding CE hours to user_certs.
+ * The addition happens in the UPDATE itself, so two devices logging hours at once both count,
+ * and the client doesn't read the total first. Requires a JWT token in the request header.
+ *
+ * POST /certifications/{id}/hours adds {"hours": n} to one certification.
+ * POST /certifications/hours adds a batch {"increments": [{"user_cert_id", "hours"}, ...]} in one
+ * statement; increments to the same certification are summed first and rows are locked in id order,
+ * so overlapping batches wait on each other instead of deadlocking.
+ */
+public class LogHoursHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	static final int MAX_HOURS = 1000;
+	static final int MAX_INCREMENTS = 100;
+
+	private static final String RETURNED = "user_cert_id, ce_hours_completed, ce_hours_required";
+
+	private static final String ADD_SQL = "UPDATE user_cert SET ce_hours_completed = COALESCE(ce_hours_completed, 0) + ? "
+			+ "WHERE user_cert_id = ? AND user_id = ? RETURNING " + RETURNED;
+
+	private static final String BATCH_SQL = "WITH inc AS ("
+			+ "SELECT id, sum(hours)::int AS hours FROM unnest(?::bigint[], ?::int[]) AS t(id, hours) GROUP BY id), "
+			+ "locked AS MATERIALIZED (SELECT uc.user_cert_id FROM user_cert uc JOIN inc ON inc.id = uc.user_cert_id "
+			+ "WHERE uc.user_id = ? ORDER BY uc.user_cert_id FOR UPDATE OF uc) "
+			+ "UPDATE user_cert uc SET ce_hours_completed = COALESCE(uc.ce_hours_completed, 0) + inc.hours "
+			+ "FROM locked JOIN inc ON inc.id = locked.user_cert_id "
+			+ "WHERE uc.user_cert_id = locked.user_cert_id "
+			+ "RETURNING uc.user_cert_id, uc.ce_hours_completed, uc.ce_hours_required";
+
+	// Shared with LogHoursStreamHandler
+	static final RequestPipeline PIPELINE = RequestPipeline.builder("LogHoursHandler")
+			.decodeBody(LogHoursRequest::decode)
+			.requireAuth()
+			.validate(LogHoursHandler::validate)
+			.handle(LogHoursHandler::logHours)
+			.build();
+
+	@Override
+	public String handleRequest(Map<String, Object> event, Context context) {
+		return PIPELINE.execute(event).toJsonString();
+	}
+
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
+
+	private static void validate(RequestContext ctx) throws ApiException {
+		LogHoursRequest request = ctx.getRequest();
+		String id = ctx.getPathParameter("id");
+
+		if (id != null) {
+			try {
+				ctx.setAttribute("user_cert_id", Long.parseLong(id));
+			} catch (NumberFormatException e) {
+				throw new ApiException(400, "Invalid user_cert_id");
+			}
+			ctx.setAttribute("hours", hours(request.getHours()));
+			return;
+		}
+
+		Map<Long, Integer> increments = merge(request);
+		ctx.setAttribute("user_cert_ids", increments.keySet().toArray(new Long[0]));
+		ctx.setAttribute("increments", increments.values().toArray(new Integer[0]));
+	}
+
+	/**
+	 * Checked increments of a batch, summed per certification.
+	 * @param request batch body
+	 * @return hours by user_cert_id, in the order ids first appear
+	 */
+	static Map<Long, Integer> merge(LogHoursRequest request) throws ApiException {
+		List<Long> ids = request.getUserCertIds();
+		if (ids == null || ids.isEmpty() || ids.size() > MAX_INCREMENTS) {
+			throw new ApiException(400, "Provide 1 to " + MAX_INCREMENTS + " increments");
+		}
+		Map<Long, Integer> increments = new LinkedHashMap<>();
+		for (int i = 0; i < ids.size(); i++) {
+			Long userCertId = RequestContext.require(ids.get(i), "user_cert_id");
+			increments.merge(userCertId, hours(request.getIncrements().get(i)), Integer::sum);
+		}
+		return increments;
+	}
+
+	// Hours of one increment, 1 to MAX_HOURS
+	static int hours(Long hours) throws ApiException {
+		if (hours == null || hours < 1 || hours > MAX_HOURS) {
+			throw new ApiException(400, "Invalid hours, must be 1 to " + MAX_HOURS);
+		}
+		return hours.intValue();
+	}
+
+	private static ApiResponse logHours(RequestContext ctx, Connection conn) throws Exception {
+		long userId = ctx.getUserId();
+		Long userCertId = ctx.getAttribute("user_cert_id");
+		return userCertId != null ? add(conn, userId, userCertId, ctx.getAttribute("hours")) : addBatch(ctx, conn, userId);
+	}
+
+	private static ApiResponse add(Connection conn, long userId, long userCertId, int hours) throws Exception {
+		try (PreparedStatement stmt = conn.prepareStatement(ADD_SQL)) {
+			stmt.setInt(1, hours);
+			stmt.setLong(2, userCertId);
+			stmt.setLong(3, userId);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					// Log
+					System.out.println("Failed to log hours, user_cert not found or not owned by user");
+
+					return ApiResponse.error(404, "User_cert not found");
+				}
+				InvalidationBus.publish(conn, InvalidationBus.Entity.CERTIFICATIONS, userId);
+
+				StringWriter body = new StringWriter();
+				try (JsonGenerator json = JsonReader.FACTORY.createGenerator(body)) {
+					RowMapper.forQuery(ADD_SQL, rs).writeRow(rs, json);
+				}
+
+				// Log
+				System.out.println("Logged " + hours + " hours on user_cert (ID: " + userCertId + ")");
+
+				return new ApiResponse(200, body.toString());
+			}
+		} catch (SQLException e) {
+			return overflow(e);
+		}
+	}
+
+	private static ApiResponse addBatch(RequestContext ctx, Connection conn, long userId) throws Exception {
+		Long[] userCertIds = ctx.getAttribute("user_cert_ids");
+		Integer[] increments = ctx.getAttribute("increments");
+
+		try (PreparedStatement stmt = conn.prepareStatement(BATCH_SQL)) {
+			stmt.setArray(1, conn.createArrayOf("bigint", userCertIds));
+			stmt.setArray(2, conn.createArrayOf("integer", increments));
+			stmt.setLong(3, userId);
+
+			StringWriter body = new StringWriter();
+			Set<Long> updated = new HashSet<>();
+			try (ResultSet rs = stmt.executeQuery(); JsonGenerator json = JsonReader.FACTORY.createGenerator(body)) {
+				RowMapper mapper = RowMapper.forQuery(BATCH_SQL, rs);
+				json.writeStartObject();
+				json.writeArrayFieldStart("user_certifications");
+				while (rs.next()) {
+					mapper.writeRow(rs, json);
+					updated.add(rs.getLong("user_cert_id"));
+				}
+				json.writeEndArray();
+				if (!updated.isEmpty()) {
+					InvalidationBus.publish(conn, InvalidationBus.Entity.CERTIFICATIONS, userId);
+				}
+
+				// Ids that aren't the user's certifications, nothing was added to them
+				json.writeArrayFieldStart("not_found");
+				for (Long id : notFound(userCertIds, updated)) {
+					json.writeNumber(id);
+				}
+				json.writeEndArray();
+				json.writeEndObject();
+			}
+
+			// Log
+			System.out.println("Logged hours on " + updated.size() + " of " + userCertIds.length + " user_certs for user " + userId);
+
+			return new ApiResponse(200, body.toString());
+		} catch (SQLException e) {
+			return overflow(e);
+		}
+	}
+
+	// Ids of a batch that weren't updated, in request order
+	static List<Long> notFound(Long[] userCertIds, Set<Long> updated) {
+		List<Long> notFound = new ArrayList<>();
+		for (Long id : userCertIds) {
+			if (!updated.contains(id)) {
+				notFound.add(id);
+			}
+		}
+		return notFound;
+	}
+
+	// A total past the INTEGER column is the client's doing, anything else is ours
+	private static ApiResponse overflow(SQLException e) throws SQLException {
+		if ("22003".equals(e.getSQLState())) { // numeric_value_out_of_range in PostgreSQL
+			// Log
+			System.out.println("Failed to log hours, total out of range");
+
+			return ApiResponse.error(400, "Hours would exceed the largest total a certification can hold");
+		}
+		throw e;
+	}
+}
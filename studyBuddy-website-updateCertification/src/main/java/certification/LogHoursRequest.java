@@ -0,0 +1,81 @@
+package certification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import utils.JsonReader;
+
+/**
+ * Body of POST /certifications/{id}/hours ({"hours": 2}) and of
+ * POST /certifications/hours ({"increments": [{"user_cert_id": 1, "hours": 2}, ...]}).
+ */
+public class LogHoursRequest {
+
+	private Long hours;
+	private List<Long> userCertIds;
+	private List<Long> increments;
+
+	// Decode from the body JSON, other fields are skipped
+	public static LogHoursRequest decode(JsonParser parser) throws IOException {
+		LogHoursRequest request = new LogHoursRequest();
+		JsonReader.readObject(parser, (name, value) -> {
+			switch (name) {
+			case "hours":
+				request.hours = JsonReader.longValue(value);
+				break;
+			case "increments":
+				request.readIncrements(value);
+				break;
+			default:
+				value.skipChildren();
+			}
+		});
+		return request;
+	}
+
+	private void readIncrements(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return;
+		}
+		userCertIds = new ArrayList<>();
+		increments = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			Long[] increment = new Long[2];
+			if (parser.currentToken() == JsonToken.START_OBJECT) {
+				JsonReader.readObject(parser, (name, value) -> {
+					if ("user_cert_id".equals(name)) {
+						increment[0] = JsonReader.longValue(value);
+					} else if ("hours".equals(name)) {
+						increment[1] = JsonReader.longValue(value);
+					} else {
+						value.skipChildren();
+					}
+				});
+			} else {
+				parser.skipChildren();
+			}
+			userCertIds.add(increment[0]);
+			increments.add(increment[1]);
+		}
+	}
+
+	// Hours to add to one certification, null if missing or not a number
+	public Long getHours() {
+		return hours;
+	}
+
+	// user_cert_id of each increment, null entries for missing ids; null if no increments were sent
+	public List<Long> getUserCertIds() {
+		return userCertIds;
+	}
+
+	// Hours of each increment, in the same order
+	public List<Long> getIncrements() {
+		return increments;
+	}
+}
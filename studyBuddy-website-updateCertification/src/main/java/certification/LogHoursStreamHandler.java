@@ -0,0 +1,20 @@
+package certification;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+/**
+ * Stream entry point for POST /certifications/{id}/hours and POST /certifications/hours. Same pipeline as
+ * LogHoursHandler, but the raw event is decoded in one pass straight into the typed request.
+ */
+public class LogHoursStreamHandler implements RequestStreamHandler {
+
+	@Override
+	public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+		LogHoursHandler.PIPELINE.execute(input, output);
+	}
+}
@@ -0,0 +1,100 @@
+package certification;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import utils.JsonReader;
+
+/**
+ * Body of PUT /certifications. Only fields present in the body are updated.
+ */
+public class UpdateCertificationRequest {
+
+	private Long userCertId;
+	private boolean hasEarnedOn;
+	private String earnedOn;
+	private boolean hasExpiresOn;
+	private String expiresOn;
+	private boolean hasCeHoursRequired;
+	private Long ceHoursRequired;
+	private boolean hasCeHoursCompleted;
+	private Long ceHoursCompleted;
+
+	// Decode from the body JSON, other fields are skipped
+	public static UpdateCertificationRequest decode(JsonParser parser) throws IOException {
+		UpdateCertificationRequest request = new UpdateCertificationRequest();
+		JsonReader.readObject(parser, (name, value) -> {
+			switch (name) {
+			case "user_cert_id":
+				request.userCertId = JsonReader.longValue(value);
+				break;
+			case "earned_on":
+				request.hasEarnedOn = true;
+				request.earnedOn = JsonReader.text(value);
+				break;
+			case "expires_on":
+				request.hasExpiresOn = true;
+				request.expiresOn = JsonReader.text(value);
+				break;
+			case "ce_hours_required":
+				// Hours can't be cleared, null counts as not sent
+				request.hasCeHoursRequired = value.currentToken() != JsonToken.VALUE_NULL;
+				request.ceHoursRequired = JsonReader.longValue(value);
+				break;
+			case "ce_hours_completed":
+				request.hasCeHoursCompleted = value.currentToken() != JsonToken.VALUE_NULL;
+				request.ceHoursCompleted = JsonReader.longValue(value);
+				break;
+			default:
+				value.skipChildren();
+			}
+		});
+		return request;
+	}
+
+	// null if missing or not a number
+	public Long getUserCertId() {
+		return userCertId;
+	}
+
+	// True if earned_on was sent, null clears it
+	public boolean hasEarnedOn() {
+		return hasEarnedOn;
+	}
+
+	// yyyy-MM-dd as sent, parsed during validation
+	public String getEarnedOn() {
+		return earnedOn;
+	}
+
+	// True if expires_on was sent, null clears it
+	public boolean hasExpiresOn() {
+		return hasExpiresOn;
+	}
+
+	public String getExpiresOn() {
+		return expiresOn;
+	}
+
+	// True if ce_hours_required was sent and not null
+	public boolean hasCeHoursRequired() {
+		return hasCeHoursRequired;
+	}
+
+	// null if not sent or not an integer
+	public Long getCeHoursRequired() {
+		return ceHoursRequired;
+	}
+
+	// True if ce_hours_completed was sent and not null
+	public boolean hasCeHoursCompleted() {
+		return hasCeHoursCompleted;
+	}
+
+	// null if not sent or not an integer
+	public Long getCeHoursCompleted() {
+		return ceHoursCompleted;
+	}
+}
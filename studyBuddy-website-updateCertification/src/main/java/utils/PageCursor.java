@@ -0,0 +1,72 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort it belongs to and the sort
+ * value and id of the last row returned, base64url encoded.
+ * Tokens aren't signed; every query they feed is still scoped to the caller's own rows.
+ */
+public class PageCursor {
+
+	private static final String VERSION = "1";
+
+	private final String sort;
+	private final String value;
+	private final long id;
+
+	public PageCursor(String sort, String value, long id) {
+		this.sort = sort;
+		this.value = value;
+		this.id = id;
+	}
+
+	/**
+	 * Parse a token from a request.
+	 * @param token token from a previous response
+	 * @param sort sort of the current request, the token must have been issued for it
+	 * @return cursor
+	 * @throws ApiException 400 if the token is malformed or from another sort
+	 */
+	public static PageCursor decode(String token, String sort) throws ApiException {
+		String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 4);
+		} catch (IllegalArgumentException e) {
+			throw new ApiException(400, "Invalid cursor");
+		}
+		if (parts.length != 4 || !VERSION.equals(parts[0]) || parts[3].isEmpty()) {
+			throw new ApiException(400, "Invalid cursor");
+		}
+		if (!parts[1].equals(sort)) {
+			throw new ApiException(400, "Cursor was issued for another sort");
+		}
+		try {
+			// Value is last, prefixed with 'v', or 'n' for a null sort value
+			String value = parts[3].charAt(0) == 'v' ? parts[3].substring(1) : null;
+			return new PageCursor(parts[1], value, Long.parseLong(parts[2]));
+		} catch (NumberFormatException e) {
+			throw new ApiException(400, "Invalid cursor");
+		}
+	}
+
+	// base64url, no padding
+	public String encode() {
+		String raw = VERSION + ":" + sort + ":" + id + ":" + (value == null ? "n" : "v" + value);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public String getSort() {
+		return sort;
+	}
+
+	// Sort value of the last row, null if it was NULL
+	public String getValue() {
+		return value;
+	}
+
+	public long getId() {
+		return id;
+	}
+}
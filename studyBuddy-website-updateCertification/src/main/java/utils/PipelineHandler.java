@@ -0,0 +1,11 @@
+package utils;
+
+/**
+ * A route handler whose work is done by a RequestPipeline. Hosts serving several routes
+ * (the router Lambda, server mode) run the pipeline directly and send its ApiResponse
+ * as is, instead of converting the handler's Map or String result back.
+ */
+public interface PipelineHandler {
+
+	RequestPipeline getPipeline();
+}
@@ -0,0 +1,103 @@
+package certification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.JsonReader;
+import utils.JwtHelper;
+
+/**
+ * Unit test ensuring that logging hours checks every increment before the database,
+ * sums increments to the same certification and reports ids that weren't updated.
+ */
+public class LogHoursTest {
+
+	@BeforeAll
+	static void configure() {
+		System.setProperty("JWT_KEY", "12345678901234567890123456789012");
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	private ApiResponse run(String id, String body) {
+		Map<String, Object> event = new HashMap<>();
+		event.put("headers", Map.of("Authorization", JwtHelper.generateToken(3, "Joemama")));
+		if (id != null) {
+			event.put("pathParameters", Map.of("id", id));
+		}
+		event.put("body", body);
+		return LogHoursHandler.PIPELINE.execute(event);
+	}
+
+	private static String error(ApiResponse response) {
+		return new JSONObject(response.getBody()).getString("error");
+	}
+
+	private static LogHoursRequest request(String body) throws IOException {
+		try (JsonParser parser = JsonReader.FACTORY.createParser(body)) {
+			parser.nextToken();
+			return LogHoursRequest.decode(parser);
+		}
+	}
+
+	@Test
+	void testHoursBounds() throws Exception {
+		for (String hours : new String[] { "0", "-2", String.valueOf(LogHoursHandler.MAX_HOURS + 1), "\"two\"", "null" }) {
+			ApiResponse response = run("7", "{\"hours\":" + hours + "}");
+			assertEquals(400, response.getStatusCode(), hours);
+			assertEquals("Invalid hours, must be 1 to " + LogHoursHandler.MAX_HOURS, error(response));
+		}
+		assertEquals("Invalid user_cert_id", error(run("seven", "{\"hours\":2}")));
+
+		assertEquals(1, LogHoursHandler.hours(1L));
+		assertEquals(LogHoursHandler.MAX_HOURS, LogHoursHandler.hours((long) LogHoursHandler.MAX_HOURS));
+	}
+
+	@Test
+	void testIncrementsBounds() {
+		String limit = "Provide 1 to " + LogHoursHandler.MAX_INCREMENTS + " increments";
+		assertEquals(limit, error(run(null, "{\"increments\":[]}")));
+		assertEquals(limit, error(run(null, "{}")));
+
+		StringBuilder tooMany = new StringBuilder("{\"increments\":[");
+		for (int i = 0; i <= LogHoursHandler.MAX_INCREMENTS; i++) {
+			tooMany.append(i == 0 ? "" : ",").append("{\"user_cert_id\":").append(i + 1).append(",\"hours\":1}");
+		}
+		assertEquals(limit, error(run(null, tooMany.append("]}").toString())));
+
+		ApiResponse response = run(null, "{\"increments\":[{\"user_cert_id\":1,\"hours\":1},{\"hours\":2}]}");
+		assertEquals(400, response.getStatusCode());
+		assertEquals("Missing user_cert_id", error(response));
+		assertEquals(400, run(null, "{\"increments\":[{\"user_cert_id\":1,\"hours\":1},7]}").getStatusCode());
+	}
+
+	@Test
+	void testDuplicatesMerged() throws Exception {
+		Map<Long, Integer> increments = LogHoursHandler.merge(request(
+				"{\"increments\":[{\"user_cert_id\":5,\"hours\":2},{\"user_cert_id\":3,\"hours\":1},{\"user_cert_id\":5,\"hours\":4}]}"));
+		assertEquals(List.of(5L, 3L), List.copyOf(increments.keySet()));
+		assertEquals(6, increments.get(5L));
+		assertEquals(1, increments.get(3L));
+
+		assertThrows(ApiException.class, () -> LogHoursHandler.merge(request(
+				"{\"increments\":[{\"user_cert_id\":5,\"hours\":2},{\"user_cert_id\":5,\"hours\":0}]}")));
+	}
+
+	@Test
+	void testNotFound() {
+		assertEquals(List.of(9L, 4L), LogHoursHandler.notFound(new Long[] { 9L, 5L, 4L }, Set.of(5L)));
+		assertEquals(List.of(), LogHoursHandler.notFound(new Long[] { 5L }, Set.of(5L)));
+	}
+}
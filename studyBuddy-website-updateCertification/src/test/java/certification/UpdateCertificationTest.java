@@ -0,0 +1,54 @@
+package certification;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.JwtHelper;
+
+/**
+ * Unit test ensuring that PUT /certifications rejects hours it can't store before the database,
+ * instead of writing them as 0 or truncated.
+ */
+public class UpdateCertificationTest {
+
+	@BeforeAll
+	static void configure() {
+		System.setProperty("JWT_KEY", "12345678901234567890123456789012");
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	private ApiResponse run(String body) {
+		Map<String, Object> event = new HashMap<>();
+		event.put("headers", Map.of("Authorization", JwtHelper.generateToken(3, "Joemama")));
+		event.put("body", body);
+		return UpdateCertificationHandler.PIPELINE.execute(event);
+	}
+
+	@Test
+	void testInvalidHours() {
+		for (String hours : new String[] { "\"ten\"", "{\"a\":1}", "[1]", "-1", "2147483648", "1.5" }) {
+			ApiResponse response = run("{\"user_cert_id\":7,\"ce_hours_completed\":" + hours + "}");
+			assertEquals(400, response.getStatusCode(), hours);
+			assertTrue(new JSONObject(response.getBody()).getString("error").startsWith("Invalid ce_hours_completed"), hours);
+		}
+
+		// null can't clear hours, so it counts as not sent
+		assertEquals(400, run("{\"user_cert_id\":7,\"ce_hours_required\":null}").getStatusCode());
+	}
+
+	@Test
+	void testHoursRange() throws Exception {
+		assertEquals(0, UpdateCertificationHandler.hours(0L, "ce_hours_required"));
+		assertEquals(40, UpdateCertificationHandler.hours(40L, "ce_hours_required"));
+		assertEquals(Integer.MAX_VALUE, UpdateCertificationHandler.hours((long) Integer.MAX_VALUE, "ce_hours_required"));
+		assertThrows(ApiException.class, () -> UpdateCertificationHandler.hours(null, "ce_hours_required"));
+	}
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that PartialUpdate only writes the columns set, caches one statement
+ * per combination, and binds values and keys at the right indexes.
+ */
+public class PartialUpdateTest {
+
+	private final PartialUpdate certs = PartialUpdate.builder("user_cert")
+			.column("earned_on", Types.DATE)
+			.column("expires_on", Types.DATE)
+			.column("ce_hours_required", Types.INTEGER)
+			.where("user_cert_id = ? AND user_id = ?")
+			.build();
+
+	@Test
+	void testStatements() {
+		PartialUpdate.Update update = certs.start().set("expires_on", null).set("ce_hours_required", 40);
+		assertEquals("UPDATE user_cert SET expires_on = ?, ce_hours_required = ? WHERE user_cert_id = ? AND user_id = ?",
+				update.getSql());
+		assertSame(update.getSql(), certs.start().set("ce_hours_required", 1).set("expires_on", null).getSql());
+		assertEquals(1, certs.getCacheSize());
+
+		assertTrue(certs.start().isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> certs.start().set("user_id", 1));
+
+		PartialUpdate users = PartialUpdate.builder("app_user")
+				.column("bio", Types.VARCHAR)
+				.where("user_id = ?")
+				.returning("user_id, bio")
+				.skipUnchanged()
+				.build();
+		assertEquals("WITH upd AS (UPDATE app_user SET bio = ? WHERE user_id = ? AND ROW(bio) IS DISTINCT FROM ROW(?)"
+				+ " RETURNING user_id, bio) SELECT user_id, bio, true AS modified FROM upd"
+				+ " UNION ALL SELECT user_id, bio, false AS modified FROM app_user"
+				+ " WHERE user_id = ? AND NOT EXISTS (SELECT 1 FROM upd)", users.start().set("bio", "hi").getSql());
+	}
+
+	@Test
+	void testBinding() throws Exception {
+		// Earlier versions nulled the wrong parameter indexes
+		Map<Integer, Object> bound = new TreeMap<>();
+		PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().equals("setObject")) {
+						bound.put((Integer) args[0], args[1]);
+					} else if (method.getName().equals("setNull")) {
+						bound.put((Integer) args[0], "NULL");
+					}
+					return null;
+				});
+		Connection conn = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> stmt);
+
+		Date earned = Date.valueOf("2025-09-14");
+		certs.start().set("earned_on", earned).set("expires_on", null).prepare(conn, 7L, 3L);
+		assertEquals(Map.of(1, earned, 2, "NULL", 3, 7L, 4, 3L), bound);
+	}
+}
@@ -3,181 +3,111 @@ package user;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 
-import io.jsonwebtoken.Claims;
-import utils.JwtHelper;
-import utils.JwtValidationException;
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.InvalidationBus;
+import utils.JsonReader;
+import utils.PartialUpdate;
+import utils.PipelineHandler;
+import utils.RequestContext;
+import utils.RequestPipeline;
+import utils.RowMapper;
 
 import org.json.JSONObject;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.StringWriter;
 import java.sql.*;
 import java.util.Map;
 
 /**
  * Handler to update a user's profile information.
+ * One round trip: the UPDATE returns the row, and is skipped when every submitted value
+ * already matches, in which case the stored row comes back with "modified": false.
+ * A change drops the user's cached profile, here and on other instances, before the response is sent.
  */
-public class UpdateUserHandler implements RequestHandler<Map<String, Object>, String> {
+public class UpdateUserHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	private static final String[] FIELDS = { "first_name", "last_name", "industry", "user_role", "bio" };
+
+	// One UPDATE ... RETURNING per set of fields updated
+	private static final PartialUpdate UPDATE = PartialUpdate.builder("app_user")
+			.column("first_name", Types.VARCHAR)
+			.column("last_name", Types.VARCHAR)
+			.column("industry", Types.VARCHAR)
+			.column("user_role", Types.VARCHAR)
+			.column("bio", Types.VARCHAR)
+			.where("user_id = ?")
+			.returning("user_id, first_name, last_name, username, industry, user_role, bio")
+			.skipUnchanged()
+			.build();
+
+	private static final RequestPipeline PIPELINE = RequestPipeline.builder("UpdateUserHandler")
+			.parseBody()
+			.requireAuth()
+			.validate(UpdateUserHandler::validate)
+			.handle(UpdateUserHandler::update)
+			.build();
 
 	@Override
 	public String handleRequest(Map<String, Object> event, Context context) {
-		JSONObject response = new JSONObject();
-
-		try (Connection conn = DriverManager.getConnection(
-				System.getenv("DB_URL"),
-				System.getenv("DB_USER"),
-				System.getenv("DB_PASSWORD"))) {
-
-			// Accept both API Gateway (body as string) and direct JSON (fields at top level)
-			JSONObject body;
-			Object bodyObj = event.get("body");
-			if (bodyObj instanceof String) {
-				// API Gateway: body is a JSON string
-				body = new JSONObject((String) bodyObj);
-			} else if (bodyObj instanceof Map) {
-				// Local/direct: body is already a map
-				body = new JSONObject((Map<?, ?>) bodyObj);
-			} else if (bodyObj == null) {
-				// No "body" key, treat event itself as the body (for local direct JSON)
-				body = new JSONObject(event);
-			} else {
-				throw new IllegalArgumentException("Invalid event format");
-			}
+		return PIPELINE.execute(event).toJsonString();
+	}
 
-			// Extract JWT token from headers
-			@SuppressWarnings("unchecked")
-			Map<String, String> headers = (Map<String, String>) event.get("headers");
-			if (headers == null) {
-				return errorResponse(400, "Missing headers").toString();
-			}
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
 
-			String token = headers.get("Authorization");
-			if (token == null) {
-				token = headers.get("authorization");
+	private static void validate(RequestContext ctx) throws ApiException {
+		JSONObject body = ctx.getBody();
+		for (String field : FIELDS) {
+			if (body.optString(field, null) != null) {
+				return;
 			}
-			if (token == null) {
-				return errorResponse(400, "Missing JWT token in Authorization header").toString();
-			}
-
-			Claims claims = JwtHelper.parseToken(token);
-			long userId = Long.parseLong(claims.getSubject());
-
-			// Collect update fields
-			String firstName = body.optString("first_name", null);
-			String lastName = body.optString("last_name", null);
-			String industry = body.optString("industry", null);
-			String userRole = body.optString("user_role", null);
-			String bio = body.optString("bio", null);
+		}
+		// Nothing to update
+		throw new ApiException(400, "No fields provided to update");
+	}
 
-			// Dynamically build SQL
-			StringBuilder sql = new StringBuilder("UPDATE app_user SET ");
-			boolean first = true;
+	private static ApiResponse update(RequestContext ctx, Connection conn) throws Exception {
+		JSONObject body = ctx.getBody();
+		long userId = ctx.getUserId();
 
-			if (firstName != null) {
-				sql.append("first_name = ?");
-				first = false;
-			}
-			if (lastName != null) {
-				if (!first) sql.append(", ");
-				sql.append("last_name = ?");
-				first = false;
-			}
-			if (industry != null) {
-				if (!first) sql.append(", ");
-				sql.append("industry = ?");
-				first = false;
-			}
-			if (userRole != null) {
-				if (!first) sql.append(", ");
-				sql.append("user_role = ?");
-				first = false;
-			}
-			if (bio != null) {
-				if (!first) sql.append(", ");
-				sql.append("bio = ?");
-				first = false;
+		// Collect update fields
+		PartialUpdate.Update update = UPDATE.start();
+		for (String field : FIELDS) {
+			String value = body.optString(field, null);
+			if (value != null) {
+				update.set(field, value);
 			}
+		}
 
-			if (first) {
-				// Nothing to update
-				return errorResponse(400, "No fields provided to update").toString();
+		try (PreparedStatement stmt = update.prepare(conn, userId);
+				ResultSet rs = stmt.executeQuery()) {
+			if (!rs.next()) {
+				// Nothing was written, nothing to invalidate
+				return ApiResponse.error(404, "User not found");
 			}
-
-			sql.append(" WHERE user_id = ?");
-
-			try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-				// Add parameters as needed
-				int paramIndex = 1;
-				if (firstName != null) stmt.setString(paramIndex++, firstName);
-				if (lastName != null) stmt.setString(paramIndex++, lastName);
-				if (industry != null) stmt.setString(paramIndex++, industry);
-				if (userRole != null) stmt.setString(paramIndex++, userRole);
-				if (bio != null) stmt.setString(paramIndex++, bio);
-
-				stmt.setLong(paramIndex, userId);
-
-				int rowsUpdated = stmt.executeUpdate();
-				if (rowsUpdated == 0) {
-					return errorResponse(404, "User not found").toString();
-				}
+			boolean modified = rs.getBoolean("modified");
+			if (modified) {
+				InvalidationBus.publish(conn, InvalidationBus.Entity.USER, userId);
 			}
 
-			// Fetch updated record
-			String fetchSql = "SELECT user_id, first_name, last_name, username, industry, user_role, bio FROM app_user WHERE user_id = ?";
-			try (PreparedStatement stmt = conn.prepareStatement(fetchSql)) {
-				stmt.setLong(1, userId);
-				ResultSet rs = stmt.executeQuery();
-				if (rs.next()) {
-					JSONObject userJson = new JSONObject()
-							.put("user_id", rs.getLong("user_id"))
-							.put("first_name", rs.getString("first_name"))
-							.put("last_name", rs.getString("last_name"))
-							.put("username", rs.getString("username"))
-							.put("industry", rs.getString("industry"))
-							.put("user_role", rs.getString("user_role"))
-							.put("bio", rs.getString("bio"));
-
-					response.put("statusCode", 200);
-					response.put("body", userJson.toString());
-
-					// Log
-					System.out.println("Updated user info for user_id: " + userId);
-				} else {
-					return errorResponse(404, "User not found after update").toString();
-				}
+			StringWriter userJson = new StringWriter();
+			try (JsonGenerator json = JsonReader.FACTORY.createGenerator(userJson)) {
+				RowMapper.forQuery(update.getSql(), rs).writeRow(rs, json);
 			}
 
-		} catch (JwtValidationException e) {
-		    response = new JSONObject();
-		    response.put("statusCode", e.getStatusCode());
-		    response.put("body", new JSONObject()
-		            .put("error", e.getMessage())
-		            .toString());
-		    
-		    // Log
-		    System.out.println("JWT error: " + e.getMessage());
-		    
-		    return response.toString();
-
-		} catch (Exception e) {
-			response.put("statusCode", 500);
-			response.put("body", new JSONObject()
-					.put("error", "Internal server error")
-					.put("details", e.getMessage())
-					.toString());
-
 			// Log
-			System.err.println("Error in UpdateUserHandler: " + e.getMessage());
-			e.printStackTrace();
-		}
-
-		return response.toString();
-	}
+			if (modified) {
+				System.out.println("Updated user info for user_id: " + userId);
+			} else {
+				System.out.println("User info unchanged for user_id: " + userId);
+			}
 
-	private JSONObject errorResponse(int code, String message) {
-		JSONObject resp = new JSONObject();
-		resp.put("statusCode", code);
-		resp.put("body", new JSONObject()
-				.put("error", message)
-				.toString());
-		return resp;
+			return new ApiResponse(200, userJson.toString());
+		}
 	}
 }
@@ -0,0 +1,96 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact, thread-safe Bloom filter of strings.
+ * mightContain never returns false for an added value, and returns true for a value
+ * that was never added with roughly the configured false positive probability.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+	private final long capacity;
+	private final AtomicLong insertions = new AtomicLong();
+
+	/**
+	 * @param capacity expected number of values
+	 * @param falsePositiveRate target false positive probability at capacity, e.g. 0.001
+	 */
+	public BloomFilter(long capacity, double falsePositiveRate) {
+		long n = Math.max(1, capacity);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		m = Math.max(64, (m + 63) / 64 * 64);
+
+		this.bits = new AtomicLongArray((int) (m / 64));
+		this.bitCount = m;
+		this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+		this.capacity = n;
+	}
+
+	public void put(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+		insertions.incrementAndGet();
+	}
+
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Number of put calls, including repeats
+	public long getInsertions() {
+		return insertions.get();
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	// Size of the bit array in bytes
+	public long getSizeBytes() {
+		return bitCount / 8;
+	}
+
+	private long index(int combinedHash) {
+		return (combinedHash & 0x7fffffffL) % bitCount;
+	}
+
+	// 64-bit FNV-1a, split into two 32-bit hashes (Kirsch-Mitzenmacher double hashing)
+	private static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		// Final avalanche so similar strings spread over the whole range
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
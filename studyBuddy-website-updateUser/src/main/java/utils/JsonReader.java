@@ -0,0 +1,83 @@
+package utils;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Helpers for decoding JSON with the Jackson streaming parser, field by field,
+ * straight into typed objects without building a Map or JSONObject first.
+ */
+public class JsonReader {
+
+	// Thread-safe and meant to be shared, it caches symbol tables and buffers
+	public static final JsonFactory FACTORY = new JsonFactory();
+
+	// Called for each field of an object, with the parser on the field's value
+	public interface FieldReader {
+		void read(String name, JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * Decode a JSON body into a typed request.
+	 */
+	public interface BodyDecoder<T> {
+		T decode(JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * Read the object the parser is at (or about to start), field by field.
+	 * A reader that doesn't consume a value must call parser.skipChildren().
+	 * @param parser parser before or on START_OBJECT
+	 * @param reader field reader
+	 */
+	public static void readObject(JsonParser parser, FieldReader reader) throws IOException {
+		JsonToken token = parser.currentToken() == null ? parser.nextToken() : parser.currentToken();
+		if (token != JsonToken.START_OBJECT) {
+			throw new IOException("Expected a JSON object");
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			reader.read(name, parser);
+		}
+	}
+
+	// String value (numbers and booleans as text), null for JSON null
+	public static String text(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return null;
+		}
+		return parser.getValueAsString();
+	}
+
+	// Integer value (numeric strings too), null for JSON null or anything else
+	public static Long longValue(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return parser.getLongValue();
+		}
+		String text = text(parser);
+		if (text == null) {
+			return null;
+		}
+		try {
+			return Long.parseLong(text.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	// Integer value, defaultValue for null or non-numeric values
+	public static int intValue(JsonParser parser, int defaultValue) throws IOException {
+		Long value = longValue(parser);
+		return value == null ? defaultValue : value.intValue();
+	}
+}
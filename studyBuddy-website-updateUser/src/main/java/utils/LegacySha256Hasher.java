@@ -0,0 +1,51 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * The original unsalted SHA-256 (Base64) scheme. Only used to verify passwords stored
+ * before PBKDF2; such hashes are always upgraded on the next successful login.
+ */
+public class LegacySha256Hasher implements PasswordHasher {
+
+	// MessageDigest isn't thread-safe, clone a prototype instead of looking the provider up per call
+	private static final MessageDigest PROTOTYPE;
+
+	static {
+		try {
+			PROTOTYPE = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public String hash(String password) {
+		try {
+			MessageDigest digest = (MessageDigest) PROTOTYPE.clone();
+			return Base64.getEncoder().encodeToString(digest.digest(password.getBytes()));
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Legacy hashes are plain Base64 of 32 bytes
+	@Override
+	public boolean supports(String storedHash) {
+		return storedHash != null && storedHash.length() == 44 && storedHash.indexOf('$') < 0;
+	}
+
+	@Override
+	public boolean verify(String password, String storedHash) {
+		return MessageDigest.isEqual(hash(password).getBytes(StandardCharsets.US_ASCII),
+				storedHash.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Override
+	public boolean needsRehash(String storedHash) {
+		return true;
+	}
+}
@@ -0,0 +1,240 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded LRU read-through cache of user profiles, keyed by user_id.
+ * Static, so it lives as long as the warm Lambda container or the server.
+ * An entry is fresh for PROFILE_CACHE_TTL_MS. For PROFILE_CACHE_STALE_MS after that it is
+ * still served while one background reload replaces it, then it is dropped.
+ * Writers invalidate synchronously; a load that raced an invalidation of the same user is not
+ * cached. Invalidations are tracked in a fixed table of counters indexed by user_id, so writes
+ * to other users don't drop a load, except the rare user sharing a counter.
+ * Writes on other instances invalidate through InvalidationBus when it is on, without it the
+ * TTL bounds staleness.
+ */
+public class ProfileCache {
+
+	private static final int VERSION_SLOTS = 4096;
+
+	// Reads a profile with its own connection, null if the user no longer exists
+	public interface Loader {
+		Object[] load(long userId) throws Exception;
+	}
+
+	public static final ProfileCache INSTANCE = new ProfileCache(
+			EnvHelper.getInt("PROFILE_CACHE_SIZE", 10_000),
+			EnvHelper.getLong("PROFILE_CACHE_TTL_MS", 60_000),
+			EnvHelper.getLong("PROFILE_CACHE_STALE_MS", 300_000));
+
+	private static final ExecutorService REFRESHER = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "profile-cache-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final long staleMillis;
+	private final LinkedHashMap<Long, Entry> entries;
+	private final AtomicLongArray versions = new AtomicLongArray(VERSION_SLOTS); // Bumped under entries
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong refreshFailures = new AtomicLong();
+
+	public ProfileCache(int maxEntries, long ttlMillis, long staleMillis) {
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlMillis;
+		this.staleMillis = staleMillis;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				if (size() > ProfileCache.this.maxEntries) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return maxEntries > 0;
+	}
+
+	/**
+	 * Look up a profile. A stale entry is returned and reloaded in the background, once.
+	 * @param userId user
+	 * @param nowMillis current time
+	 * @param loader reloads a stale entry
+	 * @return cached column values, or null on a miss
+	 */
+	public Object[] get(long userId, long nowMillis, Loader loader) {
+		if (!isEnabled()) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		Entry entry;
+		boolean refresh = false;
+		long stamp;
+		synchronized (entries) {
+			entry = entries.get(userId);
+			if (entry != null && nowMillis - entry.loadedAtMillis >= ttlMillis + staleMillis) {
+				entries.remove(userId);
+				expirations.incrementAndGet();
+				entry = null;
+			}
+			if (entry != null && nowMillis - entry.loadedAtMillis >= ttlMillis && !entry.refreshing) {
+				entry.refreshing = true;
+				refresh = true;
+			}
+			stamp = versions.get(slot(userId));
+		}
+
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (nowMillis - entry.loadedAtMillis < ttlMillis) {
+			hits.incrementAndGet();
+		} else {
+			staleHits.incrementAndGet();
+		}
+		if (refresh) {
+			scheduleRefresh(userId, entry, stamp, loader);
+		}
+		return entry.values;
+	}
+
+	/**
+	 * Stamp to take before reading a profile from the database, then pass to put.
+	 * @param userId user about to be read
+	 */
+	public long stamp(long userId) {
+		return versions.get(slot(userId));
+	}
+
+	/**
+	 * Cache a profile read from the database.
+	 * @param userId user
+	 * @param values column values
+	 * @param stamp from {@link #stamp(long)} before the read; if the user was invalidated since, the values are dropped
+	 * @param nowMillis time of the read
+	 */
+	public void put(long userId, Object[] values, long stamp, long nowMillis) {
+		if (!isEnabled()) {
+			return;
+		}
+		synchronized (entries) {
+			if (stamp == versions.get(slot(userId))) {
+				entries.put(userId, new Entry(values, nowMillis));
+			}
+		}
+	}
+
+	/**
+	 * Drop a user's profile after it was changed or deleted.
+	 * Loads in flight when this is called are not cached.
+	 * @param userId user
+	 */
+	public void invalidate(long userId) {
+		synchronized (entries) {
+			entries.remove(userId);
+			versions.incrementAndGet(slot(userId));
+		}
+		invalidations.incrementAndGet();
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			for (int i = 0; i < VERSION_SLOTS; i++) {
+				versions.incrementAndGet(i);
+			}
+		}
+	}
+
+	/**
+	 * Cache counters. Stale hits count as hits in the ratio.
+	 * @return hits, stale hits, misses, expirations, evictions, invalidations, refreshes, size and hit ratio
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long h = hits.get() + staleHits.get();
+		long m = misses.get();
+		stats.put("hits", hits.get());
+		stats.put("stale_hits", staleHits.get());
+		stats.put("misses", m);
+		stats.put("expirations", expirations.get());
+		stats.put("evictions", evictions.get());
+		stats.put("invalidations", invalidations.get());
+		stats.put("refreshes", refreshes.get());
+		stats.put("refresh_failures", refreshFailures.get());
+		synchronized (entries) {
+			stats.put("size", entries.size());
+		}
+		stats.put("hit_ratio", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+		return stats;
+	}
+
+	private void scheduleRefresh(long userId, Entry stale, long stamp, Loader loader) {
+		try {
+			REFRESHER.execute(() -> refresh(userId, stale, stamp, loader));
+		} catch (RejectedExecutionException e) {
+			synchronized (entries) {
+				stale.refreshing = false;
+			}
+		}
+	}
+
+	private void refresh(long userId, Entry stale, long stamp, Loader loader) {
+		refreshes.incrementAndGet();
+		try {
+			Object[] values = loader.load(userId);
+			if (values == null) {
+				invalidate(userId);
+			} else {
+				put(userId, values, stamp, System.currentTimeMillis());
+			}
+		} catch (Exception e) {
+			refreshFailures.incrementAndGet();
+			// Log
+			System.err.println("Profile refresh failed for user_id " + userId + ": " + e.getMessage());
+		} finally {
+			// Lets a later read retry if the reload was dropped or failed
+			synchronized (entries) {
+				stale.refreshing = false;
+			}
+		}
+	}
+
+	private static int slot(long userId) {
+		return (int) (Long.hashCode(userId) & (VERSION_SLOTS - 1));
+	}
+
+	private static final class Entry {
+		final Object[] values;
+		final long loadedAtMillis;
+		boolean refreshing; // Guarded by entries
+
+		Entry(Object[] values, long loadedAtMillis) {
+			this.values = values;
+			this.loadedAtMillis = loadedAtMillis;
+		}
+	}
+}
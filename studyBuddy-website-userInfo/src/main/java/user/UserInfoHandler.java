@@ -2,109 +2,159 @@ package user;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-
-import io.jsonwebtoken.Claims;
-import utils.JwtHelper;
-import utils.JwtValidationException;
-
-import org.json.JSONObject;
-
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import utils.ApiException;
+import utils.ApiResponse;
+import utils.DatabaseHelper;
+import utils.ETags;
+import utils.FieldSelection;
+import utils.InvalidationBus;
+import utils.JsonReader;
+import utils.PipelineHandler;
+import utils.ProfileCache;
+import utils.RequestContext;
+import utils.RequestPipeline;
+
+import java.io.IOException;
+import java.io.StringWriter;
 import java.sql.*;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Handler to fetch and return a user's information.
+ * An optional fields query parameter (e.g. ?fields=first_name,last_name) narrows the
+ * columns returned. Profiles are served from ProfileCache when they can be, without taking a
+ * connection; a miss reads the whole profile once and caches it for every selection.
+ * With the cache off, only the selected columns are read.
+ * Responses carry an ETag made of the profile's row_version and the selection; a matching
+ * If-None-Match gets a 304 without the body being built.
  */
-public class UserInfoHandler implements RequestHandler<Map<String, Object>, String> {
+public class UserInfoHandler implements RequestHandler<Map<String, Object>, String>, PipelineHandler {
+
+	private static final String[] COLUMNS = { "user_id", "first_name", "last_name", "username", "industry", "user_role", "bio" };
+
+	static final FieldSelection FIELDS = new FieldSelection("", COLUMNS);
+
+	// Slot after the columns holding row_version, read with every selection
+	private static final int ROW_VERSION = COLUMNS.length;
+
+	private static final ProfileCache CACHE = ProfileCache.INSTANCE;
+
+	// SQL by field selection
+	private static final ConcurrentHashMap<Long, String> SQL_CACHE = new ConcurrentHashMap<>();
+
+	private static final RequestPipeline PIPELINE = RequestPipeline.builder("UserInfoHandler")
+			.requireAuth()
+			.validate(UserInfoHandler::validate)
+			.lookup(UserInfoHandler::cachedUser)
+			.handle(UserInfoHandler::fetchUser)
+			.build();
 
 	@Override
 	public String handleRequest(Map<String, Object> event, Context context) {
-		JSONObject response = new JSONObject();
-
-		try (Connection conn = DriverManager.getConnection(
-				System.getenv("DB_URL"),
-				System.getenv("DB_USER"),
-				System.getenv("DB_PASSWORD"))) {
-
-			// Extract JWT token from headers
-			@SuppressWarnings("unchecked")
-			Map<String, String> headers = (Map<String, String>) event.get("headers");
-			if (headers == null) {
-				return errorResponse(400, "Missing headers").toString();
-			}
+		return PIPELINE.execute(event).toJsonString();
+	}
 
-			String token = headers.get("Authorization");
-			if (token == null) {
-				token = headers.get("authorization");
-			}
-			if (token == null) {
-				return errorResponse(400, "Missing JWT token in Authorization header").toString();
-			}
+	@Override
+	public RequestPipeline getPipeline() {
+		return PIPELINE;
+	}
 
-			Claims claims = JwtHelper.parseToken(token);
-			long userId = Long.parseLong(claims.getSubject());
-
-			// Query app_user for user
-			String sql = "SELECT user_id, first_name, last_name, username, industry, user_role, bio " +
-					"FROM app_user WHERE user_id = ?";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setLong(1, userId);
-				ResultSet rs = stmt.executeQuery();
-
-				if (rs.next()) {
-					JSONObject userJson = new JSONObject()
-							.put("user_id", rs.getLong("user_id"))
-							.put("first_name", rs.getString("first_name"))
-							.put("last_name", rs.getString("last_name"))
-							.put("username", rs.getString("username"))
-							.put("industry", rs.getString("industry"))
-							.put("user_role", rs.getString("user_role"))
-							.put("bio", rs.getString("bio"));
-
-					response.put("statusCode", 200);
-					response.put("body", userJson.toString());
-
-					// Log
-					System.out.println("Fetched user info for user_id: " + userId);
-				} else {
-					System.err.println("Failed to fetch user info for user_id: " + userId);
-					return errorResponse(404, "User not found").toString();
-				}
-			}
+	// Hit ratio, evictions and refreshes of the profile cache
+	public static Map<String, Object> getCacheStats() {
+		return CACHE.getStats();
+	}
+
+	private static void validate(RequestContext ctx) throws ApiException {
+		ctx.setAttribute("fields", FIELDS.parse(ctx.getQueryParameter("fields")));
+	}
 
-		} catch (JwtValidationException e) {
-		    response = new JSONObject();
-		    response.put("statusCode", e.getStatusCode());
-		    response.put("body", new JSONObject()
-		            .put("error", e.getMessage())
-		            .toString());
-		    
-		    // Log
-		    System.out.println("JWT error: " + e.getMessage());
-		    
-		    return response.toString();
-
-		} catch (Exception e) {
-			response.put("statusCode", 500);
-			response.put("body", new JSONObject()
-					.put("error", "Internal server error")
-					.put("details", e.getMessage())
-					.toString());
-
-			//Log
-			System.err.println("Error in GetUserHandler: " + e.getMessage());
-			e.printStackTrace();
+	private static ApiResponse cachedUser(RequestContext ctx) throws IOException {
+		if (!InvalidationBus.isCurrent()) {
+			return null;
 		}
+		Object[] user = CACHE.get(ctx.getUserId(), System.currentTimeMillis(), UserInfoHandler::reload);
+		return user == null ? null : respond(ctx, user);
+	}
+
+	private static ApiResponse fetchUser(RequestContext ctx, Connection conn) throws Exception {
+		long userId = ctx.getUserId();
+		long fields = ctx.getAttribute("fields");
+
+		// Query app_user for user
+		long stamp = CACHE.stamp(userId);
+		Object[] user = load(conn, userId, CACHE.isEnabled() ? FIELDS.all() : fields);
+		if (user == null) {
+			System.err.println("Failed to fetch user info for user_id: " + userId);
+			return ApiResponse.error(404, "User not found");
+		}
+		CACHE.put(userId, user, stamp, System.currentTimeMillis());
+
+		// Log
+		System.out.println("Fetched user info for user_id: " + userId);
+
+		return respond(ctx, user);
+	}
+
+	// 304 if the client has this version of the selection, otherwise the selection with its tag
+	private static ApiResponse respond(RequestContext ctx, Object[] user) throws IOException {
+		long fields = ctx.getAttribute("fields");
+		String etag = ETags.of("u" + ctx.getUserId(), user[ROW_VERSION], Long.toHexString(fields));
+		ApiResponse notModified = ETags.notModified(ctx, etag);
+		return notModified != null ? notModified : ETags.tag(render(user, fields), etag);
+	}
+
+	// Background reload of a stale profile
+	private static Object[] reload(long userId) throws SQLException {
+		try (Connection conn = DatabaseHelper.getConnection()) {
+			return load(conn, userId, FIELDS.all());
+		}
+	}
 
-		return response.toString();
+	/**
+	 * Read a profile.
+	 * @return values in COLUMNS order, null for columns not selected, then row_version; or null if there is no such user
+	 */
+	private static Object[] load(Connection conn, long userId, long fields) throws SQLException {
+		String sql = SQL_CACHE.computeIfAbsent(fields, f -> "SELECT " + FIELDS.columns(f) + ", row_version FROM app_user WHERE user_id = ?");
+		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setLong(1, userId);
+			ResultSet rs = stmt.executeQuery();
+			if (!rs.next()) {
+				return null;
+			}
+			Object[] user = new Object[COLUMNS.length + 1];
+			for (int i = 0; i < COLUMNS.length; i++) {
+				if ((fields & (1L << i)) != 0) {
+					user[i] = rs.getObject(COLUMNS[i]);
+				}
+			}
+			user[ROW_VERSION] = rs.getLong("row_version");
+			return user;
+		}
 	}
 
-	private JSONObject errorResponse(int code, String message) {
-		JSONObject resp = new JSONObject();
-		resp.put("statusCode", code);
-		resp.put("body", new JSONObject()
-				.put("error", message)
-				.toString());
-		return resp;
+	// The selected fields as a JSON object, in COLUMNS order
+	static ApiResponse render(Object[] user, long fields) throws IOException {
+		StringWriter userJson = new StringWriter();
+		try (JsonGenerator json = JsonReader.FACTORY.createGenerator(userJson)) {
+			json.writeStartObject();
+			for (int i = 0; i < COLUMNS.length; i++) {
+				if ((fields & (1L << i)) == 0) {
+					continue;
+				}
+				// A null value is left out, as JSONObject.put(name, null) did
+				Object value = user[i];
+				if (value instanceof Number) {
+					json.writeNumberField(COLUMNS[i], ((Number) value).longValue());
+				} else if (value != null) {
+					json.writeStringField(COLUMNS[i], value.toString());
+				}
+			}
+			json.writeEndObject();
+		}
+		return new ApiResponse(200, userJson.toString());
 	}
 }
@@ -0,0 +1,29 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guard for admin-only routes. Callers present the ADMIN_API_KEY secret in the X-Admin-Key header.
+ */
+public class AdminAuth {
+
+	/**
+	 * Check the admin key of a request.
+	 * @param ctx request context, the header name is matched in any case
+	 * @throws JwtValidationException 403 if admin routes are disabled or the key is missing or wrong
+	 */
+	public static void check(RequestContext ctx) throws JwtValidationException {
+		String expected = EnvHelper.get("ADMIN_API_KEY");
+		if (expected == null || expected.isEmpty()) {
+			// No key configured, admin routes are off
+			throw new JwtValidationException("Forbidden", 403);
+		}
+		String presented = ctx.getHeader("X-Admin-Key");
+		// Constant time, so the key can't be guessed byte by byte
+		if (presented == null || !MessageDigest.isEqual(
+				presented.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8))) {
+			throw new JwtValidationException("Forbidden", 403);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Serialized GET /certifications pages with their ETags, per user and query, tagged with the user's version.
+ * Every handler that writes user_cert bumps the version, which makes all of the user's pages
+ * misses without finding them; they are replaced on the next read or evicted.
+ * Versions live in a fixed table of counters indexed by user_id, so they take no memory per
+ * user; two users sharing a counter only invalidate each other's pages.
+ * Memory is bounded by the total size of the bodies (CERT_CACHE_MAX_BYTES), evicting least
+ * recently used pages first. Writes on other instances bump versions through InvalidationBus
+ * when it is on; without it CERT_CACHE_TTL_MS bounds staleness.
+ */
+public class CertificationCache {
+
+	private static final int VERSION_SLOTS = 4096;
+
+	// A cached response
+	public static final class Page {
+		public final String body;
+		public final String etag;
+
+		public Page(String body, String etag) {
+			this.body = body;
+			this.etag = etag;
+		}
+	}
+
+	public static final CertificationCache INSTANCE = new CertificationCache(
+			EnvHelper.getLong("CERT_CACHE_MAX_BYTES", 16L << 20),
+			EnvHelper.getLong("CERT_CACHE_TTL_MS", 30_000));
+
+	private final long maxBytes;
+	private final long ttlMillis;
+	private final AtomicLongArray versions = new AtomicLongArray(VERSION_SLOTS);
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes; // Guarded by entries
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong stale = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong bumps = new AtomicLong();
+
+	public CertificationCache(long maxBytes, long ttlMillis) {
+		this.maxBytes = maxBytes;
+		this.ttlMillis = ttlMillis;
+	}
+
+	public boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	/**
+	 * Current version of a user's certifications, to take before reading them and pass to put.
+	 * @param userId user
+	 */
+	public long version(long userId) {
+		return versions.get(slot(userId));
+	}
+
+	/**
+	 * Mark a user's cached pages out of date. Call after the write is committed.
+	 * @param userId user whose user_certs changed
+	 */
+	public void bump(long userId) {
+		versions.incrementAndGet(slot(userId));
+		bumps.incrementAndGet();
+	}
+
+	// Mark every cached page out of date, e.g. when invalidations may have been missed
+	public void bumpAll() {
+		for (int i = 0; i < VERSION_SLOTS; i++) {
+			versions.incrementAndGet(i);
+		}
+		clear();
+	}
+
+	/**
+	 * Look up a page.
+	 * @param userId user
+	 * @param key query, see CertificationQuery.getCacheKey
+	 * @param nowMillis current time
+	 * @return page, or null on a miss or if the user's version changed since it was cached
+	 */
+	public Page get(long userId, String key, long nowMillis) {
+		if (!isEnabled()) {
+			misses.incrementAndGet();
+			return null;
+		}
+		long version = version(userId);
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && (entry.version != version || nowMillis - entry.cachedAtMillis >= ttlMillis)) {
+				remove(key);
+				stale.incrementAndGet();
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.page;
+	}
+
+	/**
+	 * Cache a page read from the database.
+	 * @param userId user
+	 * @param key query
+	 * @param page body JSON and ETag
+	 * @param version from {@link #version(long)} before the read; if the user was written since, the page is dropped
+	 * @param nowMillis time of the read
+	 */
+	public void put(long userId, String key, Page page, long version, long nowMillis) {
+		long weight = weight(key, page);
+		// A page bigger than an eighth of the budget would push out too many others
+		if (!isEnabled() || weight > maxBytes / 8) {
+			return;
+		}
+		synchronized (entries) {
+			if (version != version(userId)) {
+				return;
+			}
+			remove(key);
+			entries.put(key, new Entry(page, version, nowMillis, weight));
+			bytes += weight;
+
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (bytes > maxBytes && eldest.hasNext()) {
+				bytes -= eldest.next().weight;
+				eldest.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * Cache counters.
+	 * @return hits, misses, stale pages dropped, evictions, version bumps, size, bytes and hit ratio
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		long h = hits.get();
+		long m = misses.get();
+		stats.put("hits", h);
+		stats.put("misses", m);
+		stats.put("stale", stale.get());
+		stats.put("evictions", evictions.get());
+		stats.put("bumps", bumps.get());
+		synchronized (entries) {
+			stats.put("size", entries.size());
+			stats.put("bytes", bytes);
+		}
+		stats.put("hit_ratio", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+		return stats;
+	}
+
+	// Guarded by entries
+	private void remove(String key) {
+		Entry removed = entries.remove(key);
+		if (removed != null) {
+			bytes -= removed.weight;
+		}
+	}
+
+	// Approximate heap bytes: two per char of the strings, plus the entry and map node
+	private static long weight(String key, Page page) {
+		return 2L * (key.length() + page.body.length() + (page.etag == null ? 0 : page.etag.length())) + 128;
+	}
+
+	private static int slot(long userId) {
+		return (int) (Long.hashCode(userId) & (VERSION_SLOTS - 1));
+	}
+
+	private static final class Entry {
+		final Page page;
+		final long version;
+		final long cachedAtMillis;
+		final long weight;
+
+		Entry(Page page, long version, long cachedAtMillis, long weight) {
+			this.page = page;
+			this.version = version;
+			this.cachedAtMillis = cachedAtMillis;
+			this.weight = weight;
+		}
+	}
+}
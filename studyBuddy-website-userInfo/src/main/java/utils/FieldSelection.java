@@ -0,0 +1,98 @@
+package utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Whitelist for a ?fields= parameter. A selection is a bitmask over the allowed fields,
+ * so it is cheap to pass around and to use as a cache key for the SQL built from it.
+ * Column lists are built once per distinct selection.
+ */
+public class FieldSelection {
+
+	private final String prefix;
+	private final String[] fields;
+	private final long all;
+	private final ConcurrentHashMap<Long, String> columnLists = new ConcurrentHashMap<>();
+
+	/**
+	 * @param prefix table alias put before each column, e.g. "uc."
+	 * @param fields allowed fields, which are also the column names, in output order
+	 */
+	public FieldSelection(String prefix, String... fields) {
+		if (fields.length > 63) {
+			throw new IllegalArgumentException("Too many fields");
+		}
+		this.prefix = prefix;
+		this.fields = fields.clone();
+		this.all = (1L << fields.length) - 1;
+	}
+
+	/**
+	 * Parse a comma separated field list.
+	 * @param param parameter value, null for every field
+	 * @return selection
+	 * @throws ApiException 400 for a field that isn't allowed, or an empty list
+	 */
+	public long parse(String param) throws ApiException {
+		if (param == null) {
+			return all;
+		}
+		long mask = 0;
+		for (String name : param.split(",")) {
+			String field = name.trim();
+			if (!field.isEmpty()) {
+				mask |= bit(field);
+			}
+		}
+		if (mask == 0) {
+			throw new ApiException(400, "Invalid fields parameter");
+		}
+		return mask;
+	}
+
+	// Add a field the query needs whatever the client asked for
+	public long include(long mask, String field) {
+		return mask | bitOf(field);
+	}
+
+	public long all() {
+		return all;
+	}
+
+	/**
+	 * SELECT list of a selection, in whitelist order.
+	 * @param mask selection
+	 * @return e.g. "uc.title, uc.expires_on"
+	 */
+	public String columns(long mask) {
+		return columnLists.computeIfAbsent(mask, m -> {
+			StringBuilder columns = new StringBuilder();
+			for (int i = 0; i < fields.length; i++) {
+				if ((m & (1L << i)) != 0) {
+					if (columns.length() > 0) {
+						columns.append(", ");
+					}
+					columns.append(prefix).append(fields[i]);
+				}
+			}
+			return columns.toString();
+		});
+	}
+
+	private long bit(String field) throws ApiException {
+		long bit = bitOf(field);
+		if (bit == 0) {
+			throw new ApiException(400, "Unknown field: " + field);
+		}
+		return bit;
+	}
+
+	private long bitOf(String field) {
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i].equals(field)) {
+				return 1L << i;
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,221 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sparse UPDATE of a table: only the columns a request sets are written, so omitted fields
+ * keep their values and untouched indexed columns cause no index churn. The statement is
+ * built once per combination of columns set and cached.
+ *
+ * With skipUnchanged the row is only rewritten when a value differs; the statement then
+ * returns the row either way, with a boolean "modified" column after the returned ones.
+ */
+public class PartialUpdate {
+
+	private final String table;
+	private final String[] columns;
+	private final int[] types;
+	private final String where;
+	private final String returning;
+	private final boolean skipUnchanged;
+	private final ConcurrentHashMap<Long, String> statements = new ConcurrentHashMap<>();
+
+	private PartialUpdate(Builder builder) {
+		this.table = builder.table;
+		this.columns = builder.columns.toArray(new String[0]);
+		this.types = builder.types.stream().mapToInt(Integer::intValue).toArray();
+		this.where = builder.where;
+		this.returning = builder.returning;
+		this.skipUnchanged = builder.skipUnchanged;
+	}
+
+	public static Builder builder(String table) {
+		return new Builder(table);
+	}
+
+	// Values of one request
+	public Update start() {
+		return new Update();
+	}
+
+	/**
+	 * SQL for a combination of columns.
+	 * @param mask bit i set if the i-th column is written
+	 * @return statement, parameters: values set, the same values again with skipUnchanged,
+	 * then the where keys (twice with skipUnchanged)
+	 */
+	String sql(long mask) {
+		return statements.computeIfAbsent(mask, this::build);
+	}
+
+	// Number of cached statements
+	public int getCacheSize() {
+		return statements.size();
+	}
+
+	private String build(long mask) {
+		StringBuilder set = new StringBuilder();
+		StringBuilder row = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			if ((mask & (1L << i)) != 0) {
+				if (set.length() > 0) {
+					set.append(", ");
+					row.append(", ");
+					values.append(", ");
+				}
+				set.append(columns[i]).append(" = ?");
+				row.append(columns[i]);
+				values.append("?");
+			}
+		}
+		String update = "UPDATE " + table + " SET " + set + " WHERE " + where;
+		if (!skipUnchanged) {
+			return returning == null ? update : update + " RETURNING " + returning;
+		}
+		// Both branches read the same snapshot; ROW() keeps a single column a row comparison
+		return "WITH upd AS (" + update + " AND ROW(" + row + ") IS DISTINCT FROM ROW(" + values + ")"
+				+ " RETURNING " + returning + ")"
+				+ " SELECT " + returning + ", true AS modified FROM upd"
+				+ " UNION ALL"
+				+ " SELECT " + returning + ", false AS modified FROM " + table
+				+ " WHERE " + where + " AND NOT EXISTS (SELECT 1 FROM upd)";
+	}
+
+	/**
+	 * Columns set by one request.
+	 */
+	public class Update {
+		private final Object[] values = new Object[columns.length];
+		private long mask;
+
+		/**
+		 * Write a column; null writes NULL, a column never set is left alone.
+		 * @param column column name given to the builder
+		 * @param value value of the column's type
+		 * @return this
+		 */
+		public Update set(String column, Object value) {
+			for (int i = 0; i < columns.length; i++) {
+				if (columns[i].equals(column)) {
+					values[i] = value;
+					mask |= 1L << i;
+					return this;
+				}
+			}
+			throw new IllegalArgumentException("Unknown column " + column + " of " + table);
+		}
+
+		// True if no column is set, there is nothing to update
+		public boolean isEmpty() {
+			return mask == 0;
+		}
+
+		public String getSql() {
+			return sql(mask);
+		}
+
+		/**
+		 * Prepare and bind the statement, the caller executes and closes it.
+		 * @param conn connection
+		 * @param keys values of the where clause parameters, in order
+		 * @return statement, run with executeQuery if it returns rows, otherwise executeUpdate
+		 */
+		public PreparedStatement prepare(Connection conn, Object... keys) throws SQLException {
+			if (mask == 0) {
+				throw new IllegalStateException("No columns set");
+			}
+			PreparedStatement stmt = conn.prepareStatement(getSql());
+			try {
+				int index = bindValues(stmt, 1);
+				if (skipUnchanged) {
+					index = bindValues(stmt, index);
+				}
+				index = bindKeys(stmt, index, keys);
+				if (skipUnchanged) {
+					bindKeys(stmt, index, keys);
+				}
+				return stmt;
+			} catch (SQLException | RuntimeException e) {
+				stmt.close();
+				throw e;
+			}
+		}
+
+		private int bindValues(PreparedStatement stmt, int index) throws SQLException {
+			for (int i = 0; i < columns.length; i++) {
+				if ((mask & (1L << i)) != 0) {
+					if (values[i] == null) {
+						stmt.setNull(index++, types[i]);
+					} else {
+						stmt.setObject(index++, values[i], types[i]);
+					}
+				}
+			}
+			return index;
+		}
+
+		private int bindKeys(PreparedStatement stmt, int index, Object[] keys) throws SQLException {
+			for (Object key : keys) {
+				stmt.setObject(index++, key);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Builder for a table's partial update.
+	 */
+	public static class Builder {
+		private final String table;
+		private final List<String> columns = new ArrayList<>();
+		private final List<Integer> types = new ArrayList<>();
+		private String where;
+		private String returning;
+		private boolean skipUnchanged;
+
+		private Builder(String table) {
+			this.table = table;
+		}
+
+		// Updatable column, with its java.sql.Types type for NULLs
+		public Builder column(String name, int sqlType) {
+			columns.add(name);
+			types.add(sqlType);
+			return this;
+		}
+
+		// Row condition, e.g. "user_cert_id = ? AND user_id = ?"
+		public Builder where(String condition) {
+			this.where = condition;
+			return this;
+		}
+
+		// Columns returned by the statement
+		public Builder returning(String columns) {
+			this.returning = columns;
+			return this;
+		}
+
+		// Don't rewrite a row whose values already match, requires returning
+		public Builder skipUnchanged() {
+			this.skipUnchanged = true;
+			return this;
+		}
+
+		public PartialUpdate build() {
+			if (columns.isEmpty() || columns.size() > 63 || where == null) {
+				throw new IllegalStateException("PartialUpdate of " + table + " needs 1 to 63 columns and a where clause");
+			}
+			if (skipUnchanged && returning == null) {
+				throw new IllegalStateException("PartialUpdate of " + table + " skipping unchanged rows needs returning");
+			}
+			return new PartialUpdate(this);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package utils;
+
+/**
+ * A password hashing scheme. Stored hashes are self-describing ("scheme$params$...")
+ * so the scheme and cost can change without invalidating existing passwords.
+ */
+public interface PasswordHasher {
+
+	/**
+	 * Hash a password with a fresh salt.
+	 * @param password plain password
+	 * @return encoded hash to store
+	 */
+	String hash(String password);
+
+	/**
+	 * @param storedHash an encoded hash
+	 * @return true if this hasher produced the hash (with any cost)
+	 */
+	boolean supports(String storedHash);
+
+	/**
+	 * Verify a password in constant time.
+	 * @param password plain password
+	 * @param storedHash encoded hash this hasher supports
+	 * @return true if they match
+	 */
+	boolean verify(String password, String storedHash);
+
+	/**
+	 * @param storedHash encoded hash this hasher supports
+	 * @return true if the hash is weaker than what hash() produces now
+	 */
+	boolean needsRehash(String storedHash);
+}
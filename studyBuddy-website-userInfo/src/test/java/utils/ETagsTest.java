@@ -0,0 +1,64 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that If-None-Match is matched the way browsers and proxies send it,
+ * and that a match is answered with an empty 304 carrying the tag.
+ */
+public class ETagsTest {
+
+	@BeforeAll
+	static void configure() {
+		System.setProperty("JWT_KEY", "12345678901234567890123456789012");
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	@Test
+	void testMatches() {
+		String etag = ETags.of("u3", 7L, "7f");
+		assertEquals("\"u3-7-7f\"", etag);
+
+		assertTrue(ETags.matches("\"u3-7-7f\"", etag));
+		assertTrue(ETags.matches("\"u3-6-7f\", W/\"u3-7-7f\"", etag));
+		assertTrue(ETags.matches("*", etag));
+		assertFalse(ETags.matches("\"u3-6-7f\"", etag));
+		assertFalse(ETags.matches("u3-7-7f", etag));
+		assertFalse(ETags.matches(null, etag));
+	}
+
+	@Test
+	void testNotModified() {
+		String etag = ETags.of("c3", 12L);
+		RequestPipeline pipeline = RequestPipeline.builder("TaggedHandler")
+				.requireAuth()
+				.lookup(ctx -> {
+					ApiResponse notModified = ETags.notModified(ctx, etag);
+					return notModified != null ? notModified : ETags.tag(ApiResponse.error(200, "body"), etag);
+				})
+				.handle((ctx, conn) -> null)
+				.build();
+
+		Map<String, String> headers = new HashMap<>();
+		headers.put("Authorization", JwtHelper.generateToken(3, "Joemama"));
+		Map<String, Object> event = new HashMap<>();
+		event.put("headers", headers);
+
+		ApiResponse full = pipeline.execute(event);
+		assertEquals(200, full.getStatusCode());
+		assertEquals(etag, full.getHeaders().get("ETag"));
+
+		// Server mode passes header names as the JDK normalizes them
+		headers.put("If-none-match", etag);
+		ApiResponse notModified = pipeline.execute(event);
+		assertEquals(304, notModified.getStatusCode());
+		assertEquals("", notModified.getBody());
+		assertEquals(etag, notModified.getHeaders().get("ETag"));
+	}
+}
@@ -0,0 +1,85 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Date;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Unit test ensuring that FastJwtVerifier agrees with jjwt and falls back when it should.
+ */
+public class FastJwtVerifierTest {
+
+	private static final SecretKey KEY = Keys.hmacShaKeyFor("12345678901234567890123456789012".getBytes());
+	private final FastJwtVerifier verifier = new FastJwtVerifier(JwtKeyRing.of("k1", KEY));
+
+	private static String token(Map<String, Object> extraClaims, long expMillis) {
+		return Jwts.builder()
+				.id("b1c2d3e4")
+				.subject("3")
+				.claim("username", "Joemama")
+				.claims(extraClaims)
+				.issuedAt(new Date())
+				.expiration(new Date(expMillis))
+				.signWith(KEY)
+				.compact();
+	}
+
+	@Test
+	void testMatchesJjwt() throws Exception {
+		String token = token(Map.of(), System.currentTimeMillis() + 60_000);
+
+		Claims fast = verifier.verify(token, System.currentTimeMillis());
+		Claims jjwt = Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload();
+
+		assertNotNull(fast);
+		assertEquals(jjwt.getSubject(), fast.getSubject());
+		assertEquals(jjwt.getId(), fast.getId());
+		assertEquals(jjwt.get("username"), fast.get("username"));
+		assertEquals(jjwt.getExpiration(), fast.getExpiration());
+		assertEquals(jjwt.getIssuedAt(), fast.getIssuedAt());
+	}
+
+	@Test
+	void testTamperedSignatureRejected() {
+		String token = token(Map.of(), System.currentTimeMillis() + 60_000);
+		char last = token.charAt(token.length() - 2);
+		String tampered = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+
+		JwtValidationException e = assertThrows(JwtValidationException.class,
+				() -> verifier.verify(tampered, System.currentTimeMillis()));
+		assertEquals(403, e.getStatusCode());
+	}
+
+	@Test
+	void testExpiredAtExp() {
+		long exp = (System.currentTimeMillis() / 1000 + 60) * 1000;
+		String token = token(Map.of(), exp);
+
+		JwtValidationException e = assertThrows(JwtValidationException.class, () -> verifier.verify(token, exp));
+		assertEquals(401, e.getStatusCode());
+	}
+
+	@Test
+	void testFallsBackOnNestedClaims() throws Exception {
+		String token = token(Map.of("roles", Map.of("admin", true)), System.currentTimeMillis() + 60_000);
+
+		assertNull(verifier.verify(token, System.currentTimeMillis()));
+	}
+
+	@Test
+	void testFallsBackOnUnknownScalarClaims() throws Exception {
+		// jjwt keeps the claim, the fast path must not hand out (and cache) claims without it
+		String token = token(Map.of("scope", "admin"), System.currentTimeMillis() + 60_000);
+
+		assertNull(verifier.verify(token, System.currentTimeMillis()));
+	}
+}
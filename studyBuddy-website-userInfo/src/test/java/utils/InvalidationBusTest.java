@@ -0,0 +1,81 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Unit test ensuring that InvalidationBus payloads fit in a NOTIFY and that a burst of them
+ * coalesces into each user once. The round trip through Postgres runs against the local
+ * database in TEST_DB_URL (with TEST_DB_USER and TEST_DB_PASSWORD) when it is set.
+ */
+public class InvalidationBusTest {
+
+	@Test
+	void testPayloads() {
+		assertEquals(List.of("node1 c:3 c:7"), InvalidationBus.encode("node1", InvalidationBus.Entity.CERTIFICATIONS, 3, 7, 3));
+
+		long[] many = new long[2000];
+		for (int i = 0; i < many.length; i++) {
+			many[i] = 1_000_000 + i;
+		}
+		List<String> payloads = InvalidationBus.encode("node1", InvalidationBus.Entity.USER, many);
+		assertTrue(payloads.size() > 1);
+		for (String payload : payloads) {
+			assertTrue(payload.length() <= InvalidationBus.MAX_PAYLOAD);
+			assertTrue(payload.startsWith("node1 u:"));
+		}
+		assertEquals(2000, InvalidationBus.decode(payloads, "self").get(InvalidationBus.Entity.USER).size());
+	}
+
+	@Test
+	void testCoalesced() {
+		Map<InvalidationBus.Entity, Set<Long>> users = InvalidationBus.decode(List.of(
+				"node1 c:3", "node2 c:3 u:3", "node1 c:3 c:4", "self c:9", "node1 x:1 c:y u"), "self");
+
+		assertEquals(Set.of(3L, 4L), users.get(InvalidationBus.Entity.CERTIFICATIONS));
+		assertEquals(Set.of(3L), users.get(InvalidationBus.Entity.USER));
+	}
+
+	@Test
+	@EnabledIfEnvironmentVariable(named = "TEST_DB_URL", matches = ".+")
+	void testThroughPostgres() throws Exception {
+		String url = System.getenv("TEST_DB_URL");
+		try (Connection listener = DriverManager.getConnection(url, System.getenv("TEST_DB_USER"), System.getenv("TEST_DB_PASSWORD"));
+				Connection writer = DriverManager.getConnection(url, System.getenv("TEST_DB_USER"), System.getenv("TEST_DB_PASSWORD"));
+				Statement stmt = listener.createStatement()) {
+			stmt.execute("LISTEN " + InvalidationBus.CHANNEL);
+
+			// A burst of writes to the same users
+			for (int i = 0; i < 50; i++) {
+				InvalidationBus.notifyOthers(writer, InvalidationBus.Entity.CERTIFICATIONS, 3, 4);
+			}
+			InvalidationBus.notifyOthers(writer, InvalidationBus.Entity.USER, 3);
+
+			stmt.execute("SELECT 1");
+			PGNotification[] notifications = listener.unwrap(PGConnection.class).getNotifications(1_000);
+			assertNotNull(notifications);
+			List<String> payloads = new ArrayList<>();
+			for (PGNotification notification : notifications) {
+				payloads.add(notification.getParameter());
+			}
+			Map<InvalidationBus.Entity, Set<Long>> users = InvalidationBus.decode(payloads, "other");
+			assertEquals(Set.of(3L, 4L), users.get(InvalidationBus.Entity.CERTIFICATIONS));
+			assertEquals(Set.of(3L), users.get(InvalidationBus.Entity.USER));
+
+			// This node skips its own
+			assertTrue(InvalidationBus.decode(payloads, InvalidationBus.NODE).isEmpty());
+		}
+	}
+}
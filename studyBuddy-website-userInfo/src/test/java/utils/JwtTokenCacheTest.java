@@ -0,0 +1,53 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Unit test ensuring that JwtTokenCache only serves tokens before their exp.
+ */
+public class JwtTokenCacheTest {
+
+	private static Claims claimsExpiringAt(long expMillis) {
+		return Jwts.claims().subject("3").expiration(new Date(expMillis)).build();
+	}
+
+	@Test
+	void testEntryEvictedExactlyAtExp() {
+		JwtTokenCache cache = new JwtTokenCache(10);
+		ByteBuffer key = JwtTokenCache.key("token");
+		cache.put(key, claimsExpiringAt(10_000));
+
+		assertNotNull(cache.get(key, 9_999));
+		assertNull(cache.get(key, 10_000));
+		assertNull(cache.get(key, 9_999)); // Already dropped
+
+		assertEquals(1L, cache.getStats().get("hits"));
+		assertEquals(2L, cache.getStats().get("misses"));
+		assertEquals(1L, cache.getStats().get("expirations"));
+	}
+
+	@Test
+	void testLeastRecentlyUsedEvicted() {
+		JwtTokenCache cache = new JwtTokenCache(2);
+		ByteBuffer a = JwtTokenCache.key("a");
+		ByteBuffer b = JwtTokenCache.key("b");
+		ByteBuffer c = JwtTokenCache.key("c");
+		cache.put(a, claimsExpiringAt(Long.MAX_VALUE));
+		cache.put(b, claimsExpiringAt(Long.MAX_VALUE));
+		cache.get(a, 0); // a is now most recently used
+		cache.put(c, claimsExpiringAt(Long.MAX_VALUE));
+
+		assertNotNull(cache.get(a, 0));
+		assertNull(cache.get(b, 0));
+		assertNotNull(cache.get(c, 0));
+		assertEquals(1L, cache.getStats().get("evictions"));
+	}
+}
@@ -0,0 +1,83 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that ProfileCache serves stale entries while reloading them once,
+ * and never caches a load that raced an invalidation of the same user.
+ */
+public class ProfileCacheTest {
+
+	private static final ProfileCache.Loader NO_LOAD = userId -> {
+		throw new AssertionError("Unexpected reload");
+	};
+
+	@Test
+	void testStaleWhileRevalidate() throws Exception {
+		ProfileCache cache = new ProfileCache(10, 1_000, 5_000);
+		cache.put(3, new Object[] { 3L, "old" }, cache.stamp(3), 0);
+
+		assertEquals("old", cache.get(3, 999, NO_LOAD)[1]);
+
+		CountDownLatch reloaded = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		ProfileCache.Loader loader = userId -> {
+			loads.incrementAndGet();
+			reloaded.countDown();
+			return new Object[] { userId, "new" };
+		};
+		// Stale, served as is while one reload runs
+		assertEquals("old", cache.get(3, 1_000, loader)[1]);
+		assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+		Object[] fresh = null;
+		for (int i = 0; i < 100 && (fresh == null || fresh[1].equals("old")); i++) {
+			Thread.sleep(10);
+			fresh = cache.get(3, System.currentTimeMillis(), NO_LOAD);
+		}
+		assertEquals("new", fresh[1]);
+		assertEquals(1, loads.get());
+
+		// Past TTL and the stale window it's a miss
+		cache.put(4, new Object[] { 4L, "gone" }, cache.stamp(4), 0);
+		assertNull(cache.get(4, 6_000, NO_LOAD));
+		assertEquals(1L, cache.getStats().get("expirations"));
+		assertEquals(1L, cache.getStats().get("stale_hits"));
+	}
+
+	@Test
+	void testInvalidation() {
+		ProfileCache cache = new ProfileCache(2, 60_000, 0);
+		long stamp = cache.stamp(3);
+		cache.put(3, new Object[] { 3L }, stamp, 0);
+		cache.invalidate(3);
+		assertNull(cache.get(3, 0, NO_LOAD));
+
+		// Read before the invalidation, written after it: dropped
+		cache.put(3, new Object[] { 3L }, stamp, 0);
+		assertNull(cache.get(3, 0, NO_LOAD));
+
+		// Writes to other users don't drop it
+		stamp = cache.stamp(3);
+		cache.invalidate(4);
+		cache.invalidate(5);
+		cache.put(3, new Object[] { 3L }, stamp, 0);
+		assertNotNull(cache.get(3, 0, NO_LOAD));
+		cache.invalidate(3);
+
+		cache.put(3, new Object[] { 3L }, cache.stamp(3), 0);
+		cache.put(4, new Object[] { 4L }, cache.stamp(4), 0);
+		cache.put(5, new Object[] { 5L }, cache.stamp(5), 0);
+		assertNull(cache.get(3, 0, NO_LOAD));
+		assertNotNull(cache.get(5, 0, NO_LOAD));
+		assertEquals(1L, cache.getStats().get("evictions"));
+		assertEquals(4L, cache.getStats().get("invalidations"));
+
+		assertNull(new ProfileCache(0, 60_000, 0).get(3, 0, NO_LOAD));
+	}
+}
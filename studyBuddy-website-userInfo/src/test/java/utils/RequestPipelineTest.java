@@ -0,0 +1,89 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test ensuring that RequestPipeline rejects bad requests before taking a connection.
+ * There is no database here, so reaching the DATABASE stage would fail with 500.
+ */
+public class RequestPipelineTest {
+
+	private final AtomicInteger handled = new AtomicInteger();
+
+	private final RequestPipeline pipeline = RequestPipeline.builder("TestHandler")
+			.parseBody()
+			.requireAuth()
+			.validate(ctx -> ctx.requireString("title"))
+			.handle((ctx, conn) -> {
+				handled.incrementAndGet();
+				return ApiResponse.error(200, "unreachable");
+			})
+			.build();
+
+	@BeforeAll
+	static void configure() {
+		System.setProperty("JWT_KEY", "12345678901234567890123456789012");
+		System.setProperty("JWT_REVOCATION", "false");
+	}
+
+	private static Map<String, Object> event(String body, Map<String, String> headers) {
+		Map<String, Object> event = new HashMap<>();
+		event.put("body", body);
+		event.put("headers", headers);
+		return event;
+	}
+
+	@Test
+	void testRejectedBeforeDatabase() {
+		assertEquals(400, pipeline.execute(event("{not json", Map.of())).getStatusCode());
+		assertEquals(400, pipeline.execute(event("{}", null)).getStatusCode());
+		assertEquals(400, pipeline.execute(event("{}", Map.of("Content-Type", "application/json"))).getStatusCode());
+		assertEquals(403, pipeline.execute(event("{}", Map.of("authorization", "not.a.token"))).getStatusCode());
+
+		String token = JwtHelper.generateToken(3, "Joemama");
+		ApiResponse missingTitle = pipeline.execute(event("{}", Map.of("Authorization", token)));
+		assertEquals(400, missingTitle.getStatusCode());
+		assertTrue(missingTitle.getBody().contains("Missing title"));
+
+		assertEquals(0, handled.get());
+		Map<?, ?> database = (Map<?, ?>) pipeline.getStats().get("database");
+		assertEquals(0L, database.get("count"));
+		Map<?, ?> auth = (Map<?, ?>) pipeline.getStats().get("auth");
+		assertEquals(1L, auth.get("count"));
+	}
+
+	@Test
+	void testLookupAnswersWithoutDatabase() {
+		RequestPipeline cached = RequestPipeline.builder("CachedHandler")
+				.requireAuth()
+				.lookup(ctx -> ctx.getUserId() == 3 ? ApiResponse.error(200, "cached") : null)
+				.handle((ctx, conn) -> ApiResponse.error(200, "unreachable"))
+				.build();
+
+		String token = JwtHelper.generateToken(3, "Joemama");
+		ApiResponse response = cached.execute(event(null, Map.of("Authorization", token)));
+		assertEquals(200, response.getStatusCode());
+		assertTrue(response.getBody().contains("cached"));
+		assertEquals(0L, ((Map<?, ?>) cached.getStats().get("database")).get("count"));
+
+		// A lookup miss goes on to the database, which isn't there
+		String other = JwtHelper.generateToken(4, "Joepapa");
+		assertEquals(500, cached.execute(event(null, Map.of("Authorization", other))).getStatusCode());
+	}
+
+	@Test
+	void testResponseShapes() {
+		ApiResponse response = ApiResponse.error(429, "Slow down").withHeader("Retry-After", "5");
+
+		assertEquals(429, response.toMap().get("statusCode"));
+		assertEquals("{\"error\":\"Slow down\"}", response.toMap().get("body"));
+		assertTrue(response.toJsonString().contains("\"Retry-After\":\"5\""));
+	}
+}